@@ -0,0 +1,149 @@
+package com.cinema;
+
+import com.cinema.repository.CustomerRepository;
+import com.cinema.repository.JsonRepository;
+import com.cinema.repository.MovieRepository;
+import com.cinema.repository.TheaterRepository;
+import com.cinema.service.CustomerService;
+import com.cinema.service.MovieService;
+import com.cinema.service.TheaterService;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Startup phase that loads all repositories concurrently and builds the services on top of them.
+ * Each service becomes available as soon as its own repository has loaded, so callers wait only
+ * for the data they use. The load time of every repository and of the whole phase is logged.
+ */
+public class Bootstrap implements AutoCloseable {
+    
+    private static final Logger logger = Logger.getLogger(Bootstrap.class.getName());
+    
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<CustomerRepository> customerRepository;
+    private final CompletableFuture<MovieRepository> movieRepository;
+    private final CompletableFuture<TheaterRepository> theaterRepository;
+    private final CompletableFuture<CustomerService> customerService;
+    private final CompletableFuture<MovieService> movieService;
+    private final CompletableFuture<TheaterService> theaterService;
+    
+    /**
+     * Starts loading the repositories from their default files.
+     */
+    public Bootstrap() {
+        this(CustomerRepository::new, MovieRepository::new, TheaterRepository::new);
+    }
+    
+    /**
+     * Starts loading the repositories created by the given factories.
+     */
+    public Bootstrap(Supplier<CustomerRepository> customers, Supplier<MovieRepository> movies,
+                     Supplier<TheaterRepository> theaters) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3, task -> {
+            Thread thread = new Thread(task, "bootstrap-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.customerRepository = load("customer", customers, executor);
+        this.movieRepository = load("movie", movies, executor);
+        this.theaterRepository = load("theater", theaters, executor);
+        // Already submitted loads keep running; the threads exit once they are done
+        executor.shutdown();
+        
+        this.customerService = customerRepository.thenApply(CustomerService::new);
+        this.movieService = movieRepository.thenApply(MovieService::new);
+        this.theaterService = theaterRepository.thenApply(TheaterService::new);
+        
+        CompletableFuture.allOf(customerRepository, movieRepository, theaterRepository)
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        logger.log(Level.INFO, "All repositories loaded in {0} ms", elapsedMillis(startNanos));
+                    }
+                });
+    }
+    
+    private static <R> CompletableFuture<R> load(String name, Supplier<R> factory, ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                R repository = factory.get();
+                logger.log(Level.INFO, "Loaded {0} repository in {1} ms", new Object[]{name, elapsedMillis(start)});
+                return repository;
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Failed to load " + name + " repository after " + elapsedMillis(start) + " ms", e);
+                throw e;
+            }
+        }, executor);
+    }
+    
+    /**
+     * Returns the customer service, waiting for the customer repository to load if necessary.
+     */
+    public CustomerService getCustomerService() {
+        return await(customerService);
+    }
+    
+    /**
+     * Returns the movie service, waiting for the movie repository to load if necessary.
+     */
+    public MovieService getMovieService() {
+        return await(movieService);
+    }
+    
+    /**
+     * Returns the theater service, waiting for the theater repository to load if necessary.
+     */
+    public TheaterService getTheaterService() {
+        return await(theaterService);
+    }
+    
+    /**
+     * Waits until every repository has loaded.
+     */
+    public void awaitAll() {
+        await(CompletableFuture.allOf(customerRepository, movieRepository, theaterRepository));
+    }
+    
+    /**
+     * Closes every repository that loaded successfully, writing out pending mutations.
+     */
+    @Override
+    public void close() {
+        for (CompletableFuture<? extends JsonRepository<?>> repository
+                : List.of(customerRepository, movieRepository, theaterRepository)) {
+            try {
+                repository.join().close();
+            } catch (CompletionException e) {
+                // Never loaded, nothing to close
+            }
+        }
+    }
+    
+    /**
+     * Waits for a startup result, rethrowing a load failure as it was thrown by the repository.
+     */
+    private static <R> R await(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
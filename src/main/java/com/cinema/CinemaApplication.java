@@ -1,19 +1,22 @@
 package com.cinema;
 
+import com.cinema.api.ApiServer;
 import com.cinema.exception.CinemaException;
+import com.cinema.models.BaseEntity;
 import com.cinema.models.Customer;
 import com.cinema.models.Movie;
 import com.cinema.models.Theater;
-import com.cinema.repository.CustomerRepository;
-import com.cinema.repository.MovieRepository;
-import com.cinema.repository.TheaterRepository;
 import com.cinema.service.CustomerService;
 import com.cinema.service.MovieService;
 import com.cinema.service.TheaterService;
 import com.cinema.ui.ConsoleUI;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Scanner;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,25 +28,47 @@ public class CinemaApplication {
     private static final Logger logger = Logger.getLogger(CinemaApplication.class.getName());
     
     private final Scanner scanner;
-    private final CustomerService customerService;
-    private final MovieService movieService;
-    private final TheaterService theaterService;
+    private final Bootstrap bootstrap;
     
     public CinemaApplication() {
         this.scanner = new Scanner(System.in);
-        this.customerService = new CustomerService(new CustomerRepository());
-        this.movieService = new MovieService(new MovieRepository());
-        this.theaterService = new TheaterService(new TheaterRepository());
+        // Repositories load in the background; each menu waits only for the data it needs
+        this.bootstrap = new Bootstrap();
     }
     
     /**
-     * Main entry point of the application.
+     * Main entry point of the application. Runs the console menus, or with the arguments
+     * {@code serve [port]} the HTTP API instead.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(args.length > 1 ? Integer.parseInt(args[1]) : ApiServer.DEFAULT_PORT);
+            return;
+        }
         CinemaApplication app = new CinemaApplication();
         app.run();
     }
     
+    /**
+     * Serves the HTTP API until the process is stopped, then writes out pending mutations.
+     */
+    private static void serve(int port) {
+        Bootstrap bootstrap = new Bootstrap();
+        ApiServer server;
+        try {
+            server = new ApiServer(new InetSocketAddress(port), bootstrap);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to start the API server on port " + port, e);
+            bootstrap.close();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            bootstrap.close();
+        }, "api-shutdown"));
+        server.start();
+    }
+    
     /**
      * Runs the main application loop.
      */
@@ -83,6 +108,7 @@ public class CinemaApplication {
         }
         
         scanner.close();
+        bootstrap.close();
     }
     
     /**
@@ -230,16 +256,38 @@ public class CinemaApplication {
         String phone = scanner.nextLine().trim();
         if (phone.isEmpty()) phone = null;
         
-        Customer customer = customerService.createCustomer(firstName, lastName, email, phone);
+        Customer customer = customerService().createCustomer(firstName, lastName, email, phone);
         ConsoleUI.displaySuccess("Customer added successfully! ID: " + customer.getId());
         ConsoleUI.waitForEnter(scanner);
     }
     
     private void viewAllCustomers() {
         System.out.println("\n--- All Customers ---");
-        List<Customer> customers = customerService.getAllCustomers();
-        ConsoleUI.displayCustomers(customers);
-        ConsoleUI.waitForEnter(scanner);
+        showPages(customerService()::getCustomersAfter, ConsoleUI::displayCustomers, customerService().getCustomerCount());
+    }
+    
+    /**
+     * Shows a listing page by page, fetching each page by the last ID of the previous one.
+     */
+    private <T extends BaseEntity> void showPages(BiFunction<Long, Integer, List<T>> fetch,
+                                                  Consumer<List<T>> display, long total) {
+        Long lastId = null;
+        long shown = 0;
+        while (true) {
+            List<T> page = fetch.apply(lastId, ConsoleUI.PAGE_SIZE);
+            if (!page.isEmpty() || shown == 0) {
+                display.accept(page);
+            }
+            shown += page.size();
+            if (page.size() < ConsoleUI.PAGE_SIZE) {
+                ConsoleUI.waitForEnter(scanner);
+                return;
+            }
+            lastId = page.get(page.size() - 1).getId();
+            if (!ConsoleUI.nextPage(scanner, shown, total)) {
+                return;
+            }
+        }
     }
     
     private void searchCustomer() {
@@ -247,7 +295,7 @@ public class CinemaApplication {
         System.out.print("Enter name to search: ");
         String query = scanner.nextLine().trim();
         
-        List<Customer> customers = customerService.searchCustomers(query);
+        List<Customer> customers = customerService().searchCustomers(query);
         ConsoleUI.displayCustomers(customers);
         ConsoleUI.waitForEnter(scanner);
     }
@@ -257,7 +305,7 @@ public class CinemaApplication {
         System.out.print("Enter Customer ID: ");
         long id = readLong();
         
-        Customer customer = customerService.getCustomerById(id);
+        Customer customer = customerService().getCustomerById(id);
         System.out.println("Current: " + customer);
         
         System.out.print("New First Name (press Enter to skip): ");
@@ -272,7 +320,7 @@ public class CinemaApplication {
         System.out.print("New Phone (press Enter to skip): ");
         String phone = scanner.nextLine().trim();
         
-        customerService.updateCustomer(
+        customerService().updateCustomer(
                 id,
                 firstName.isEmpty() ? null : firstName,
                 lastName.isEmpty() ? null : lastName,
@@ -289,11 +337,11 @@ public class CinemaApplication {
         System.out.print("Enter Customer ID: ");
         long id = readLong();
         
-        Customer customer = customerService.getCustomerById(id);
+        Customer customer = customerService().getCustomerById(id);
         System.out.println("Customer: " + customer);
         
         if (ConsoleUI.confirm(scanner, "Are you sure you want to delete this customer?")) {
-            customerService.deleteCustomer(id);
+            customerService().deleteCustomer(id);
             ConsoleUI.displaySuccess("Customer deleted successfully!");
         } else {
             ConsoleUI.displayInfo("Deletion cancelled.");
@@ -309,7 +357,7 @@ public class CinemaApplication {
         System.out.print("Enter points to add: ");
         int points = readInt();
         
-        Customer customer = customerService.addLoyaltyPoints(id, points);
+        Customer customer = customerService().addLoyaltyPoints(id, points);
         ConsoleUI.displaySuccess("Added " + points + " points. Total: " + customer.getLoyaltyPoints());
         ConsoleUI.waitForEnter(scanner);
     }
@@ -334,24 +382,22 @@ public class CinemaApplication {
         System.out.print("Language: ");
         String language = scanner.nextLine().trim();
         
-        Movie movie = movieService.createMovie(title, genre, duration, director, language);
+        Movie movie = movieService().createMovie(title, genre, duration, director, language);
         ConsoleUI.displaySuccess("Movie added successfully! ID: " + movie.getId());
         ConsoleUI.waitForEnter(scanner);
     }
     
     private void viewAllMovies() {
         System.out.println("\n--- All Movies ---");
-        List<Movie> movies = movieService.getAllMovies();
-        ConsoleUI.displayMovies(movies);
-        ConsoleUI.waitForEnter(scanner);
+        showPages(movieService()::getMoviesAfter, ConsoleUI::displayMovies, movieService().getMovieCount());
     }
     
     private void searchMovie() {
         System.out.println("\n--- Search Movie ---");
-        System.out.print("Enter title to search: ");
+        System.out.print("Enter words to search (title, director, description): ");
         String query = scanner.nextLine().trim();
         
-        List<Movie> movies = movieService.searchMovies(query);
+        List<Movie> movies = movieService().searchMovies(query);
         ConsoleUI.displayMovies(movies);
         ConsoleUI.waitForEnter(scanner);
     }
@@ -361,7 +407,7 @@ public class CinemaApplication {
         System.out.print("Enter Movie ID: ");
         long id = readLong();
         
-        Movie movie = movieService.getMovieById(id);
+        Movie movie = movieService().getMovieById(id);
         System.out.println("Current: " + movie);
         
         System.out.print("New Title (press Enter to skip): ");
@@ -379,7 +425,7 @@ public class CinemaApplication {
         System.out.print("New Language (press Enter to skip): ");
         String language = scanner.nextLine().trim();
         
-        movieService.updateMovie(
+        movieService().updateMovie(
                 id,
                 title.isEmpty() ? null : title,
                 genre.isEmpty() ? null : genre,
@@ -399,11 +445,11 @@ public class CinemaApplication {
         System.out.print("Enter Movie ID: ");
         long id = readLong();
         
-        Movie movie = movieService.getMovieById(id);
+        Movie movie = movieService().getMovieById(id);
         System.out.println("Movie: " + movie);
         
         if (ConsoleUI.confirm(scanner, "Are you sure you want to delete this movie?")) {
-            movieService.deleteMovie(id);
+            movieService().deleteMovie(id);
             ConsoleUI.displaySuccess("Movie deleted successfully!");
         } else {
             ConsoleUI.displayInfo("Deletion cancelled.");
@@ -419,7 +465,7 @@ public class CinemaApplication {
         System.out.print("Enter new rating (0.0 - 10.0): ");
         double rating = readDouble();
         
-        Movie movie = movieService.updateRating(id, rating);
+        Movie movie = movieService().updateRating(id, rating);
         ConsoleUI.displaySuccess("Rating updated to " + rating + " for: " + movie.getTitle());
         ConsoleUI.waitForEnter(scanner);
     }
@@ -438,16 +484,14 @@ public class CinemaApplication {
         System.out.print("Screen Type (Standard/IMAX/3D/4DX): ");
         String screenType = scanner.nextLine().trim();
         
-        Theater theater = theaterService.createTheater(name, capacity, screenType);
+        Theater theater = theaterService().createTheater(name, capacity, screenType);
         ConsoleUI.displaySuccess("Theater added successfully! ID: " + theater.getId());
         ConsoleUI.waitForEnter(scanner);
     }
     
     private void viewAllTheaters() {
         System.out.println("\n--- All Theaters ---");
-        List<Theater> theaters = theaterService.getAllTheaters();
-        ConsoleUI.displayTheaters(theaters);
-        ConsoleUI.waitForEnter(scanner);
+        showPages(theaterService()::getTheatersAfter, ConsoleUI::displayTheaters, theaterService().getTheaterCount());
     }
     
     private void searchTheater() {
@@ -455,7 +499,7 @@ public class CinemaApplication {
         System.out.print("Enter name to search: ");
         String query = scanner.nextLine().trim();
         
-        List<Theater> theaters = theaterService.searchTheaters(query);
+        List<Theater> theaters = theaterService().searchTheaters(query);
         ConsoleUI.displayTheaters(theaters);
         ConsoleUI.waitForEnter(scanner);
     }
@@ -465,7 +509,7 @@ public class CinemaApplication {
         System.out.print("Enter Theater ID: ");
         long id = readLong();
         
-        Theater theater = theaterService.getTheaterById(id);
+        Theater theater = theaterService().getTheaterById(id);
         System.out.println("Current: " + theater);
         
         System.out.print("New Name (press Enter to skip): ");
@@ -477,7 +521,7 @@ public class CinemaApplication {
         System.out.print("New Screen Type (press Enter to skip): ");
         String screenType = scanner.nextLine().trim();
         
-        theaterService.updateTheater(
+        theaterService().updateTheater(
                 id,
                 name.isEmpty() ? null : name,
                 capacity == 0 ? null : capacity,
@@ -494,11 +538,11 @@ public class CinemaApplication {
         System.out.print("Enter Theater ID: ");
         long id = readLong();
         
-        Theater theater = theaterService.getTheaterById(id);
+        Theater theater = theaterService().getTheaterById(id);
         System.out.println("Theater: " + theater);
         
         if (ConsoleUI.confirm(scanner, "Are you sure you want to delete this theater?")) {
-            theaterService.deleteTheater(id);
+            theaterService().deleteTheater(id);
             ConsoleUI.displaySuccess("Theater deleted successfully!");
         } else {
             ConsoleUI.displayInfo("Deletion cancelled.");
@@ -514,7 +558,7 @@ public class CinemaApplication {
         System.out.print("Enter Movie ID: ");
         long movieId = readLong();
         
-        theaterService.addMovieToTheater(theaterId, movieId);
+        theaterService().addMovieToTheater(theaterId, movieId);
         ConsoleUI.displaySuccess("Movie assigned to theater successfully!");
         ConsoleUI.waitForEnter(scanner);
     }
@@ -525,15 +569,27 @@ public class CinemaApplication {
         System.out.println("\n" + "=".repeat(80));
         System.out.println("                          SYSTEM STATISTICS");
         System.out.println("=".repeat(80));
-        System.out.println("Total Customers: " + customerService.getCustomerCount());
-        System.out.println("Total Movies:    " + movieService.getMovieCount());
-        System.out.println("Total Theaters:  " + theaterService.getTheaterCount());
+        System.out.println("Total Customers: " + customerService().getCustomerCount());
+        System.out.println("Total Movies:    " + movieService().getMovieCount());
+        System.out.println("Total Theaters:  " + theaterService().getTheaterCount());
         System.out.println("=".repeat(80));
         ConsoleUI.waitForEnter(scanner);
     }
     
     // Utility Methods
     
+    private CustomerService customerService() {
+        return bootstrap.getCustomerService();
+    }
+    
+    private MovieService movieService() {
+        return bootstrap.getMovieService();
+    }
+    
+    private TheaterService theaterService() {
+        return bootstrap.getTheaterService();
+    }
+    
     private int readInt() {
         while (true) {
             try {
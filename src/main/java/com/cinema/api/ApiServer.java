@@ -0,0 +1,87 @@
+package com.cinema.api;
+
+import com.cinema.Bootstrap;
+import com.cinema.service.CustomerService;
+import com.cinema.service.MovieService;
+import com.cinema.service.TheaterService;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP server exposing the services as a JSON API under {@code /api/customers},
+ * {@code /api/movies} and {@code /api/theaters}; see the handlers for the routes.
+ * <p>
+ * Connections are accepted and read by the JDK server's selector thread, and every request is
+ * handled on a virtual thread of its own. Handlers may therefore block on repository locks and
+ * writes without holding a platform thread, so the number of requests in progress is bounded by
+ * memory rather than by a thread pool. Services are obtained on each request, so the server can
+ * start before the repositories have loaded; early requests wait for the data they need.
+ */
+public class ApiServer implements AutoCloseable {
+    
+    private static final Logger logger = Logger.getLogger(ApiServer.class.getName());
+    
+    public static final int DEFAULT_PORT = 8080;
+    /** Connections the operating system queues while the selector thread is busy accepting. */
+    public static final int DEFAULT_BACKLOG = 4096;
+    /** Seconds for which {@link #close} lets requests in progress finish. */
+    private static final int STOP_DELAY_SECONDS = 2;
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    
+    /**
+     * Creates a server for the services of a bootstrap, listening on the given address.
+     * @param address address to bind; port 0 picks a free port
+     */
+    public ApiServer(InetSocketAddress address, Bootstrap bootstrap) throws IOException {
+        this(address, bootstrap::getCustomerService, bootstrap::getMovieService, bootstrap::getTheaterService);
+    }
+    
+    /**
+     * Creates a server for the given services, listening on the given address.
+     * @param address address to bind; port 0 picks a free port
+     */
+    public ApiServer(InetSocketAddress address, Supplier<CustomerService> customerService,
+                     Supplier<MovieService> movieService, Supplier<TheaterService> theaterService)
+            throws IOException {
+        this.server = HttpServer.create(address, DEFAULT_BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/customers", new CustomerHandler(customerService));
+        server.createContext("/api/movies", new MovieHandler(movieService));
+        server.createContext("/api/theaters", new TheaterHandler(theaterService));
+    }
+    
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+        logger.log(Level.INFO, "API server listening on port {0}", getPort());
+    }
+    
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Stops accepting requests and waits briefly for those in progress to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.close();
+        logger.log(Level.INFO, "API server stopped");
+    }
+}
@@ -0,0 +1,119 @@
+package com.cinema.api;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.ValidationException;
+import com.cinema.service.CustomerFields;
+import com.cinema.service.CustomerService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes for customers, below {@code /api/customers}:
+ * <ul>
+ *   <li>{@code GET /} - a page of customers in ID order after the {@code after} ID, or the
+ *   customers matching the {@code q} parameter</li>
+ *   <li>{@code POST /} - creates a customer</li>
+ *   <li>{@code GET /count}, {@code GET /top} - the number of customers, and those with the most
+ *   loyalty points</li>
+ *   <li>{@code POST} and {@code PUT /batch} - creates or updates the customers of a JSON array,
+ *   reporting each one's status; {@code POST /batch/delete} deletes those of an array of IDs</li>
+ *   <li>{@code GET}, {@code PUT} and {@code DELETE /{id}} - reads, updates or deletes a customer</li>
+ *   <li>{@code POST /{id}/loyalty-points} - adds the {@code points} of the body</li>
+ * </ul>
+ */
+class CustomerHandler extends ResourceHandler {
+    
+    private static final int DEFAULT_TOP_SIZE = 10;
+    
+    private final Supplier<CustomerService> customerService;
+    
+    CustomerHandler(Supplier<CustomerService> customerService) {
+        this.customerService = customerService;
+    }
+    
+    @Override
+    protected Response route(Request request) throws CinemaException, IOException {
+        CustomerService service = customerService.get();
+        String method = request.getMethod();
+        
+        if (request.matches()) {
+            switch (method) {
+                case "GET":
+                    String query = request.param("q");
+                    if (query != null) {
+                        return Response.ok(service.searchCustomers(query, request.limit(DEFAULT_PAGE_SIZE)));
+                    }
+                    return Response.ok(service.getCustomersAfter(request.longParam("after"),
+                            request.limit(DEFAULT_PAGE_SIZE)));
+                case "POST":
+                    Body body = request.body();
+                    return Response.created(service.createCustomer(body.text("firstName"), body.text("lastName"),
+                            body.text("email"), body.text("phoneNumber")));
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches("count")) {
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(Map.of("count", service.getCustomerCount()));
+        }
+        if (request.matches("top")) {
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(service.getTopCustomers(request.limit(DEFAULT_TOP_SIZE)));
+        }
+        if (request.matches("batch")) {
+            switch (method) {
+                case "POST":
+                    return Response.batch(service.createCustomers(request.bodyList(CustomerHandler::fields)), 201);
+                case "PUT":
+                    return Response.batch(service.updateCustomers(request.bodyList(CustomerHandler::fields)), 200);
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches("batch", "delete")) {
+            if (!method.equals("POST")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.batch(service.deleteCustomers(request.bodyIds()), 200);
+        }
+        if (request.matches((String) null)) {
+            Long id = request.id(0);
+            switch (method) {
+                case "GET":
+                    return Response.ok(service.getCustomerById(id));
+                case "PUT":
+                    Body body = request.body();
+                    return Response.ok(service.updateCustomer(id, body.text("firstName"), body.text("lastName"),
+                            body.text("email"), body.text("phoneNumber")));
+                case "DELETE":
+                    service.deleteCustomer(id);
+                    return Response.noContent();
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches(null, "loyalty-points")) {
+            if (!method.equals("POST")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(service.addLoyaltyPoints(request.id(0), request.body().requiredInteger("points")));
+        }
+        throw notFound(request);
+    }
+    
+    /**
+     * Reads an item of a batch: the fields of a create, or those of an update with the {@code id} and
+     * optionally the {@code version} last read.
+     */
+    private static CustomerFields fields(Body body) throws ValidationException {
+        return new CustomerFields(body.longInteger("id"), body.longInteger("version"), body.text("firstName"),
+                body.text("lastName"), body.text("email"), body.text("phoneNumber"));
+    }
+}
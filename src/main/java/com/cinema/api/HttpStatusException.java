@@ -0,0 +1,20 @@
+package com.cinema.api;
+
+import com.cinema.exception.CinemaException;
+
+/**
+ * Exception thrown for a request that cannot be routed, answered with the given HTTP status.
+ */
+class HttpStatusException extends CinemaException {
+    
+    private final int status;
+    
+    HttpStatusException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    int getStatus() {
+        return status;
+    }
+}
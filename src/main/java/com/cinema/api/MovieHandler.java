@@ -0,0 +1,132 @@
+package com.cinema.api;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.ValidationException;
+import com.cinema.service.MovieFields;
+import com.cinema.service.MovieService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes for movies, below {@code /api/movies}:
+ * <ul>
+ *   <li>{@code GET /} - a page of movies in ID order after the {@code after} ID, the movies matching
+ *   the {@code q} parameter best match first, or those of the {@code genre} or {@code director}</li>
+ *   <li>{@code POST /} - creates a movie</li>
+ *   <li>{@code GET /count}, {@code GET /top-rated} - the number of movies, and the highest rated</li>
+ *   <li>{@code POST} and {@code PUT /batch} - creates or updates the movies of a JSON array,
+ *   reporting each one's status; {@code POST /batch/delete} deletes those of an array of IDs</li>
+ *   <li>{@code GET}, {@code PUT} and {@code DELETE /{id}} - reads, updates or deletes a movie</li>
+ *   <li>{@code PUT /{id}/rating} - sets the {@code rating} of the body</li>
+ * </ul>
+ */
+class MovieHandler extends ResourceHandler {
+    
+    private static final int DEFAULT_TOP_SIZE = 10;
+    
+    private final Supplier<MovieService> movieService;
+    
+    MovieHandler(Supplier<MovieService> movieService) {
+        this.movieService = movieService;
+    }
+    
+    @Override
+    protected Response route(Request request) throws CinemaException, IOException {
+        MovieService service = movieService.get();
+        String method = request.getMethod();
+        
+        if (request.matches()) {
+            switch (method) {
+                case "GET":
+                    return Response.ok(list(service, request));
+                case "POST":
+                    Body body = request.body();
+                    return Response.created(service.createMovie(body.text("title"), body.text("genre"),
+                            body.requiredInteger("durationMinutes"), body.text("director"), body.text("language"),
+                            body.number("rating"), body.text("description")));
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches("count")) {
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(Map.of("count", service.getMovieCount()));
+        }
+        if (request.matches("top-rated")) {
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(service.getTopRatedMovies(request.limit(DEFAULT_TOP_SIZE)));
+        }
+        if (request.matches("batch")) {
+            switch (method) {
+                case "POST":
+                    return Response.batch(service.createMovies(request.bodyList(MovieHandler::fields)), 201);
+                case "PUT":
+                    return Response.batch(service.updateMovies(request.bodyList(MovieHandler::fields)), 200);
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches("batch", "delete")) {
+            if (!method.equals("POST")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.batch(service.deleteMovies(request.bodyIds()), 200);
+        }
+        if (request.matches((String) null)) {
+            Long id = request.id(0);
+            switch (method) {
+                case "GET":
+                    return Response.ok(service.getMovieById(id));
+                case "PUT":
+                    Body body = request.body();
+                    return Response.ok(service.updateMovie(id, body.text("title"), body.text("genre"),
+                            body.integer("durationMinutes"), body.text("director"), body.text("language"),
+                            body.number("rating"), body.text("description")));
+                case "DELETE":
+                    service.deleteMovie(id);
+                    return Response.noContent();
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches(null, "rating")) {
+            if (!method.equals("PUT")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(service.updateRating(request.id(0), request.body().requiredNumber("rating")));
+        }
+        throw notFound(request);
+    }
+    
+    private static Object list(MovieService service, Request request) throws CinemaException {
+        String query = request.param("q");
+        if (query != null) {
+            return service.searchMovies(query, request.limit(DEFAULT_PAGE_SIZE));
+        }
+        String genre = request.param("genre");
+        if (genre != null) {
+            return service.getMoviesByGenre(genre);
+        }
+        String director = request.param("director");
+        if (director != null) {
+            return service.getMoviesByDirector(director);
+        }
+        return service.getMoviesAfter(request.longParam("after"), request.limit(DEFAULT_PAGE_SIZE));
+    }
+    
+    /**
+     * Reads an item of a batch: the fields of a create, or those of an update with the {@code id} and
+     * optionally the {@code version} last read.
+     */
+    private static MovieFields fields(Body body) throws ValidationException {
+        return new MovieFields(body.longInteger("id"), body.longInteger("version"), body.text("title"),
+                body.text("genre"), body.integer("durationMinutes"), body.text("director"), body.text("language"),
+                body.number("rating"), body.text("description"));
+    }
+}
@@ -0,0 +1,461 @@
+package com.cinema.api;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.DuplicateKeyException;
+import com.cinema.exception.EntityNotFoundException;
+import com.cinema.exception.OptimisticLockException;
+import com.cinema.exception.ValidationException;
+import com.cinema.repository.BatchResult;
+import com.cinema.utils.JsonUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Base handler of the requests for one kind of entity, mounted at a context of the {@link ApiServer}.
+ * Subclasses route a parsed {@link Request} to the service and return the {@link Response}; this
+ * class writes it as JSON and turns the exceptions of the services into error responses:
+ * unknown entities are answered with 404, failed validation with 400, and duplicate keys and
+ * concurrent modifications with 409. Bodies are written without indentation by the
+ * {@link JsonUtil} mapper.
+ */
+abstract class ResourceHandler implements HttpHandler {
+    
+    private static final Logger logger = Logger.getLogger(ResourceHandler.class.getName());
+    
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    /** Items accepted in one batch request; larger imports are sent in several batches. */
+    static final int MAX_BATCH_SIZE = 10_000;
+    
+    private static final ObjectWriter writer = JsonUtil.getObjectMapper().writer()
+            .without(SerializationFeature.INDENT_OUTPUT);
+    
+    /**
+     * Answers a request below the context of the handler.
+     */
+    protected abstract Response route(Request request) throws CinemaException, IOException;
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            Response response;
+            try {
+                Request request = new Request(exchange);
+                if (!request.isBelowContext()) {
+                    throw notFound(request);
+                }
+                response = route(request);
+            } catch (JsonProcessingException e) {
+                response = Response.error(400, "Malformed JSON: " + e.getOriginalMessage());
+            } catch (CinemaException | RuntimeException e) {
+                int status = statusOf(e);
+                if (status == 500) {
+                    logger.log(Level.SEVERE, "Failed to handle " + exchange.getRequestMethod() + " "
+                            + exchange.getRequestURI(), e);
+                }
+                response = Response.error(status, status == 500 ? "Internal server error" : e.getMessage());
+            }
+            send(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Returns the status answering an exception thrown while handling a request.
+     */
+    static int statusOf(Exception e) {
+        if (e instanceof HttpStatusException) {
+            return ((HttpStatusException) e).getStatus();
+        }
+        if (e instanceof EntityNotFoundException) {
+            return 404;
+        }
+        if (e instanceof DuplicateKeyException || e instanceof OptimisticLockException) {
+            return 409;
+        }
+        if (e instanceof ValidationException || e instanceof IllegalArgumentException) {
+            return 400;
+        }
+        return 500;
+    }
+    
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.body == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = writer.writeValueAsBytes(response.body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Returns the exception for a path that exists but does not support the request's method.
+     */
+    static HttpStatusException methodNotAllowed(Request request) {
+        return new HttpStatusException(405, "Method " + request.getMethod() + " not allowed on " + request.getUri());
+    }
+    
+    /**
+     * Returns the exception for a path that does not exist.
+     */
+    static HttpStatusException notFound(Request request) {
+        return new HttpStatusException(404, "No resource at " + request.getUri());
+    }
+    
+    /**
+     * Status and JSON body of an answer.
+     */
+    static final class Response {
+        
+        final int status;
+        final Object body;
+        
+        private Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+        
+        static Response ok(Object body) {
+            return new Response(200, body);
+        }
+        
+        static Response created(Object body) {
+            return new Response(201, body);
+        }
+        
+        static Response noContent() {
+            return new Response(204, null);
+        }
+        
+        /**
+         * Reports a bulk operation item by item: each with the status it would have been answered
+         * with on its own, and either its result or its error.
+         * @param status status of an applied item
+         */
+        static Response batch(BatchResult<?> result, int status) {
+            List<Map<String, Object>> items = new ArrayList<>(result.size());
+            for (int i = 0; i < result.size(); i++) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("index", i);
+                CinemaException error = result.getError(i);
+                if (error == null) {
+                    item.put("status", status);
+                    item.put("result", result.getResult(i));
+                } else {
+                    item.put("status", statusOf(error));
+                    item.put("error", error.getMessage());
+                }
+                items.add(item);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("succeeded", result.getSucceededCount());
+            body.put("failed", result.getFailedCount());
+            body.put("items", items);
+            return new Response(200, body);
+        }
+        
+        static Response error(int status, String message) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("status", status);
+            body.put("error", message);
+            return new Response(status, body);
+        }
+    }
+    
+    /**
+     * A request with its path below the handler's context split into decoded segments, and its
+     * query parameters. The body is parsed on first use.
+     */
+    static final class Request {
+        
+        private final HttpExchange exchange;
+        private final List<String> path = new ArrayList<>();
+        private final Map<String, String> params = new HashMap<>();
+        private final boolean belowContext;
+        private Body body;
+        
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            String rawPath = exchange.getRequestURI().getRawPath();
+            String rest = rawPath.substring(Math.min(exchange.getHttpContext().getPath().length(), rawPath.length()));
+            this.belowContext = rest.isEmpty() || rest.startsWith("/");
+            for (String segment : rest.split("/")) {
+                if (!segment.isEmpty()) {
+                    path.add(decode(segment));
+                }
+            }
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int separator = pair.indexOf('=');
+                    if (separator > 0) {
+                        params.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+                    } else if (!pair.isEmpty()) {
+                        params.put(decode(pair), "");
+                    }
+                }
+            }
+        }
+        
+        private static String decode(String value) {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        }
+        
+        String getMethod() {
+            return exchange.getRequestMethod();
+        }
+        
+        String getUri() {
+            return exchange.getRequestURI().getPath();
+        }
+        
+        /**
+         * Returns whether the path is the handler's context or below it. Contexts match paths by
+         * prefix, so {@code /api/movies} also receives {@code /api/moviesX}, which is not.
+         */
+        boolean isBelowContext() {
+            return belowContext;
+        }
+        
+        /**
+         * Returns whether the path has the given segments, where null matches any segment.
+         */
+        boolean matches(String... segments) {
+            if (path.size() != segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i] != null && !segments[i].equals(path.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Parses the path segment at the index as an entity ID.
+         */
+        Long id(int index) throws ValidationException {
+            try {
+                return Long.valueOf(path.get(index));
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Invalid ID: " + path.get(index));
+            }
+        }
+        
+        String param(String name) {
+            return params.get(name);
+        }
+        
+        Long longParam(String name) throws ValidationException {
+            String value = params.get(name);
+            try {
+                return value == null || value.isEmpty() ? null : Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Parameter " + name + " must be a whole number");
+            }
+        }
+        
+        int intParam(String name, int defaultValue) throws ValidationException {
+            Long value = longParam(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new ValidationException("Parameter " + name + " is out of range");
+            }
+            return value.intValue();
+        }
+        
+        /**
+         * Returns the {@code limit} parameter, which must lie between 1 and {@link #MAX_PAGE_SIZE}.
+         */
+        int limit(int defaultValue) throws ValidationException {
+            int limit = intParam("limit", defaultValue);
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new ValidationException("Parameter limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            return limit;
+        }
+        
+        /**
+         * Returns the IDs of a body that must be a JSON array of at most {@link #MAX_BATCH_SIZE} whole
+         * numbers or nulls.
+         */
+        List<Long> bodyIds() throws IOException, ValidationException {
+            JsonNode node = bodyArray();
+            List<Long> ids = new ArrayList<>(node.size());
+            for (int i = 0; i < node.size(); i++) {
+                JsonNode element = node.get(i);
+                if (element.isNull()) {
+                    ids.add(null);
+                } else if (element.isIntegralNumber() && element.canConvertToLong()) {
+                    ids.add(element.longValue());
+                } else {
+                    throw new ValidationException("Item " + i + " must be a whole number ID");
+                }
+            }
+            return ids;
+        }
+        
+        /**
+         * Returns the items of a body that must be a JSON array of at most {@link #MAX_BATCH_SIZE}
+         * objects, each read from its fields as the body of a single-item request would be.
+         */
+        <E> List<E> bodyList(ItemReader<E> reader) throws IOException, ValidationException {
+            JsonNode node = bodyArray();
+            List<E> items = new ArrayList<>(node.size());
+            for (int i = 0; i < node.size(); i++) {
+                JsonNode element = node.get(i);
+                if (!element.isObject()) {
+                    throw new ValidationException("Item " + i + " must be a JSON object");
+                }
+                try {
+                    items.add(reader.read(new Body(element)));
+                } catch (ValidationException e) {
+                    throw new ValidationException("Item " + i + ": " + e.getMessage());
+                }
+            }
+            return items;
+        }
+        
+        private JsonNode bodyArray() throws IOException, ValidationException {
+            JsonNode node;
+            try (InputStream in = exchange.getRequestBody()) {
+                node = JsonUtil.getObjectMapper().readTree(in);
+            }
+            if (node == null || !node.isArray()) {
+                throw new ValidationException("Request body must be a JSON array");
+            }
+            if (node.size() > MAX_BATCH_SIZE) {
+                throw new ValidationException("A batch holds at most " + MAX_BATCH_SIZE + " items");
+            }
+            return node;
+        }
+        
+        /**
+         * Returns the body, which must be a JSON object if present.
+         */
+        Body body() throws IOException, ValidationException {
+            if (body == null) {
+                JsonNode node;
+                try (InputStream in = exchange.getRequestBody()) {
+                    node = JsonUtil.getObjectMapper().readTree(in);
+                }
+                if (node != null && !node.isMissingNode() && !node.isObject()) {
+                    throw new ValidationException("Request body must be a JSON object");
+                }
+                body = new Body(node != null && node.isObject() ? node : JsonUtil.getObjectMapper().createObjectNode());
+            }
+            return body;
+        }
+    }
+    
+    /**
+     * Reads one item of a batch request from its fields.
+     */
+    interface ItemReader<E> {
+        E read(Body body) throws ValidationException;
+    }
+    
+    /**
+     * Fields of a JSON object body; absent and null fields are returned as null.
+     */
+    static final class Body {
+        
+        private final JsonNode node;
+        
+        Body(JsonNode node) {
+            this.node = node;
+        }
+        
+        String text(String field) throws ValidationException {
+            JsonNode value = field(field);
+            if (value != null && !value.isTextual()) {
+                throw new ValidationException("Field " + field + " must be a string");
+            }
+            return value == null ? null : value.textValue();
+        }
+        
+        Integer integer(String field) throws ValidationException {
+            JsonNode value = field(field);
+            if (value != null && (!value.isIntegralNumber() || !value.canConvertToInt())) {
+                throw new ValidationException("Field " + field + " must be a whole number");
+            }
+            return value == null ? null : value.intValue();
+        }
+        
+        Long longInteger(String field) throws ValidationException {
+            JsonNode value = field(field);
+            if (value != null && (!value.isIntegralNumber() || !value.canConvertToLong())) {
+                throw new ValidationException("Field " + field + " must be a whole number");
+            }
+            return value == null ? null : value.longValue();
+        }
+        
+        Double number(String field) throws ValidationException {
+            JsonNode value = field(field);
+            if (value != null && !value.isNumber()) {
+                throw new ValidationException("Field " + field + " must be a number");
+            }
+            return value == null ? null : value.doubleValue();
+        }
+        
+        Boolean bool(String field) throws ValidationException {
+            JsonNode value = field(field);
+            if (value != null && !value.isBoolean()) {
+                throw new ValidationException("Field " + field + " must be true or false");
+            }
+            return value == null ? null : value.booleanValue();
+        }
+        
+        /**
+         * Returns a whole number field that must be present.
+         */
+        int requiredInteger(String field) throws ValidationException {
+            Integer value = integer(field);
+            if (value == null) {
+                throw new ValidationException("Field " + field + " is required");
+            }
+            return value;
+        }
+        
+        /**
+         * Returns a number field that must be present.
+         */
+        double requiredNumber(String field) throws ValidationException {
+            Double value = number(field);
+            if (value == null) {
+                throw new ValidationException("Field " + field + " is required");
+            }
+            return value;
+        }
+        
+        private JsonNode field(String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cinema.api;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.ValidationException;
+import com.cinema.service.TheaterFields;
+import com.cinema.service.TheaterService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Routes for theaters, below {@code /api/theaters}:
+ * <ul>
+ *   <li>{@code GET /} - a page of theaters in ID order after the {@code after} ID, or the theaters
+ *   whose name matches the {@code q} parameter or with the {@code screenType}</li>
+ *   <li>{@code POST /} - creates a theater</li>
+ *   <li>{@code GET /count} - the number of theaters</li>
+ *   <li>{@code POST} and {@code PUT /batch} - creates or updates the theaters of a JSON array,
+ *   reporting each one's status; {@code POST /batch/delete} deletes those of an array of IDs</li>
+ *   <li>{@code GET}, {@code PUT} and {@code DELETE /{id}} - reads, updates or deletes a theater</li>
+ *   <li>{@code PUT} and {@code DELETE /{id}/movies/{movieId}} - schedules or unschedules a movie</li>
+ * </ul>
+ */
+class TheaterHandler extends ResourceHandler {
+    
+    private final Supplier<TheaterService> theaterService;
+    
+    TheaterHandler(Supplier<TheaterService> theaterService) {
+        this.theaterService = theaterService;
+    }
+    
+    @Override
+    protected Response route(Request request) throws CinemaException, IOException {
+        TheaterService service = theaterService.get();
+        String method = request.getMethod();
+        
+        if (request.matches()) {
+            switch (method) {
+                case "GET":
+                    if (request.param("q") != null) {
+                        return Response.ok(service.searchTheaters(request.param("q")));
+                    }
+                    if (request.param("screenType") != null) {
+                        return Response.ok(service.getTheatersByScreenType(request.param("screenType")));
+                    }
+                    return Response.ok(service.getTheatersAfter(request.longParam("after"),
+                            request.limit(DEFAULT_PAGE_SIZE)));
+                case "POST":
+                    Body body = request.body();
+                    return Response.created(service.createTheater(body.text("name"),
+                            body.requiredInteger("capacity"), body.text("screenType")));
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches("count")) {
+            if (!method.equals("GET")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.ok(Map.of("count", service.getTheaterCount()));
+        }
+        if (request.matches("batch")) {
+            switch (method) {
+                case "POST":
+                    return Response.batch(service.createTheaters(request.bodyList(TheaterHandler::fields)), 201);
+                case "PUT":
+                    return Response.batch(service.updateTheaters(request.bodyList(TheaterHandler::fields)), 200);
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches("batch", "delete")) {
+            if (!method.equals("POST")) {
+                throw methodNotAllowed(request);
+            }
+            return Response.batch(service.deleteTheaters(request.bodyIds()), 200);
+        }
+        if (request.matches((String) null)) {
+            Long id = request.id(0);
+            switch (method) {
+                case "GET":
+                    return Response.ok(service.getTheaterById(id));
+                case "PUT":
+                    Body body = request.body();
+                    return Response.ok(service.updateTheater(id, body.text("name"), body.integer("capacity"),
+                            body.text("screenType"), body.bool("hasWheelchairAccess")));
+                case "DELETE":
+                    service.deleteTheater(id);
+                    return Response.noContent();
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        if (request.matches(null, "movies", null)) {
+            switch (method) {
+                case "PUT":
+                    return Response.ok(service.addMovieToTheater(request.id(0), request.id(2)));
+                case "DELETE":
+                    return Response.ok(service.removeMovieFromTheater(request.id(0), request.id(2)));
+                default:
+                    throw methodNotAllowed(request);
+            }
+        }
+        throw notFound(request);
+    }
+    
+    /**
+     * Reads an item of a batch: the fields of a create, or those of an update with the {@code id} and
+     * optionally the {@code version} last read.
+     */
+    private static TheaterFields fields(Body body) throws ValidationException {
+        return new TheaterFields(body.longInteger("id"), body.longInteger("version"), body.text("name"),
+                body.integer("capacity"), body.text("screenType"), body.bool("hasWheelchairAccess"));
+    }
+}
@@ -0,0 +1,33 @@
+package com.cinema.exception;
+
+/**
+ * Exception thrown when a mutation would give two entities the same value for a unique key.
+ */
+public class DuplicateKeyException extends ValidationException {
+    
+    private final String keyName;
+    private final Object key;
+    private final Long existingId;
+    
+    public DuplicateKeyException(String keyName, Object key, Long existingId) {
+        super(String.format("Duplicate %s '%s' (already used by ID %d)", keyName, key, existingId));
+        this.keyName = keyName;
+        this.key = key;
+        this.existingId = existingId;
+    }
+    
+    public String getKeyName() {
+        return keyName;
+    }
+    
+    public Object getKey() {
+        return key;
+    }
+    
+    /**
+     * ID of the entity that already holds the key.
+     */
+    public Long getExistingId() {
+        return existingId;
+    }
+}
@@ -0,0 +1,26 @@
+package com.cinema.exception;
+
+/**
+ * Exception thrown when an entity is updated from a stale version, i.e. another update was
+ * stored since the entity was read.
+ */
+public class OptimisticLockException extends CinemaException {
+    
+    private final long expectedVersion;
+    private final long actualVersion;
+    
+    public OptimisticLockException(String entityType, Long id, long expectedVersion, long actualVersion) {
+        super(String.format("%s with ID %d was modified concurrently (expected version %d, found %d)",
+                entityType, id, expectedVersion, actualVersion));
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+    
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+    
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
@@ -18,6 +18,9 @@ public abstract class BaseEntity {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime updatedAt;
     
+    /** Incremented by the repository on every update; used for optimistic concurrency control. */
+    private long version;
+    
     protected BaseEntity() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
@@ -53,6 +56,14 @@ public abstract class BaseEntity {
         this.updatedAt = updatedAt;
     }
     
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     /**
      * Updates the updatedAt timestamp to current time.
      */
@@ -66,6 +77,22 @@ public abstract class BaseEntity {
      */
     public abstract void validate() throws com.cinema.exception.ValidationException;
     
+    /**
+     * Creates a copy of this entity that can be modified without affecting the original.
+     */
+    public abstract BaseEntity copy();
+    
+    /**
+     * Copies the fields of this class into a copy created by a subclass.
+     */
+    protected <E extends BaseEntity> E copyBaseFieldsTo(E copy) {
+        copy.setId(id);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        copy.setVersion(version);
+        return copy;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
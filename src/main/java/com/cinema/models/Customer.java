@@ -2,6 +2,7 @@ package com.cinema.models;
 
 import com.cinema.exception.ValidationException;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
@@ -53,9 +54,17 @@ public class Customer extends BaseEntity {
         }
     }
     
+    @Override
+    public Customer copy() {
+        Customer copy = copyBaseFieldsTo(new Customer(null, firstName, lastName, email, phoneNumber));
+        copy.loyaltyPoints = loyaltyPoints;
+        return copy;
+    }
+    
     /**
      * Gets the full name of the customer.
      */
+    @JsonIgnore
     public String getFullName() {
         return firstName + " " + lastName;
     }
@@ -2,6 +2,7 @@ package com.cinema.models;
 
 import com.cinema.exception.ValidationException;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
@@ -59,9 +60,18 @@ public class Movie extends BaseEntity {
         }
     }
     
+    @Override
+    public Movie copy() {
+        Movie copy = copyBaseFieldsTo(new Movie(null, title, genre, durationMinutes, director, language));
+        copy.rating = rating;
+        copy.description = description;
+        return copy;
+    }
+    
     /**
      * Gets formatted duration as hours and minutes.
      */
+    @JsonIgnore
     public String getFormattedDuration() {
         int hours = durationMinutes / 60;
         int minutes = durationMinutes % 60;
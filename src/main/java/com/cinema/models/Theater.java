@@ -55,6 +55,14 @@ public class Theater extends BaseEntity {
         }
     }
     
+    @Override
+    public Theater copy() {
+        Theater copy = copyBaseFieldsTo(new Theater(null, name, capacity, screenType));
+        copy.hasWheelchairAccess = hasWheelchairAccess;
+        copy.currentMovieIds = new ArrayList<>(currentMovieIds);
+        return copy;
+    }
+    
     /**
      * Adds a movie to this theater's schedule.
      */
@@ -74,6 +82,13 @@ public class Theater extends BaseEntity {
         }
     }
     
+    /**
+     * Checks whether a movie is on this theater's schedule, without copying the schedule.
+     */
+    public boolean isShowing(Long movieId) {
+        return currentMovieIds.contains(movieId);
+    }
+    
     /**
      * Checks if theater is available (has capacity).
      */
@@ -0,0 +1,107 @@
+package com.cinema.repository;
+
+import com.cinema.exception.CinemaException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of a bulk operation: for each item of its input, in order, either the result or the
+ * exception that rejected the item. A rejected item does not prevent the others from being applied.
+ * @param <R> Result type of an item
+ */
+public final class BatchResult<R> {
+    
+    private final List<R> results;
+    private final Map<Integer, CinemaException> errors;
+    
+    /**
+     * @param items result of each item, ignored where the item was rejected
+     * @param errors exception of each item, null where the item was applied
+     */
+    public BatchResult(List<R> items, CinemaException[] errors) {
+        List<R> applied = new ArrayList<>(items.size());
+        Map<Integer, CinemaException> byIndex = new TreeMap<>();
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                byIndex.put(i, errors[i]);
+                applied.add(null);
+            } else {
+                applied.add(items.get(i));
+            }
+        }
+        this.results = Collections.unmodifiableList(applied);
+        this.errors = Collections.unmodifiableMap(byIndex);
+    }
+    
+    /**
+     * Returns the number of items in the input.
+     */
+    public int size() {
+        return results.size();
+    }
+    
+    /**
+     * Returns whether the item at the index was rejected.
+     */
+    public boolean isFailed(int index) {
+        return errors.containsKey(index);
+    }
+    
+    /**
+     * Returns the result of the item at the index, or null if it was rejected.
+     */
+    public R getResult(int index) {
+        return results.get(index);
+    }
+    
+    /**
+     * Returns the exception that rejected the item at the index, or null if it was applied.
+     */
+    public CinemaException getError(int index) {
+        return errors.get(index);
+    }
+    
+    /**
+     * Returns the results of the applied items, in input order.
+     */
+    public List<R> getSucceeded() {
+        List<R> succeeded = new ArrayList<>(results.size() - errors.size());
+        for (int i = 0; i < results.size(); i++) {
+            if (!errors.containsKey(i)) {
+                succeeded.add(results.get(i));
+            }
+        }
+        return succeeded;
+    }
+    
+    /**
+     * Returns the exceptions of the rejected items by their index in the input, in ascending order.
+     */
+    public Map<Integer, CinemaException> getErrors() {
+        return errors;
+    }
+    
+    public int getSucceededCount() {
+        return results.size() - errors.size();
+    }
+    
+    public int getFailedCount() {
+        return errors.size();
+    }
+    
+    /**
+     * Returns whether every item was applied.
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BatchResult[succeeded=%d, failed=%d]", getSucceededCount(), getFailedCount());
+    }
+}
@@ -0,0 +1,33 @@
+package com.cinema.repository;
+
+/**
+ * Strategy used by {@link JsonRepository} to coordinate concurrent readers and writers.
+ * In every mode writers are serialized and each reader sees a consistent state.
+ */
+public enum ConcurrencyMode {
+    
+    /**
+     * Readers share a read lock and writers take an exclusive write lock, mutating the
+     * entity table in place.
+     */
+    READ_WRITE_LOCK,
+    
+    /**
+     * Readers take no lock: they read the latest published table, which is never modified.
+     * Each writer copies the table, applies its change and publishes the copy. Secondary indexes
+     * are shared with the copy until changed, so an update that keeps an index's keys does not copy
+     * it, but every write copies the slot array and ID map, and saves and deletes copy every index.
+     * A write thus costs time and garbage proportional to the table and its indexes: suited to
+     * read-mostly data only; write-heavy repositories should use {@link #READ_WRITE_LOCK} or
+     * {@link #STRIPED}, and bulk changes should go through the {@code *All} methods, which copy once.
+     */
+    COPY_ON_WRITE,
+    
+    /**
+     * Updates of existing entities lock only a stripe chosen by entity ID, so updates of different
+     * entities run in parallel; saves, deletes and snapshots still take the exclusive lock and see
+     * a consistent state. Writes are always group committed in this mode, so that no disk I/O
+     * happens while a stripe is held. Suited to update-heavy workloads.
+     */
+    STRIPED
+}
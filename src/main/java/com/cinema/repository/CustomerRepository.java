@@ -1,61 +1,136 @@
 package com.cinema.repository;
 
 import com.cinema.models.Customer;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.query.Field;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Repository for Customer entities with additional search capabilities.
+ * Emails are unique ignoring case and surrounding whitespace; saving or updating a customer with
+ * an email that is already in use fails with a {@link com.cinema.exception.DuplicateKeyException}.
+ * Name search is served by a trigram index, typo-tolerant name lookups by a BK-tree index and loyalty
+ * point queries by a sorted index.
  */
 public class CustomerRepository extends JsonRepository<Customer> {
     
+    public static final Field<Customer, String> FIRST_NAME = Field.of("firstName", Customer::getFirstName);
+    public static final Field<Customer, String> LAST_NAME = Field.of("lastName", Customer::getLastName);
+    public static final Field<Customer, String> EMAIL = Field.of("email", Customer::getEmail);
+    public static final Field<Customer, Integer> LOYALTY_POINTS = Field.of("loyaltyPoints", Customer::getLoyaltyPoints);
+    
     private static final String DEFAULT_FILE_PATH = "src/main/resources/customers.json";
+    private static final IndexDefinition<Customer, String> EMAIL_INDEX = IndexDefinition.unique(EMAIL);
+    private static final char NAME_SEPARATOR = '\0';
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    /** First and last name, separated so that no match spans both. */
+    private static final IndexDefinition<Customer, String> NAME_INDEX =
+            IndexDefinition.ngram("name", c -> c.getFirstName() + NAME_SEPARATOR + c.getLastName());
+    /** First name, last name and full name, each normalized. */
+    private static final IndexDefinition<Customer, String> SIMILAR_NAME_INDEX =
+            IndexDefinition.fuzzy("similarName", CustomerRepository::nameKeys);
+    private static final IndexDefinition<Customer, Double> LOYALTY_INDEX = IndexDefinition.sorted(LOYALTY_POINTS);
     
     public CustomerRepository() {
-        super(DEFAULT_FILE_PATH, Customer.class);
+        this(DEFAULT_FILE_PATH);
     }
     
     public CustomerRepository(String filePath) {
-        super(filePath, Customer.class);
+        this(filePath, RepositoryConfig.defaults());
+    }
+    
+    public CustomerRepository(String filePath, RepositoryConfig config) {
+        super(filePath, Customer.class, config, List.of(EMAIL_INDEX, NAME_INDEX, SIMILAR_NAME_INDEX, LOYALTY_INDEX));
     }
     
+    
     /**
      * Finds customers by last name (case-insensitive).
      */
     public List<Customer> findByLastName(String lastName) {
-        return entities.stream()
+        return query(entities -> entities.stream()
                 .filter(c -> c.getLastName().equalsIgnoreCase(lastName))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
     
     /**
-     * Finds a customer by email.
+     * Finds a customer by email, ignoring case and surrounding whitespace.
      */
     public Customer findByEmail(String email) {
-        return entities.stream()
-                .filter(c -> email.equalsIgnoreCase(c.getEmail()))
-                .findFirst()
-                .orElse(null);
+        String key = IndexDefinition.normalize(email);
+        if (key == null) {
+            return null;
+        }
+        return query(entities -> entities.findUnique(EMAIL_INDEX, key));
     }
     
     /**
      * Searches customers by name (first or last name contains the query).
      */
     public List<Customer> searchByName(String query) {
-        String lowerQuery = query.toLowerCase();
-        return entities.stream()
-                .filter(c -> c.getFirstName().toLowerCase().contains(lowerQuery) ||
-                           c.getLastName().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        if (query.indexOf(NAME_SEPARATOR) >= 0) {
+            return List.of();
+        }
+        return query(entities -> entities.search(NAME_INDEX, query));
+    }
+    
+    /**
+     * Finds customers whose first, last or full name is within a few typing errors of the query,
+     * ignoring case: none for queries of up to two characters, one for up to five and two beyond.
+     * Closest names come first.
+     * @param limit maximum number of customers to return
+     */
+    public List<Customer> findBySimilarName(String query, int limit) {
+        String key = normalizeName(query);
+        if (key == null) {
+            return List.of();
+        }
+        int maxDistance = key.length() <= 2 ? 0 : key.length() <= 5 ? 1 : 2;
+        return query(entities -> entities.findSimilar(SIMILAR_NAME_INDEX, key, maxDistance, limit));
+    }
+    
+    private static Set<String> nameKeys(Customer customer) {
+        Set<String> keys = new HashSet<>(4);
+        String first = normalizeName(customer.getFirstName());
+        String last = normalizeName(customer.getLastName());
+        if (first != null) {
+            keys.add(first);
+        }
+        if (last != null) {
+            keys.add(last);
+        }
+        if (first != null && last != null) {
+            keys.add(first + " " + last);
+        }
+        return keys;
+    }
+    
+    /**
+     * Normalizes a name as {@link IndexDefinition#normalize}, with runs of whitespace collapsed.
+     */
+    private static String normalizeName(String name) {
+        String key = IndexDefinition.normalize(name);
+        return key == null ? null : WHITESPACE.matcher(key).replaceAll(" ");
     }
     
     /**
-     * Finds customers with loyalty points greater than or equal to the specified amount.
+     * Finds customers with loyalty points greater than or equal to the specified amount, fewest points first.
      */
     public List<Customer> findByMinLoyaltyPoints(int minPoints) {
-        return entities.stream()
-                .filter(c -> c.getLoyaltyPoints() >= minPoints)
-                .collect(Collectors.toList());
+        return query(entities -> entities.findRange(LOYALTY_INDEX, minPoints, Double.POSITIVE_INFINITY,
+                false, Integer.MAX_VALUE));
+    }
+    
+    /**
+     * Finds the customers with the most loyalty points, most points first.
+     */
+    public List<Customer> findTopByLoyaltyPoints(int limit) {
+        return query(entities -> entities.findRange(LOYALTY_INDEX, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, true, limit));
     }
 }
@@ -0,0 +1,679 @@
+package com.cinema.repository;
+
+import com.cinema.exception.DuplicateKeyException;
+import com.cinema.models.BaseEntity;
+import com.cinema.repository.index.BitmapIndex;
+import com.cinema.repository.index.BkTreeIndex;
+import com.cinema.repository.index.EntityIndex;
+import com.cinema.repository.index.FullTextIndex;
+import com.cinema.repository.index.HashIndex;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.index.MultiHashIndex;
+import com.cinema.repository.index.NGramIndex;
+import com.cinema.repository.index.SortedIndex;
+import com.cinema.utils.LongIntHashMap;
+import com.cinema.utils.RoaringBitmap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory entity storage backing {@link JsonRepository}.
+ * Entities are kept in insertion order in a slot array, with a primitive ID-to-slot index
+ * so that lookups, replacements and removals by ID run in constant time.
+ * Removed entities leave an empty slot which is reclaimed by periodic compaction.
+ * As long as entities are inserted in ascending ID order, which is the case for generated IDs,
+ * the slots are also in ID order, and pages by ID are found by binary search.
+ * Entities can also be inserted deferred, with a loader that decodes them on first access.
+ * <p>
+ * The table maintains the secondary indexes it was created with. They are built from the stored
+ * entities on first use rather than while loading, so that deferred entities stay undecoded until
+ * an index is needed; mutations that must enforce unique keys call {@link #buildIndexes()} first.
+ * <p>
+ * Structural changes (insert, remove, clear) must be externally serialized with every other access.
+ * Replacing an entity publishes it safely, so replacements of different entities may run
+ * concurrently with each other and with reads.
+ * @param <T> Entity type extending BaseEntity
+ */
+public class EntityTable<T extends BaseEntity> {
+    
+    private static final Logger logger = Logger.getLogger(EntityTable.class.getName());
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final int NO_SLOT = -1;
+    private static final int MIN_COMPACTION_SIZE = 64;
+    
+    private Object[] slots;
+    private int end;
+    private int size;
+    private final LongIntHashMap positions;
+    /** Whether every entity was inserted with a higher ID than all before it. */
+    private boolean ordered = true;
+    private long maxId = Long.MIN_VALUE;
+    private final List<EntityIndex<T>> indexes;
+    /** Whether each index is also referenced by a copy of this table, and must be copied before it changes. */
+    private final boolean[] shared;
+    private volatile boolean indexed;
+    
+    public EntityTable() {
+        this(Collections.emptyList());
+    }
+    
+    public EntityTable(List<IndexDefinition<T, ?>> indexDefinitions) {
+        this.slots = new Object[16];
+        this.positions = new LongIntHashMap();
+        this.indexes = new ArrayList<>(indexDefinitions.size());
+        for (IndexDefinition<T, ?> definition : indexDefinitions) {
+            indexes.add(definition.createIndex());
+        }
+        this.shared = new boolean[indexes.size()];
+        this.indexed = indexes.isEmpty();
+    }
+    
+    private EntityTable(EntityTable<T> other) {
+        this.slots = Arrays.copyOf(other.slots, Math.max(other.end + other.end / 4, 16));
+        this.end = other.end;
+        this.size = other.size;
+        this.positions = new LongIntHashMap(other.positions);
+        this.ordered = other.ordered;
+        this.maxId = other.maxId;
+        this.indexes = new ArrayList<>(other.indexes.size());
+        this.shared = new boolean[other.indexes.size()];
+        this.indexed = other.indexed;
+        for (int i = 0; i < other.indexes.size(); i++) {
+            EntityIndex<T> index = other.indexes.get(i);
+            if (indexed) {
+                indexes.add(index);
+                shared[i] = true;
+                other.shared[i] = true;
+            } else {
+                indexes.add(index.getDefinition().createIndex());
+            }
+        }
+    }
+    
+    /**
+     * Creates an independent copy of this table. The stored entities themselves are shared, and so
+     * are the indexes until either table changes them: an index is copied by the first change that
+     * affects it, so an update that keeps the keys of an index does not copy it.
+     */
+    public EntityTable<T> copy() {
+        return new EntityTable<>(this);
+    }
+    
+    /**
+     * Returns the entity with the given ID, or null if absent.
+     */
+    public T get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        int slot = positions.get(id, NO_SLOT);
+        return slot == NO_SLOT ? null : entityAt(slot);
+    }
+    
+    /**
+     * Checks whether an entity with the given ID is stored.
+     */
+    public boolean contains(Long id) {
+        return id != null && positions.containsKey(id);
+    }
+    
+    /**
+     * Appends a new entity. The caller must ensure the ID is not already present.
+     * @throws DuplicateKeyException if the entity's key in a unique index is taken; the table is unchanged
+     */
+    public void insert(T entity) throws DuplicateKeyException {
+        if (indexed) {
+            for (int i = 0; i < indexes.size(); i++) {
+                try {
+                    writableIndex(i).add(entity);
+                } catch (DuplicateKeyException e) {
+                    for (int j = 0; j < i; j++) {
+                        indexes.get(j).remove(entity);
+                    }
+                    throw e;
+                }
+            }
+        }
+        if (end == slots.length) {
+            compactOrGrow();
+        }
+        positions.put(entity.getId(), end);
+        slots[end++] = entity;
+        size++;
+        track(entity.getId());
+    }
+    
+    /**
+     * Appends an entity that is loaded on first access. The caller must ensure the ID is not
+     * already present. The loader runs at most once, even if the entity is accessed concurrently.
+     * Only allowed while the indexes have not been built, i.e. while loading.
+     */
+    public void insertDeferred(long id, Supplier<? extends T> loader) {
+        if (indexed && !indexes.isEmpty()) {
+            throw new IllegalStateException("Cannot defer entities once indexes are built");
+        }
+        if (end == slots.length) {
+            compactOrGrow();
+        }
+        positions.put(id, end);
+        slots[end++] = new Deferred(id, loader);
+        size++;
+        track(id);
+    }
+    
+    /**
+     * Replaces the stored entity that has the same ID, keeping its position.
+     * @return the previously stored entity, or null if no entity had this ID
+     * @throws DuplicateKeyException if the entity's new key in a unique index is taken; the table is unchanged
+     */
+    public T replace(T entity) throws DuplicateKeyException {
+        int slot = positions.get(entity.getId(), NO_SLOT);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        T previous = entityAt(slot);
+        if (indexed) {
+            boolean[] changed = new boolean[indexes.size()];
+            for (int i = 0; i < indexes.size(); i++) {
+                changed[i] = keysChanged(indexes.get(i).getDefinition(), previous, entity);
+                if (!changed[i]) {
+                    continue;
+                }
+                try {
+                    writableIndex(i).update(previous, entity);
+                } catch (DuplicateKeyException e) {
+                    for (int j = 0; j < i; j++) {
+                        if (changed[j]) {
+                            indexes.get(j).update(entity, previous);
+                        }
+                    }
+                    throw e;
+                }
+            }
+        }
+        SLOT.setRelease(slots, slot, entity);
+        return previous;
+    }
+    
+    /**
+     * Removes the entity with the given ID.
+     * @return the removed entity, or null if absent
+     */
+    public T remove(Long id) {
+        if (id == null) {
+            return null;
+        }
+        int slot = positions.remove(id, NO_SLOT);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        T previous = entityAt(slot);
+        slots[slot] = null;
+        size--;
+        if (indexed) {
+            for (int i = 0; i < indexes.size(); i++) {
+                writableIndex(i).remove(previous);
+            }
+        }
+        if (end - size > MIN_COMPACTION_SIZE && end - size > size) {
+            compact();
+        }
+        return previous;
+    }
+    
+    /**
+     * Removes all entities.
+     */
+    public void clear() {
+        Arrays.fill(slots, 0, end, null);
+        positions.clear();
+        end = 0;
+        size = 0;
+        ordered = true;
+        maxId = Long.MIN_VALUE;
+        for (int i = 0; i < indexes.size(); i++) {
+            if (shared[i]) {
+                indexes.set(i, indexes.get(i).getDefinition().createIndex());
+                shared[i] = false;
+            } else {
+                indexes.get(i).clear();
+            }
+        }
+    }
+    
+    /**
+     * Returns the index at the position for a change, first copying it if a copy of this table
+     * shares it.
+     */
+    private EntityIndex<T> writableIndex(int position) {
+        if (shared[position]) {
+            indexes.set(position, indexes.get(position).copy());
+            shared[position] = false;
+        }
+        return indexes.get(position);
+    }
+    
+    private static <T extends BaseEntity> boolean keysChanged(IndexDefinition<T, ?> definition, T previous, T current) {
+        return !definition.keysOf(previous).equals(definition.keysOf(current));
+    }
+    
+    /**
+     * Builds the indexes from the stored entities unless they are built already. Entities whose
+     * unique key is already taken, which only happens with data written before the index existed,
+     * are left out of that index and logged.
+     */
+    public void buildIndexes() {
+        if (indexed) {
+            return;
+        }
+        synchronized (this) {
+            if (indexed) {
+                return;
+            }
+            forEach(entity -> {
+                for (EntityIndex<T> index : indexes) {
+                    try {
+                        index.add(entity);
+                    } catch (DuplicateKeyException e) {
+                        logger.log(Level.WARNING, "Not indexing entity {0}: {1}", new Object[]{entity.getId(), e.getMessage()});
+                    }
+                }
+            });
+            indexed = true;
+        }
+    }
+    
+    /**
+     * Returns the indexes of this table, building them first if necessary.
+     */
+    public List<EntityIndex<T>> getIndexes() {
+        buildIndexes();
+        return Collections.unmodifiableList(indexes);
+    }
+    
+    /**
+     * Finds the entity with the given key in a unique index.
+     * @return the entity, or null if no entity has the key
+     */
+    public <K> T findUnique(IndexDefinition<T, K> definition, K key) {
+        buildIndexes();
+        HashIndex<T, K> index = index(definition, HashIndex.class);
+        T entity = get(index.get(key));
+        // An update of another stripe may have changed the key since the lookup
+        return entity != null && key.equals(definition.keyOf(entity)) ? entity : null;
+    }
+    
+    /**
+     * Finds the entities with the given key in a non-unique hash or bitmap index, in ascending ID order.
+     */
+    public <K> List<T> findAll(IndexDefinition<T, K> definition, K key) {
+        buildIndexes();
+        long[] ids;
+        if (definition.getKind() == IndexDefinition.Kind.BITMAP) {
+            BitmapIndex<T, K> index = index(definition, BitmapIndex.class);
+            ids = index.get(key).toArray();
+        } else {
+            MultiHashIndex<T, K> index = index(definition, MultiHashIndex.class);
+            ids = index.get(key);
+        }
+        List<T> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            T entity = get(id);
+            // An update of another stripe may have changed the key since the lookup
+            if (entity != null && definition.hasKey(entity, key)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the IDs of the entities with the given key in a bitmap index. The bitmap is a copy,
+     * to be combined with others and passed to {@link #resolve}.
+     */
+    public <K> RoaringBitmap bitmap(IndexDefinition<T, K> definition, K key) {
+        buildIndexes();
+        BitmapIndex<T, K> index = index(definition, BitmapIndex.class);
+        return index.get(key);
+    }
+    
+    /**
+     * Counts the entities with the given key in a bitmap index.
+     */
+    public <K> long count(IndexDefinition<T, K> definition, K key) {
+        buildIndexes();
+        BitmapIndex<T, K> index = index(definition, BitmapIndex.class);
+        return index.count(key);
+    }
+    
+    /**
+     * Returns the entities with the given IDs that pass the filter, in ascending ID order. The filter
+     * re-checks the conditions that selected the IDs, as an update of another stripe may have changed
+     * an entity since.
+     */
+    public List<T> resolve(RoaringBitmap ids, Predicate<? super T> filter) {
+        List<T> result = new ArrayList<>();
+        ids.forEach(id -> {
+            T entity = get(id);
+            if (entity != null && filter.test(entity)) {
+                result.add(entity);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Finds the entities whose text in an n-gram index contains the query, ignoring case. Candidates
+     * from the index are verified against their text; queries too short for the index scan all entities.
+     * @return the matching entities, in ascending ID order when the index is used
+     */
+    public List<T> search(IndexDefinition<T, String> definition, String query) {
+        String text = NGramIndex.normalize(query);
+        if (text.length() < NGramIndex.GRAM_LENGTH) {
+            return stream().filter(entity -> contains(definition.keyOf(entity), text)).collect(Collectors.toList());
+        }
+        buildIndexes();
+        NGramIndex<T> index = index(definition, NGramIndex.class);
+        long[] ids = index.candidates(text);
+        List<T> result = new ArrayList<>();
+        for (long id : ids) {
+            T entity = get(id);
+            if (entity != null && contains(definition.keyOf(entity), text)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Finds the entities whose text in a full-text index matches any word of the query, best match
+     * first; see {@link FullTextIndex#search}.
+     * @param limit maximum number of entities to return
+     */
+    public List<T> rank(IndexDefinition<T, String> definition, String query, int limit) {
+        buildIndexes();
+        FullTextIndex<T> index = index(definition, FullTextIndex.class);
+        List<FullTextIndex.Hit> hits = index.search(query, limit);
+        List<T> result = new ArrayList<>(hits.size());
+        for (FullTextIndex.Hit hit : hits) {
+            T entity = get(hit.getId());
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Finds the entities holding a key in a BK-tree index within an edit distance of the query,
+     * closest first and then in key and ID order. Each entity is returned once, for its closest key.
+     * @param query the query, normalized like the keys
+     * @param limit maximum number of entities to return
+     */
+    public List<T> findSimilar(IndexDefinition<T, String> definition, String query, int maxDistance, int limit) {
+        buildIndexes();
+        BkTreeIndex<T> index = index(definition, BkTreeIndex.class);
+        Map<Long, T> result = new LinkedHashMap<>();
+        for (BkTreeIndex.Match match : index.search(query, maxDistance)) {
+            for (long id : match.getIds()) {
+                if (result.size() >= limit) {
+                    return new ArrayList<>(result.values());
+                }
+                T entity = get(id);
+                // An update of another stripe may have changed the key since the lookup
+                if (entity != null && !result.containsKey(id) && definition.hasKey(entity, match.getKey())) {
+                    result.put(id, entity);
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+    
+    /**
+     * Finds the entities whose key in a sorted index lies between {@code from} and {@code to}, both
+     * inclusive, in key order and then ID order.
+     * @param descending whether to return the highest keys first
+     * @param limit maximum number of entities to return
+     */
+    public List<T> findRange(IndexDefinition<T, Double> definition, double from, double to,
+                             boolean descending, int limit) {
+        buildIndexes();
+        SortedIndex<T> index = index(definition, SortedIndex.class);
+        List<T> result = new ArrayList<>(Math.min(limit, 1024));
+        for (SortedIndex.Entry entry : index.range(from, to, descending)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            T entity = get(entry.getId());
+            // Keep only the entry for the entity's current key; an update may have added another one
+            if (entity != null && Objects.equals(definition.keyOf(entity), entry.getKey())) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+    
+    private static boolean contains(String text, String query) {
+        return text != null && text.contains(query);
+    }
+    
+    /**
+     * Returns the index created for a definition of this table.
+     * @throws IllegalArgumentException if the definition was not declared, or is of a different kind
+     */
+    @SuppressWarnings("unchecked")
+    private <I extends EntityIndex<T>> I index(IndexDefinition<T, ?> definition, Class<?> kind) {
+        for (EntityIndex<T> index : indexes) {
+            if (index.getDefinition() == definition && kind.isInstance(index)) {
+                return (I) index;
+            }
+        }
+        throw new IllegalArgumentException("No " + kind.getSimpleName() + " declared for " + definition);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Streams the stored entities in insertion order.
+     */
+    public Stream<T> stream() {
+        Object[] current = slots;
+        return IntStream.range(0, end)
+                .mapToObj(i -> SLOT.getAcquire(current, i))
+                .filter(Objects::nonNull)
+                .map(this::resolve);
+    }
+    
+    /**
+     * Applies the action to every stored entity in insertion order.
+     */
+    public void forEach(Consumer<? super T> action) {
+        for (int i = 0; i < end; i++) {
+            Object entity = SLOT.getAcquire(slots, i);
+            if (entity != null) {
+                action.accept(resolve(entity));
+            }
+        }
+    }
+    
+    /**
+     * Returns a page of the stored entities in insertion order.
+     * @param offset number of entities to skip; they are skipped one by one
+     * @param limit maximum number of entities to return
+     */
+    public List<T> slice(int offset, int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, Math.max(size - offset, 0)));
+        int skipped = 0;
+        for (int i = 0; i < end && result.size() < limit; i++) {
+            Object entity = SLOT.getAcquire(slots, i);
+            if (entity != null && skipped++ >= offset) {
+                result.add(resolve(entity));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the entities with the lowest IDs above {@code afterId}, in ascending ID order. While the
+     * slots are in ID order the page is located by binary search; otherwise all entities are scanned.
+     * @param limit maximum number of entities to return
+     */
+    public List<T> after(long afterId, int limit) {
+        if (!ordered) {
+            // Keep the lowest IDs seen so far, highest first so that it is the one replaced
+            PriorityQueue<T> lowest = new PriorityQueue<>(Comparator.comparing(BaseEntity::getId).reversed());
+            forEach(entity -> {
+                if (entity.getId() > afterId) {
+                    lowest.add(entity);
+                    if (lowest.size() > limit) {
+                        lowest.poll();
+                    }
+                }
+            });
+            List<T> result = new ArrayList<>(lowest);
+            result.sort(Comparator.comparing(BaseEntity::getId));
+            return result;
+        }
+        List<T> result = new ArrayList<>(Math.min(limit, size));
+        for (int i = firstSlotAfter(afterId); i < end && result.size() < limit; i++) {
+            Object entity = SLOT.getAcquire(slots, i);
+            if (entity != null) {
+                result.add(resolve(entity));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Finds the first slot that may hold an ID above {@code afterId}, in slots that are in ID order.
+     */
+    private int firstSlotAfter(long afterId) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            // Probe the first entity at or after mid; empty slots do not affect the order
+            int probe = mid;
+            Object entity = null;
+            while (probe < high && (entity = SLOT.getAcquire(slots, probe)) == null) {
+                probe++;
+            }
+            if (probe == high || idOf(entity) > afterId) {
+                high = mid;
+            } else {
+                low = probe + 1;
+            }
+        }
+        return low;
+    }
+    
+    private void track(long id) {
+        if (id > maxId) {
+            maxId = id;
+        } else {
+            ordered = false;
+        }
+    }
+    
+    /**
+     * Copies the stored entities into a new list in insertion order.
+     */
+    public List<T> toList() {
+        List<T> result = new ArrayList<>(size);
+        forEach(result::add);
+        return result;
+    }
+    
+    private void compactOrGrow() {
+        if (end - size > slots.length / 4) {
+            compact();
+        } else {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+    }
+    
+    /**
+     * Moves live entities to the front of the slot array and re-indexes their positions.
+     */
+    private void compact() {
+        int target = 0;
+        for (int i = 0; i < end; i++) {
+            Object entity = slots[i];
+            if (entity != null) {
+                if (target != i) {
+                    slots[target] = entity;
+                    positions.put(idOf(entity), target);
+                }
+                target++;
+            }
+        }
+        Arrays.fill(slots, target, end, null);
+        end = target;
+    }
+    
+    private T entityAt(int slot) {
+        return resolve(SLOT.getAcquire(slots, slot));
+    }
+    
+    private long idOf(Object entity) {
+        return entity instanceof Deferred ? ((Deferred) entity).id : resolve(entity).getId();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private T resolve(Object entity) {
+        return (T) (entity instanceof Deferred ? ((Deferred) entity).get() : entity);
+    }
+    
+    /**
+     * Slot content for an entity that has not been loaded yet.
+     */
+    private static final class Deferred {
+        final long id;
+        private Supplier<?> loader;
+        private volatile Object value;
+        
+        Deferred(long id, Supplier<?> loader) {
+            this.id = id;
+            this.loader = loader;
+        }
+        
+        Object get() {
+            Object result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = loader.get();
+                        value = result;
+                        loader = null;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -1,58 +1,294 @@
 package com.cinema.repository;
 
 import com.cinema.exception.CinemaException;
+import com.cinema.exception.DuplicateKeyException;
 import com.cinema.exception.EntityNotFoundException;
+import com.cinema.exception.OptimisticLockException;
+import com.cinema.exception.ValidationException;
 import com.cinema.models.BaseEntity;
-import com.cinema.utils.JsonUtil;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.query.Query;
+import com.cinema.repository.query.QueryPlanner;
+import com.cinema.storage.GroupCommitter;
+import com.cinema.storage.Journal;
+import com.cinema.storage.JournalRecord;
+import com.cinema.storage.MappedSnapshot;
+import com.cinema.storage.SnapshotFile;
+import com.cinema.storage.StorageCodec;
+import com.cinema.storage.StorageFormat;
+import com.cinema.utils.CountingInputStream;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * JSON-based repository implementation for persistent storage.
+ * The on-disk encoding is selected by {@link RepositoryConfig#getStorageFormat()}; with
+ * {@link StorageFormat#MAPPED} the data file is memory-mapped and entities are decoded on first access.
+ * The JSON file is replaced atomically and verified by checksum on load (see {@link SnapshotFile}).
+ * In {@link PersistenceMode#JOURNAL} mode mutations are appended to {@code <filePath>.journal}
+ * and the JSON file is only rewritten every {@link RepositoryConfig#getSnapshotInterval()} records.
+ * With group commit enabled, mutations from concurrent callers are written in batches by a
+ * background writer; each caller blocks only until the batch holding its mutation is durable.
+ * <p>
+ * The repository is thread-safe; {@link RepositoryConfig#getConcurrencyMode()} selects how readers
+ * and writers are coordinated. Entities are copied when they are saved or updated, and entities
+ * returned by queries are shared between callers: they must not be modified, but copied with
+ * {@link BaseEntity#copy()} before changes are made and passed to {@link #update}.
  * @param <T> Entity type extending BaseEntity
  */
-public abstract class JsonRepository<T extends BaseEntity> implements Repository<T> {
+public abstract class JsonRepository<T extends BaseEntity> implements Repository<T>, AutoCloseable {
+    
+    private static final int PROGRESS_INTERVAL = 100_000;
+    /** Number of entities {@link #stream()} reads at a time. */
+    private static final int STREAM_PAGE_SIZE = 1024;
+    /** Batch size from which {@link #saveAll} and {@link #updateAll} validate entities in parallel. */
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 256;
     
     protected final Logger logger = Logger.getLogger(getClass().getName());
     protected final String filePath;
     protected final Class<T> entityClass;
+    protected final RepositoryConfig config;
     protected final AtomicLong idGenerator;
-    protected List<T> entities;
+    private final AtomicLong updateConflicts = new AtomicLong();
+    private final AtomicLong modifications = new AtomicLong();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean copyOnWrite;
+    /** Per-entity update locks in striped mode, taken while holding the read lock; otherwise null. */
+    private final ReentrantLock[] stripes;
+    /**
+     * Current entities. Under copy-on-write, a published table is never modified again; each write
+     * modifies a copy, sharing the indexes it does not change.
+     */
+    private volatile EntityTable<T> table;
+    private final List<IndexDefinition<T, ?>> indexDefinitions;
+    private final SnapshotFile snapshotFile;
+    private final Journal<T> journal;
+    private final GroupCommitter<JournalRecord<T>> committer;
+    private int journalRecords;
+    private long loadedMaxId;
     
     protected JsonRepository(String filePath, Class<T> entityClass) {
+        this(filePath, entityClass, RepositoryConfig.defaults());
+    }
+    
+    protected JsonRepository(String filePath, Class<T> entityClass, RepositoryConfig config) {
+        this(filePath, entityClass, config, Collections.emptyList());
+    }
+    
+    /**
+     * @param indexDefinitions secondary indexes maintained over the entities, see {@link EntityTable#findUnique}
+     */
+    protected JsonRepository(String filePath, Class<T> entityClass, RepositoryConfig config,
+                             List<IndexDefinition<T, ?>> indexDefinitions) {
         this.filePath = filePath;
         this.entityClass = entityClass;
-        this.entities = new ArrayList<>();
+        this.config = config;
+        this.copyOnWrite = config.getConcurrencyMode() == ConcurrencyMode.COPY_ON_WRITE;
+        this.stripes = config.getConcurrencyMode() == ConcurrencyMode.STRIPED
+                ? createStripes(config.getLockStripes())
+                : null;
+        this.indexDefinitions = List.copyOf(indexDefinitions);
+        this.table = new EntityTable<>(this.indexDefinitions);
         this.idGenerator = new AtomicLong(0);
+        this.snapshotFile = new SnapshotFile(Paths.get(filePath));
+        this.journal = config.getPersistenceMode() == PersistenceMode.JOURNAL
+                ? new Journal<>(Paths.get(filePath + ".journal"), entityClass, config.getStorageFormat().codec())
+                : null;
         loadFromFile();
+        this.committer = config.isGroupCommit() || stripes != null
+                ? new GroupCommitter<>(Paths.get(filePath).getFileName().toString(), this::writeBatch,
+                        config.getMaxBatchSize(), config.getMaxBatchDelay().toNanos(), TimeUnit.NANOSECONDS)
+                : null;
     }
     
     /**
-     * Loads entities from JSON file.
+     * Loads entities from JSON file, then replays the journal on top when journaling is enabled.
+     * The file is streamed: entities go straight into the table and the highest ID is tracked
+     * in the same pass.
      */
     protected void loadFromFile() {
+        table.clear();
+        loadedMaxId = 0L;
         try {
-            entities = JsonUtil.readFromFile(filePath, entityClass);
-            
-            // Update ID generator to max ID + 1
-            long maxId = entities.stream()
-                    .mapToLong(BaseEntity::getId)
-                    .max()
-                    .orElse(0L);
-            idGenerator.set(maxId);
-            
-            logger.log(Level.INFO, "Loaded {0} entities from {1}", new Object[]{entities.size(), filePath});
+            boolean found = snapshotFile.load(this::readSnapshot, this::readMapped);
+            if (found) {
+                logger.log(Level.INFO, "Loaded {0} entities from {1}", new Object[]{table.size(), filePath});
+            } else {
+                logger.log(Level.INFO, "No data file at {0}. Starting with empty repository.", filePath);
+            }
+        } catch (IOException e) {
+            // Starting empty would overwrite the damaged file with an empty one on the next save
+            throw new UncheckedIOException("Could not load a valid snapshot from " + filePath, e);
+        }
+        
+        if (journal != null) {
+            try {
+                journalRecords = journal.replay(this::applyRecord);
+            } catch (IOException e) {
+                // Going on without the journal would lose its writes at the next checkpoint
+                throw new UncheckedIOException("Could not replay the journal of " + filePath, e);
+            }
+        }
+        
+        // Update ID generator to max ID + 1
+        idGenerator.set(loadedMaxId);
+    }
+    
+    private void readSnapshot(InputStream in, long totalBytes) throws IOException {
+        table.clear();
+        loadedMaxId = 0L;
+        
+        LoadProgressListener listener = progressListener();
+        CountingInputStream counting = new CountingInputStream(in);
+        BufferedInputStream buffered = new BufferedInputStream(counting);
+        long[] nextReport = {PROGRESS_INTERVAL};
+        
+        StorageCodec codec = detectFormat(buffered).codec();
+        long count = codec.readAll(buffered, entityClass, entity -> {
+            putEntity(entity);
+            if (table.size() >= nextReport[0]) {
+                nextReport[0] += PROGRESS_INTERVAL;
+                listener.onProgress(filePath, table.size(), counting.getCount(), totalBytes);
+            }
+        });
+        listener.onProgress(filePath, count, counting.getCount(), totalBytes);
+    }
+    
+    /**
+     * Indexes a mapped snapshot without decoding it; each entity is decoded on first access.
+     */
+    private void readMapped(ByteBuffer content) throws IOException {
+        table.clear();
+        loadedMaxId = 0L;
+        
+        MappedSnapshot snapshot = MappedSnapshot.open(content);
+        for (int i = 0; i < snapshot.size(); i++) {
+            int index = i;
+            long id = snapshot.getId(i);
+            table.insertDeferred(id, () -> decode(snapshot, index));
+            loadedMaxId = Math.max(loadedMaxId, id);
+        }
+        progressListener().onProgress(filePath, snapshot.size(), content.limit(), content.limit());
+    }
+    
+    private T decode(MappedSnapshot snapshot, int index) {
+        try {
+            return snapshot.read(index, entityClass);
         } catch (IOException e) {
-            logger.log(Level.WARNING, "Could not load from file: {0}. Starting with empty repository.", e.getMessage());
-            entities = new ArrayList<>();
+            throw new UncheckedIOException("Could not decode entity from " + filePath, e);
+        }
+    }
+    
+    private LoadProgressListener progressListener() {
+        return config.getLoadProgressListener() != null
+                ? config.getLoadProgressListener()
+                : this::logProgress;
+    }
+    
+    private static StorageFormat detectFormat(BufferedInputStream in) throws IOException {
+        byte[] header = new byte[StorageFormat.headerLength()];
+        in.mark(header.length);
+        int length = in.readNBytes(header, 0, header.length);
+        in.reset();
+        return StorageFormat.detect(header, 0, length);
+    }
+    
+    private void logProgress(String path, long loaded, long bytesRead, long totalBytes) {
+        if (totalBytes > 0 && loaded >= PROGRESS_INTERVAL) {
+            logger.log(Level.INFO, "Loading {0}: {1} entities, {2}% of {3} bytes",
+                    new Object[]{path, loaded, bytesRead * 100 / totalBytes, totalBytes});
+        }
+    }
+    
+    /**
+     * Runs a read-only query against a consistent view of the entities. Under copy-on-write the
+     * query runs without locking against the latest published table. The query must not keep
+     * the table or modify the entities.
+     */
+    protected <R> R query(Function<? super EntityTable<T>, R> query) {
+        if (copyOnWrite) {
+            return query.apply(table);
+        }
+        lock.readLock().lock();
+        try {
+            return query.apply(table);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static ReentrantLock[] createStripes(int count) {
+        ReentrantLock[] stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
         }
+        return stripes;
+    }
+    
+    /**
+     * Acquires the locks needed to modify one existing entity: its stripe and the read lock in
+     * striped mode, otherwise the write lock.
+     * @return the action that releases them
+     */
+    private Runnable lockEntity(Long id) {
+        if (stripes == null) {
+            lock.writeLock().lock();
+            return lock.writeLock()::unlock;
+        }
+        lock.readLock().lock();
+        long h = id * 0x9E3779B97F4A7C15L;
+        ReentrantLock stripe = stripes[(int) Math.floorMod(h ^ (h >>> 32), (long) stripes.length)];
+        stripe.lock();
+        return () -> {
+            stripe.unlock();
+            lock.readLock().unlock();
+        };
+    }
+    
+    /**
+     * Returns the table a writer should modify, with its indexes built so that unique keys are
+     * enforced. Must be called while holding the locks of the mutation, and the table passed to
+     * {@link #publish} once the modification is complete.
+     */
+    private EntityTable<T> beginWrite() {
+        EntityTable<T> target = copyOnWrite ? table.copy() : table;
+        target.buildIndexes();
+        return target;
+    }
+    
+    private void publish(EntityTable<T> modified) {
+        table = modified;
+        // Counted once the change is visible, so a reader that sees the old count may see either state
+        modifications.incrementAndGet();
+    }
+    
+    private T copyOf(T entity) {
+        return entityClass.cast(entity.copy());
     }
     
     /**
@@ -60,21 +296,184 @@ public abstract class JsonRepository<T extends BaseEntity> implements Repository
      */
     protected void saveToFile() throws CinemaException {
         try {
-            JsonUtil.writeToFile(entities, filePath);
+            writeSnapshot();
         } catch (IOException e) {
             throw new CinemaException("Failed to save to file: " + filePath, e);
         }
     }
     
+    /**
+     * Persists a single mutation, either by appending it to the journal or by rewriting the JSON file.
+     * Must be called while holding the locks of the mutation so that mutations reach storage in the order
+     * they were applied; the returned future should be awaited after releasing it.
+     * @return a future completed once the mutation is durable
+     */
+    protected CompletableFuture<Void> persist(JournalRecord<T> record) {
+        if (committer != null) {
+            return committer.submit(record);
+        }
+        return runStorageAction(() -> writeBatch(Collections.singletonList(record)));
+    }
+    
+    /**
+     * Writes a full snapshot to the JSON file and truncates the journal, whose records it now covers.
+     */
+    public void checkpoint() throws CinemaException {
+        CompletableFuture<Void> done;
+        lock.writeLock().lock();
+        try {
+            done = runStorageAction(this::writeCheckpoint);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(done);
+    }
+    
+    /**
+     * Writes pending mutations, stops the group commit writer and releases the journal file handle.
+     */
     @Override
-    public T save(T entity) throws CinemaException {
-        if (entity.getId() == null) {
-            entity.setId(idGenerator.incrementAndGet());
+    public void close() {
+        if (committer != null) {
+            committer.close();
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not close journal for {0}: {1}", new Object[]{filePath, e.getMessage()});
+            }
+        }
+    }
+    
+    /**
+     * Runs storage work on the group commit writer when enabled, otherwise on the calling thread.
+     */
+    private CompletableFuture<Void> runStorageAction(GroupCommitter.Action action) {
+        if (committer != null) {
+            return committer.submit(action);
+        }
+        try {
+            action.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Writes a batch of mutations. Runs on the group commit writer thread, or under the write
+     * lock when group commit is disabled.
+     */
+    private void writeBatch(List<JournalRecord<T>> batch) throws IOException {
+        if (journal == null) {
+            writeSnapshot();
+            return;
         }
         
-        entity.validate();
-        entities.add(entity);
-        saveToFile();
+        journal.append(batch, config.isFsync());
+        journalRecords += batch.size();
+        if (journalRecords >= config.getSnapshotInterval()) {
+            writeCheckpoint();
+        }
+    }
+    
+    private void writeCheckpoint() throws IOException {
+        writeSnapshot();
+        if (journal != null) {
+            journal.truncate();
+            journalRecords = 0;
+        }
+    }
+    
+    private void writeSnapshot() throws IOException {
+        List<T> snapshot;
+        if (stripes == null) {
+            snapshot = query(EntityTable::toList);
+        } else {
+            // Updates hold only the read lock, so take the write lock for a point-in-time copy
+            lock.writeLock().lock();
+            try {
+                snapshot = table.toList();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        StorageFormat format = config.getStorageFormat();
+        if (format == StorageFormat.MAPPED) {
+            snapshotFile.write(out -> MappedSnapshot.write(snapshot, BaseEntity::getId, format.codec(), out),
+                    config.isFsync());
+        } else {
+            snapshotFile.write(out -> format.codec().writeAll(snapshot, out), config.isFsync());
+        }
+        logger.log(Level.INFO, "Successfully wrote {0} items to {1}", new Object[]{snapshot.size(), filePath});
+    }
+    
+    private void awaitDurable(CompletableFuture<Void> durable) throws CinemaException {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw new CinemaException("Failed to save to file: " + filePath, e.getCause());
+        }
+    }
+    
+    private void applyRecord(JournalRecord<T> record) {
+        switch (record.getOperation()) {
+            case PUT:
+                putEntity(record.getEntity());
+                break;
+            case DELETE:
+                table.remove(record.getId());
+                break;
+        }
+    }
+    
+    private void putEntity(T entity) {
+        try {
+            if (table.replace(entity) == null) {
+                table.insert(entity);
+            }
+        } catch (DuplicateKeyException e) {
+            throw new IllegalStateException("Indexes are only built after loading", e);
+        }
+        loadedMaxId = Math.max(loadedMaxId, entity.getId());
+    }
+    
+    @Override
+    public T save(T entity) throws CinemaException {
+        CompletableFuture<Void> durable;
+        lock.writeLock().lock();
+        try {
+            EntityTable<T> target = beginWrite();
+            boolean assigned = entity.getId() == null;
+            if (assigned) {
+                entity.setId(idGenerator.incrementAndGet());
+            } else if (target.contains(entity.getId())) {
+                throw new CinemaException(String.format("%s with ID %d already exists",
+                        entityClass.getSimpleName(), entity.getId()));
+            }
+            
+            T stored;
+            try {
+                entity.validate();
+                stored = copyOf(entity);
+                target.insert(stored);
+            } catch (CinemaException e) {
+                // Leave the caller's entity as it was, so that it can be corrected and saved again
+                if (assigned) {
+                    entity.setId(null);
+                }
+                throw e;
+            }
+            if (!assigned) {
+                idGenerator.accumulateAndGet(entity.getId(), Math::max);
+            }
+            publish(target);
+            durable = persist(JournalRecord.put(stored.getId(), stored));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(durable);
         
         logger.log(Level.INFO, "Saved entity: {0}", entity);
         return entity;
@@ -82,14 +481,62 @@ public abstract class JsonRepository<T extends BaseEntity> implements Repository
     
     @Override
     public Optional<T> findById(Long id) {
-        return entities.stream()
-                .filter(e -> e.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(query(entities -> entities.get(id)));
     }
     
     @Override
     public List<T> findAll() {
-        return new ArrayList<>(entities);
+        return query(EntityTable::toList);
+    }
+    
+    @Override
+    public List<T> findAll(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        return query(entities -> entities.slice(offset, limit));
+    }
+    
+    @Override
+    public List<T> findAllAfter(Long afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        long after = afterId == null ? Long.MIN_VALUE : afterId;
+        return query(entities -> entities.after(after, limit));
+    }
+    
+    @Override
+    public Stream<T> stream() {
+        Iterator<T> pages = new Iterator<>() {
+            private List<T> page = List.of();
+            private int next;
+            private Long lastId;
+            private boolean exhausted;
+            
+            @Override
+            public boolean hasNext() {
+                if (next == page.size() && !exhausted) {
+                    page = findAllAfter(lastId, STREAM_PAGE_SIZE);
+                    next = 0;
+                    exhausted = page.size() < STREAM_PAGE_SIZE;
+                    if (!page.isEmpty()) {
+                        lastId = page.get(page.size() - 1).getId();
+                    }
+                }
+                return next < page.size();
+            }
+            
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(next++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
     }
     
     @Override
@@ -100,48 +547,261 @@ public abstract class JsonRepository<T extends BaseEntity> implements Repository
         
         entity.validate();
         
-        Optional<T> existing = findById(entity.getId());
-        if (!existing.isPresent()) {
-            throw new EntityNotFoundException(entityClass.getSimpleName(), entity.getId());
+        CompletableFuture<Void> durable;
+        Runnable unlock = lockEntity(entity.getId());
+        try {
+            EntityTable<T> target = beginWrite();
+            T current = target.get(entity.getId());
+            if (current == null) {
+                throw new EntityNotFoundException(entityClass.getSimpleName(), entity.getId());
+            }
+            if (current.getVersion() != entity.getVersion()) {
+                updateConflicts.incrementAndGet();
+                throw new OptimisticLockException(entityClass.getSimpleName(), entity.getId(),
+                        entity.getVersion(), current.getVersion());
+            }
+            
+            T stored = copyOf(entity);
+            stored.setVersion(current.getVersion() + 1);
+            stored.touch();
+            target.replace(stored);
+            // Only once the replacement succeeded, so that a rejected update can be retried as is
+            entity.setVersion(stored.getVersion());
+            entity.setUpdatedAt(stored.getUpdatedAt());
+            publish(target);
+            durable = persist(JournalRecord.put(stored.getId(), stored));
+        } finally {
+            unlock.run();
         }
-        
-        entities = entities.stream()
-                .map(e -> e.getId().equals(entity.getId()) ? entity : e)
-                .collect(Collectors.toList());
-        
-        entity.touch();
-        saveToFile();
+        awaitDurable(durable);
         
         logger.log(Level.INFO, "Updated entity: {0}", entity);
         return entity;
     }
     
+    /**
+     * Number of updates rejected because the entity had been updated since it was read.
+     */
+    public long getUpdateConflicts() {
+        return updateConflicts.get();
+    }
+    
     @Override
     public boolean deleteById(Long id) throws CinemaException {
-        boolean removed = entities.removeIf(e -> e.getId().equals(id));
+        CompletableFuture<Void> durable;
+        lock.writeLock().lock();
+        try {
+            EntityTable<T> target = beginWrite();
+            if (target.remove(id) == null) {
+                return false;
+            }
+            publish(target);
+            durable = persist(JournalRecord.delete(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(durable);
+        
+        logger.log(Level.INFO, "Deleted entity with ID: {0}", id);
+        return true;
+    }
+    
+    @Override
+    public BatchResult<T> saveAll(List<T> entities) throws CinemaException {
+        CinemaException[] errors = validateAll(entities);
+        List<JournalRecord<T>> records = new ArrayList<>(entities.size());
+        CompletableFuture<Void> durable;
+        lock.writeLock().lock();
+        try {
+            EntityTable<T> target = beginWrite();
+            for (int i = 0; i < entities.size(); i++) {
+                if (errors[i] != null) {
+                    continue;
+                }
+                T entity = entities.get(i);
+                boolean assigned = entity.getId() == null;
+                try {
+                    if (assigned) {
+                        entity.setId(idGenerator.incrementAndGet());
+                    } else if (target.contains(entity.getId())) {
+                        throw new DuplicateKeyException("id", entity.getId(), entity.getId());
+                    }
+                    T stored = copyOf(entity);
+                    target.insert(stored);
+                    if (!assigned) {
+                        idGenerator.accumulateAndGet(entity.getId(), Math::max);
+                    }
+                    records.add(JournalRecord.put(stored.getId(), stored));
+                } catch (DuplicateKeyException e) {
+                    if (assigned) {
+                        entity.setId(null);
+                    }
+                    errors[i] = e;
+                }
+            }
+            durable = publishAll(target, records);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(durable);
         
-        if (removed) {
-            saveToFile();
-            logger.log(Level.INFO, "Deleted entity with ID: {0}", id);
+        logger.log(Level.INFO, "Saved {0} of {1} entities", new Object[]{records.size(), entities.size()});
+        return new BatchResult<>(entities, errors);
+    }
+    
+    @Override
+    public BatchResult<T> updateAll(List<T> entities) throws CinemaException {
+        CinemaException[] errors = validateAll(entities);
+        List<JournalRecord<T>> records = new ArrayList<>(entities.size());
+        CompletableFuture<Void> durable;
+        // The write lock excludes striped updates as well, which only hold the read lock
+        lock.writeLock().lock();
+        try {
+            EntityTable<T> target = beginWrite();
+            for (int i = 0; i < entities.size(); i++) {
+                if (errors[i] != null) {
+                    continue;
+                }
+                T entity = entities.get(i);
+                try {
+                    if (entity.getId() == null) {
+                        throw new ValidationException("Cannot update entity without ID");
+                    }
+                    T current = target.get(entity.getId());
+                    if (current == null) {
+                        throw new EntityNotFoundException(entityClass.getSimpleName(), entity.getId());
+                    }
+                    if (current.getVersion() != entity.getVersion()) {
+                        updateConflicts.incrementAndGet();
+                        throw new OptimisticLockException(entityClass.getSimpleName(), entity.getId(),
+                                entity.getVersion(), current.getVersion());
+                    }
+                    
+                    T stored = copyOf(entity);
+                    stored.setVersion(current.getVersion() + 1);
+                    stored.touch();
+                    target.replace(stored);
+                    entity.setVersion(stored.getVersion());
+                    entity.setUpdatedAt(stored.getUpdatedAt());
+                    records.add(JournalRecord.put(stored.getId(), stored));
+                } catch (CinemaException e) {
+                    errors[i] = e;
+                }
+            }
+            durable = publishAll(target, records);
+        } finally {
+            lock.writeLock().unlock();
         }
+        awaitDurable(durable);
         
-        return removed;
+        logger.log(Level.INFO, "Updated {0} of {1} entities", new Object[]{records.size(), entities.size()});
+        return new BatchResult<>(entities, errors);
+    }
+    
+    @Override
+    public BatchResult<Long> deleteAllById(List<Long> ids) throws CinemaException {
+        CinemaException[] errors = new CinemaException[ids.size()];
+        List<JournalRecord<T>> records = new ArrayList<>(ids.size());
+        CompletableFuture<Void> durable;
+        lock.writeLock().lock();
+        try {
+            EntityTable<T> target = beginWrite();
+            for (int i = 0; i < ids.size(); i++) {
+                Long id = ids.get(i);
+                if (id == null) {
+                    errors[i] = new ValidationException("ID must not be null");
+                } else if (target.remove(id) == null) {
+                    errors[i] = new EntityNotFoundException(entityClass.getSimpleName(), id);
+                } else {
+                    records.add(JournalRecord.delete(id));
+                }
+            }
+            durable = publishAll(target, records);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(durable);
+        
+        logger.log(Level.INFO, "Deleted {0} of {1} entities", new Object[]{records.size(), ids.size()});
+        return new BatchResult<>(ids, errors);
+    }
+    
+    /**
+     * Validates entities ahead of a bulk write, in parallel for large batches.
+     * @return for each entity, the exception rejecting it, or null if it is valid
+     */
+    private static CinemaException[] validateAll(List<? extends BaseEntity> entities) {
+        CinemaException[] errors = new CinemaException[entities.size()];
+        IntStream indexes = IntStream.range(0, entities.size());
+        if (entities.size() >= PARALLEL_VALIDATION_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        // Each task writes its own slots; the terminal operation publishes them to this thread
+        indexes.forEach(i -> {
+            BaseEntity entity = entities.get(i);
+            try {
+                if (entity == null) {
+                    throw new ValidationException("Entity must not be null");
+                }
+                entity.validate();
+            } catch (ValidationException e) {
+                errors[i] = e;
+            }
+        });
+        return errors;
+    }
+    
+    /**
+     * Publishes the table modified by a bulk operation and persists its mutations with a single
+     * storage write: one journal append, or one rewrite of the JSON file. Must be called while
+     * holding the write lock; the returned future should be awaited after releasing it.
+     */
+    private CompletableFuture<Void> publishAll(EntityTable<T> target, List<JournalRecord<T>> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        publish(target);
+        return runStorageAction(() -> writeBatch(records));
+    }
+    
+    @Override
+    public long getModificationCount() {
+        return modifications.get();
+    }
+    
+    @Override
+    public List<T> find(Query<T> query) {
+        return query(entities -> QueryPlanner.plan(entities, query).execute());
+    }
+    
+    @Override
+    public String explain(Query<T> query) {
+        return query(entities -> QueryPlanner.plan(entities, query).toString());
     }
     
     @Override
     public boolean existsById(Long id) {
-        return entities.stream().anyMatch(e -> e.getId().equals(id));
+        return query(entities -> entities.contains(id));
     }
     
     @Override
     public long count() {
-        return entities.size();
+        return query(EntityTable::size);
     }
     
     @Override
     public void deleteAll() throws CinemaException {
-        entities.clear();
-        saveToFile();
+        CompletableFuture<Void> done;
+        lock.writeLock().lock();
+        try {
+            EntityTable<T> target = copyOnWrite ? new EntityTable<>(indexDefinitions) : table;
+            target.clear();
+            publish(target);
+            done = runStorageAction(this::writeCheckpoint);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(done);
         logger.log(Level.INFO, "Deleted all entities from repository");
     }
 }
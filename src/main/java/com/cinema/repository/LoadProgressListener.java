@@ -0,0 +1,17 @@
+package com.cinema.repository;
+
+/**
+ * Receives progress updates while a repository loads its data file.
+ */
+@FunctionalInterface
+public interface LoadProgressListener {
+    
+    /**
+     * Called periodically during loading and once when the data file has been read completely.
+     * @param filePath     the data file being loaded
+     * @param entities     number of entities read so far
+     * @param bytesRead    number of bytes consumed so far
+     * @param totalBytes   size of the data file
+     */
+    void onProgress(String filePath, long entities, long bytesRead, long totalBytes);
+}
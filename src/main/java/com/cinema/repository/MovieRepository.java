@@ -1,68 +1,167 @@
 package com.cinema.repository;
 
 import com.cinema.models.Movie;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.query.Field;
+import com.cinema.utils.RoaringBitmap;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Repository for Movie entities with additional search capabilities.
+ * Genre and language lookups are served by bitmap indexes, which also answer combined filters and
+ * counts; director lookups by a hash index, title search by a trigram index and rating queries by a
+ * sorted index. Ranked search over the title, director and description uses a full-text index.
  */
 public class MovieRepository extends JsonRepository<Movie> {
     
+    public static final Field<Movie, String> TITLE = Field.of("title", Movie::getTitle);
+    public static final Field<Movie, String> GENRE = Field.of("genre", Movie::getGenre);
+    public static final Field<Movie, String> DIRECTOR = Field.of("director", Movie::getDirector);
+    public static final Field<Movie, String> LANGUAGE = Field.of("language", Movie::getLanguage);
+    public static final Field<Movie, String> DESCRIPTION = Field.of("description", Movie::getDescription);
+    public static final Field<Movie, Double> RATING = Field.of("rating", Movie::getRating);
+    public static final Field<Movie, Integer> DURATION = Field.of("durationMinutes", Movie::getDurationMinutes);
+    
     private static final String DEFAULT_FILE_PATH = "src/main/resources/movies.json";
+    private static final IndexDefinition<Movie, String> GENRE_INDEX = IndexDefinition.bitmap(GENRE);
+    private static final IndexDefinition<Movie, String> DIRECTOR_INDEX = IndexDefinition.nonUnique(DIRECTOR);
+    private static final IndexDefinition<Movie, String> LANGUAGE_INDEX = IndexDefinition.bitmap(LANGUAGE);
+    private static final IndexDefinition<Movie, String> TITLE_INDEX = IndexDefinition.ngram(TITLE);
+    private static final IndexDefinition<Movie, Double> RATING_INDEX = IndexDefinition.sorted(RATING);
+    private static final IndexDefinition<Movie, String> TEXT_INDEX = IndexDefinition.fullText("text",
+            m -> Stream.of(m.getTitle(), m.getDirector(), m.getDescription())
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.joining(" ")));
     
     public MovieRepository() {
-        super(DEFAULT_FILE_PATH, Movie.class);
+        this(DEFAULT_FILE_PATH);
     }
     
     public MovieRepository(String filePath) {
-        super(filePath, Movie.class);
+        this(filePath, RepositoryConfig.defaults());
+    }
+    
+    public MovieRepository(String filePath, RepositoryConfig config) {
+        super(filePath, Movie.class, config, List.of(GENRE_INDEX, DIRECTOR_INDEX, LANGUAGE_INDEX, TITLE_INDEX, RATING_INDEX,
+                TEXT_INDEX));
     }
     
     /**
      * Finds movies by genre (case-insensitive).
      */
     public List<Movie> findByGenre(String genre) {
-        return entities.stream()
-                .filter(m -> m.getGenre().equalsIgnoreCase(genre))
+        return findBy(GENRE_INDEX, genre);
+    }
+    
+    /**
+     * Finds movies of any of the given genres (case-insensitive).
+     */
+    public List<Movie> findByGenres(Collection<String> genres) {
+        List<String> keys = genres.stream()
+                .map(IndexDefinition::normalize)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        return query(entities -> {
+            RoaringBitmap ids = new RoaringBitmap();
+            for (String key : keys) {
+                ids = ids.or(entities.bitmap(GENRE_INDEX, key));
+            }
+            return entities.resolve(ids, m -> keys.contains(GENRE_INDEX.keyOf(m)));
+        });
+    }
+    
+    /**
+     * Finds movies of a genre in a language (both case-insensitive).
+     */
+    public List<Movie> findByGenreAndLanguage(String genre, String language) {
+        String genreKey = IndexDefinition.normalize(genre);
+        String languageKey = IndexDefinition.normalize(language);
+        if (genreKey == null || languageKey == null) {
+            return List.of();
+        }
+        return query(entities -> entities.resolve(
+                entities.bitmap(GENRE_INDEX, genreKey).and(entities.bitmap(LANGUAGE_INDEX, languageKey)),
+                m -> GENRE_INDEX.hasKey(m, genreKey) && LANGUAGE_INDEX.hasKey(m, languageKey)));
+    }
+    
+    /**
+     * Counts movies of a genre (case-insensitive).
+     */
+    public long countByGenre(String genre) {
+        String key = IndexDefinition.normalize(genre);
+        return key == null ? 0 : query(entities -> entities.count(GENRE_INDEX, key));
+    }
+    
+    /**
+     * Counts movies in a language (case-insensitive).
+     */
+    public long countByLanguage(String language) {
+        String key = IndexDefinition.normalize(language);
+        return key == null ? 0 : query(entities -> entities.count(LANGUAGE_INDEX, key));
     }
     
     /**
      * Finds movies by director (case-insensitive).
      */
     public List<Movie> findByDirector(String director) {
-        return entities.stream()
-                .filter(m -> director.equalsIgnoreCase(m.getDirector()))
-                .collect(Collectors.toList());
+        return findBy(DIRECTOR_INDEX, director);
     }
     
     /**
      * Searches movies by title (contains query, case-insensitive).
      */
     public List<Movie> searchByTitle(String query) {
-        String lowerQuery = query.toLowerCase();
-        return entities.stream()
-                .filter(m -> m.getTitle().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        return query(entities -> entities.search(TITLE_INDEX, query));
     }
     
     /**
-     * Finds movies with rating greater than or equal to the specified value.
+     * Searches movies by the words of their title, director and description, best match first.
+     * Words match regardless of case and plural form; a movie matches if it has any of the words.
+     * @param limit maximum number of movies to return
+     */
+    public List<Movie> searchText(String query, int limit) {
+        return query(entities -> entities.rank(TEXT_INDEX, query, limit));
+    }
+    
+    /**
+     * Finds movies with rating greater than or equal to the specified value, lowest rating first.
      */
     public List<Movie> findByMinRating(double minRating) {
-        return entities.stream()
-                .filter(m -> m.getRating() >= minRating)
-                .collect(Collectors.toList());
+        return findByRatingBetween(minRating, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Finds movies rated between the given values (inclusive), lowest rating first.
+     */
+    public List<Movie> findByRatingBetween(double minRating, double maxRating) {
+        return query(entities -> entities.findRange(RATING_INDEX, minRating, maxRating, false, Integer.MAX_VALUE));
     }
     
     /**
-     * Finds movies by language.
+     * Finds the highest rated movies, highest rating first.
+     */
+    public List<Movie> findTopRated(int limit) {
+        return query(entities -> entities.findRange(RATING_INDEX, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, true, limit));
+    }
+    
+    /**
+     * Finds movies by language (case-insensitive).
      */
     public List<Movie> findByLanguage(String language) {
-        return entities.stream()
-                .filter(m -> language.equalsIgnoreCase(m.getLanguage()))
-                .collect(Collectors.toList());
+        return findBy(LANGUAGE_INDEX, language);
+    }
+    
+    private List<Movie> findBy(IndexDefinition<Movie, String> index, String value) {
+        String key = IndexDefinition.normalize(value);
+        if (key == null) {
+            return List.of();
+        }
+        return query(entities -> entities.findAll(index, key));
     }
 }
@@ -0,0 +1,18 @@
+package com.cinema.repository;
+
+/**
+ * Strategy used by {@link JsonRepository} to persist mutations.
+ */
+public enum PersistenceMode {
+    
+    /**
+     * Every mutation rewrites the whole data file.
+     */
+    SNAPSHOT,
+    
+    /**
+     * Every mutation appends one record to a journal file next to the data file.
+     * The data file is rewritten only periodically, after which the journal is truncated.
+     */
+    JOURNAL
+}
@@ -2,9 +2,11 @@ package com.cinema.repository;
 
 import com.cinema.exception.CinemaException;
 import com.cinema.models.BaseEntity;
+import com.cinema.repository.query.Query;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Generic repository interface for CRUD operations.
@@ -28,7 +30,32 @@ public interface Repository<T extends BaseEntity> {
     List<T> findAll();
     
     /**
-     * Updates an existing entity.
+     * Retrieves a page of the entities in storage order, skipping the given number of entities.
+     * The cost grows with the offset; prefer {@link #findAllAfter} for paging through everything.
+     * @throws IllegalArgumentException if the offset or limit is negative
+     */
+    List<T> findAll(int offset, int limit);
+    
+    /**
+     * Retrieves the entities with the lowest IDs above the given one, in ascending ID order. Passing
+     * the last ID of a page fetches the next one, which does not shift when entities before it are
+     * added or deleted meanwhile.
+     * @param afterId the last ID of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    List<T> findAllAfter(Long afterId, int limit);
+    
+    /**
+     * Streams all entities in ascending ID order, without copying them into a list. The stream is
+     * read lazily in pages and weakly consistent: entities changed while it is consumed may or may
+     * not be seen in their new state, but no entity is returned twice.
+     */
+    Stream<T> stream();
+    
+    /**
+     * Updates an existing entity if its version matches the stored version, then increments
+     * the version of both.
+     * @throws com.cinema.exception.OptimisticLockException if the entity was updated since it was read
      */
     T update(T entity) throws CinemaException;
     
@@ -37,6 +64,29 @@ public interface Repository<T extends BaseEntity> {
      */
     boolean deleteById(Long id) throws CinemaException;
     
+    /**
+     * Saves several entities as by {@link #save}, validating them in parallel, applying them under a
+     * single write and persisting them together. Entities that are rejected, as invalid or for a
+     * taken key, are reported in the result and do not stop the others.
+     * @throws CinemaException if the batch could not be persisted
+     */
+    BatchResult<T> saveAll(List<T> entities) throws CinemaException;
+    
+    /**
+     * Updates several entities as by {@link #update}, applying them under a single write and
+     * persisting them together. Entities that are rejected, including those updated since they
+     * were read, are reported in the result and do not stop the others.
+     * @throws CinemaException if the batch could not be persisted
+     */
+    BatchResult<T> updateAll(List<T> entities) throws CinemaException;
+    
+    /**
+     * Deletes the entities with the given IDs under a single write and persists the deletions
+     * together. IDs without an entity are reported in the result.
+     * @throws CinemaException if the batch could not be persisted
+     */
+    BatchResult<Long> deleteAllById(List<Long> ids) throws CinemaException;
+    
     /**
      * Checks if an entity exists by ID.
      */
@@ -51,4 +101,21 @@ public interface Repository<T extends BaseEntity> {
      * Deletes all entities from the repository.
      */
     void deleteAll() throws CinemaException;
+    
+    /**
+     * Returns the number of modifications since the repository was opened. The count increases
+     * after every save, update and delete, once its effect is visible to readers, so a result
+     * computed after reading the count is current as long as the count has not changed.
+     */
+    long getModificationCount();
+    
+    /**
+     * Finds the entities matching a query, using the repository's indexes where they help.
+     */
+    List<T> find(Query<T> query);
+    
+    /**
+     * Describes the plan {@link #find} would use for a query, with estimated row counts.
+     */
+    String explain(Query<T> query);
 }
@@ -0,0 +1,170 @@
+package com.cinema.repository;
+
+import com.cinema.storage.StorageFormat;
+
+import java.time.Duration;
+
+/**
+ * Tunable settings for a {@link JsonRepository}.
+ * Setters return this instance so settings can be chained.
+ */
+public class RepositoryConfig {
+    
+    private PersistenceMode persistenceMode = PersistenceMode.SNAPSHOT;
+    private StorageFormat storageFormat = StorageFormat.JSON;
+    private ConcurrencyMode concurrencyMode = ConcurrencyMode.READ_WRITE_LOCK;
+    private int lockStripes = 64;
+    private int snapshotInterval = 1000;
+    private boolean groupCommit = false;
+    private int maxBatchSize = 256;
+    private Duration maxBatchDelay = Duration.ofMillis(2);
+    private volatile boolean fsync = true;
+    private LoadProgressListener loadProgressListener;
+    
+    /**
+     * Creates a configuration with default settings.
+     */
+    public static RepositoryConfig defaults() {
+        return new RepositoryConfig();
+    }
+    
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+    
+    public RepositoryConfig setPersistenceMode(PersistenceMode persistenceMode) {
+        this.persistenceMode = persistenceMode;
+        return this;
+    }
+    
+    /**
+     * Format used when writing the data file and journal records. Existing files in another
+     * format are still read, and are converted by the next snapshot.
+     */
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+    
+    public RepositoryConfig setStorageFormat(StorageFormat storageFormat) {
+        if (storageFormat == null) {
+            throw new IllegalArgumentException("Storage format cannot be null");
+        }
+        this.storageFormat = storageFormat;
+        return this;
+    }
+    
+    public ConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+    
+    /**
+     * Sets how readers and writers are coordinated. {@link ConcurrencyMode#COPY_ON_WRITE} copies the
+     * table on every write and only pays off for read-mostly repositories.
+     */
+    public RepositoryConfig setConcurrencyMode(ConcurrencyMode concurrencyMode) {
+        if (concurrencyMode == null) {
+            throw new IllegalArgumentException("Concurrency mode cannot be null");
+        }
+        this.concurrencyMode = concurrencyMode;
+        return this;
+    }
+    
+    /**
+     * Number of locks that entity updates are spread over in {@link ConcurrencyMode#STRIPED} mode.
+     */
+    public int getLockStripes() {
+        return lockStripes;
+    }
+    
+    public RepositoryConfig setLockStripes(int lockStripes) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("Lock stripes must be positive");
+        }
+        this.lockStripes = lockStripes;
+        return this;
+    }
+    
+    /**
+     * Number of journal records after which a full snapshot is written and the journal truncated.
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+    
+    public RepositoryConfig setSnapshotInterval(int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.snapshotInterval = snapshotInterval;
+        return this;
+    }
+    
+    /**
+     * Whether writes are handed to a background writer that coalesces concurrent mutations
+     * into one write and one fsync. Callers still block until their mutation is durable.
+     * Always in effect in {@link ConcurrencyMode#STRIPED} mode.
+     */
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+    
+    public RepositoryConfig setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+        return this;
+    }
+    
+    /**
+     * Maximum number of mutations written together by group commit.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    public RepositoryConfig setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+    
+    /**
+     * How long group commit waits for more mutations after the first one of a batch arrives.
+     */
+    public Duration getMaxBatchDelay() {
+        return maxBatchDelay;
+    }
+    
+    public RepositoryConfig setMaxBatchDelay(Duration maxBatchDelay) {
+        if (maxBatchDelay == null || maxBatchDelay.isNegative()) {
+            throw new IllegalArgumentException("Max batch delay cannot be negative");
+        }
+        this.maxBatchDelay = maxBatchDelay;
+        return this;
+    }
+    
+    /**
+     * Whether journal writes are forced to disk. Disabling this trades durability for speed,
+     * e.g. during bulk loads; the setting is read on every write and may be changed at runtime.
+     */
+    public boolean isFsync() {
+        return fsync;
+    }
+    
+    public RepositoryConfig setFsync(boolean fsync) {
+        this.fsync = fsync;
+        return this;
+    }
+    
+    /**
+     * Listener notified while the data file is loaded. When unset, progress is logged.
+     */
+    public LoadProgressListener getLoadProgressListener() {
+        return loadProgressListener;
+    }
+    
+    public RepositoryConfig setLoadProgressListener(LoadProgressListener loadProgressListener) {
+        this.loadProgressListener = loadProgressListener;
+        return this;
+    }
+}
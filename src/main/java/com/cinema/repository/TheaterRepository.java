@@ -1,68 +1,112 @@
 package com.cinema.repository;
 
 import com.cinema.models.Theater;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.query.Field;
 
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Repository for Theater entities with additional search capabilities.
+ * Name search is served by a trigram index, capacity queries by a sorted index, movie lookups by a
+ * reverse index from movie ID to theaters, and screen type and accessibility filters by bitmap indexes.
  */
 public class TheaterRepository extends JsonRepository<Theater> {
     
+    public static final Field<Theater, String> NAME = Field.of("name", Theater::getName);
+    public static final Field<Theater, Integer> CAPACITY = Field.of("capacity", Theater::getCapacity);
+    public static final Field<Theater, String> SCREEN_TYPE = Field.of("screenType", Theater::getScreenType);
+    public static final Field<Theater, Boolean> WHEELCHAIR_ACCESS =
+            Field.of("wheelchairAccess", Theater::isHasWheelchairAccess);
+    
     private static final String DEFAULT_FILE_PATH = "src/main/resources/theaters.json";
+    private static final IndexDefinition<Theater, String> NAME_INDEX = IndexDefinition.ngram(NAME);
+    private static final IndexDefinition<Theater, Double> CAPACITY_INDEX = IndexDefinition.sorted(CAPACITY);
+    private static final IndexDefinition<Theater, Long> MOVIE_INDEX =
+            IndexDefinition.multiValued("movieId", t -> new HashSet<>(t.getCurrentMovieIds()), Theater::isShowing);
+    private static final IndexDefinition<Theater, String> SCREEN_TYPE_INDEX = IndexDefinition.bitmap(SCREEN_TYPE);
+    private static final IndexDefinition<Theater, Boolean> WHEELCHAIR_INDEX = IndexDefinition.bitmap(WHEELCHAIR_ACCESS);
     
     public TheaterRepository() {
-        super(DEFAULT_FILE_PATH, Theater.class);
+        this(DEFAULT_FILE_PATH);
     }
     
     public TheaterRepository(String filePath) {
-        super(filePath, Theater.class);
+        this(filePath, RepositoryConfig.defaults());
+    }
+    
+    public TheaterRepository(String filePath, RepositoryConfig config) {
+        super(filePath, Theater.class, config, List.of(NAME_INDEX, CAPACITY_INDEX, MOVIE_INDEX, SCREEN_TYPE_INDEX, WHEELCHAIR_INDEX));
     }
     
     /**
      * Finds theaters by screen type (case-insensitive).
      */
     public List<Theater> findByScreenType(String screenType) {
-        return entities.stream()
-                .filter(t -> t.getScreenType().equalsIgnoreCase(screenType))
-                .collect(Collectors.toList());
+        String key = IndexDefinition.normalize(screenType);
+        if (key == null) {
+            return List.of();
+        }
+        return query(entities -> entities.findAll(SCREEN_TYPE_INDEX, key));
+    }
+    
+    /**
+     * Finds wheelchair-accessible theaters of a screen type (case-insensitive).
+     */
+    public List<Theater> findAccessibleByScreenType(String screenType) {
+        String key = IndexDefinition.normalize(screenType);
+        if (key == null) {
+            return List.of();
+        }
+        return query(entities -> entities.resolve(
+                entities.bitmap(SCREEN_TYPE_INDEX, key).and(entities.bitmap(WHEELCHAIR_INDEX, true)),
+                t -> SCREEN_TYPE_INDEX.hasKey(t, key) && t.isHasWheelchairAccess()));
     }
     
     /**
-     * Finds theaters with capacity greater than or equal to the specified value.
+     * Counts theaters of a screen type (case-insensitive).
+     */
+    public long countByScreenType(String screenType) {
+        String key = IndexDefinition.normalize(screenType);
+        return key == null ? 0 : query(entities -> entities.count(SCREEN_TYPE_INDEX, key));
+    }
+    
+    /**
+     * Finds theaters with capacity greater than or equal to the specified value, smallest first.
      */
     public List<Theater> findByMinCapacity(int minCapacity) {
-        return entities.stream()
-                .filter(t -> t.getCapacity() >= minCapacity)
-                .collect(Collectors.toList());
+        return findByCapacityBetween(minCapacity, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Finds theaters with a capacity between the given values (inclusive), smallest first.
+     */
+    public List<Theater> findByCapacityBetween(int minCapacity, int maxCapacity) {
+        return query(entities -> entities.findRange(CAPACITY_INDEX, minCapacity, maxCapacity, false, Integer.MAX_VALUE));
     }
     
     /**
      * Finds theaters with wheelchair access.
      */
     public List<Theater> findWithWheelchairAccess() {
-        return entities.stream()
-                .filter(Theater::isHasWheelchairAccess)
-                .collect(Collectors.toList());
+        return query(entities -> entities.findAll(WHEELCHAIR_INDEX, true));
     }
     
     /**
      * Finds theaters showing a specific movie.
      */
     public List<Theater> findByMovieId(Long movieId) {
-        return entities.stream()
-                .filter(t -> t.getCurrentMovieIds().contains(movieId))
-                .collect(Collectors.toList());
+        if (movieId == null) {
+            return List.of();
+        }
+        return query(entities -> entities.findAll(MOVIE_INDEX, movieId));
     }
     
     /**
      * Searches theaters by name (contains query, case-insensitive).
      */
     public List<Theater> searchByName(String query) {
-        String lowerQuery = query.toLowerCase();
-        return entities.stream()
-                .filter(t -> t.getName().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        return query(entities -> entities.search(NAME_INDEX, query));
     }
 }
@@ -0,0 +1,98 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+import com.cinema.utils.RoaringBitmap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bitmap index for keys with few distinct values: each key maps to a {@link RoaringBitmap} of the
+ * IDs holding it, so filters on several keys combine by AND and OR, and counts need no lookups.
+ * Access is synchronized on the index; lookups return copies that the caller may combine freely.
+ * @param <T> Entity type
+ * @param <K> Key type
+ */
+public class BitmapIndex<T extends BaseEntity, K> implements EntityIndex<T> {
+    
+    private final IndexDefinition<T, K> definition;
+    private final Map<K, RoaringBitmap> bitmaps;
+    
+    public BitmapIndex(IndexDefinition<T, K> definition) {
+        this.definition = definition;
+        this.bitmaps = new HashMap<>();
+    }
+    
+    private BitmapIndex(BitmapIndex<T, K> other) {
+        this.definition = other.definition;
+        this.bitmaps = new HashMap<>();
+        synchronized (other) {
+            other.bitmaps.forEach((key, ids) -> bitmaps.put(key, new RoaringBitmap(ids)));
+        }
+    }
+    
+    @Override
+    public BitmapIndex<T, K> copy() {
+        return new BitmapIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, K> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns a copy of the bitmap of IDs indexed under the key.
+     */
+    public synchronized RoaringBitmap get(K key) {
+        RoaringBitmap ids = key == null ? null : bitmaps.get(key);
+        return ids == null ? new RoaringBitmap() : new RoaringBitmap(ids);
+    }
+    
+    /**
+     * Returns the number of entities indexed under the key.
+     */
+    public synchronized long count(K key) {
+        RoaringBitmap ids = key == null ? null : bitmaps.get(key);
+        return ids == null ? 0 : ids.getCardinality();
+    }
+    
+    @Override
+    public synchronized void add(T entity) {
+        add(definition.keyOf(entity), entity.getId());
+    }
+    
+    @Override
+    public synchronized void remove(T entity) {
+        remove(definition.keyOf(entity), entity.getId());
+    }
+    
+    @Override
+    public synchronized void update(T previous, T current) {
+        K oldKey = definition.keyOf(previous);
+        K newKey = definition.keyOf(current);
+        if (!Objects.equals(oldKey, newKey)) {
+            add(newKey, current.getId());
+            remove(oldKey, previous.getId());
+        }
+    }
+    
+    private void add(K key, long id) {
+        if (key != null) {
+            bitmaps.computeIfAbsent(key, k -> new RoaringBitmap()).add(id);
+        }
+    }
+    
+    private void remove(K key, long id) {
+        RoaringBitmap ids = key == null ? null : bitmaps.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+    
+    @Override
+    public synchronized void clear() {
+        bitmaps.clear();
+    }
+}
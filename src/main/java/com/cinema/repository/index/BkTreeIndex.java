@@ -0,0 +1,297 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BK-tree over the distinct text keys of a multi-valued {@link IndexDefinition}, for lookups that
+ * tolerate typing errors. Each node holds a key and the IDs of the entities holding it, and its
+ * children are grouped by their Levenshtein distance from it. As the distance is a metric, a search
+ * within distance {@code r} of a query only descends into children whose edge distance lies within
+ * {@code r} of the node's own distance, which skips most of the tree for small distances. Distances
+ * are only computed as far as they can select a match or a child, so that long keys far from the
+ * query are given up early.
+ * <p>
+ * Removing a key's last ID leaves its node in place to guide searches; once such dead nodes pass
+ * {@link #MAX_DEAD_FRACTION} of the live ones, the tree is rebuilt from the live keys. Copies
+ * hold only the live keys. Access is synchronized on the index.
+ * @param <T> Entity type
+ */
+public class BkTreeIndex<T extends BaseEntity> implements EntityIndex<T> {
+    
+    /** Dead nodes, as a fraction of the live ones, above which the tree is rebuilt. */
+    static final double MAX_DEAD_FRACTION = 0.5;
+    
+    private final IndexDefinition<T, String> definition;
+    private Node root;
+    private int liveNodes;
+    private int deadNodes;
+    
+    public BkTreeIndex(IndexDefinition<T, String> definition) {
+        this.definition = definition;
+    }
+    
+    private BkTreeIndex(BkTreeIndex<T> other) {
+        this.definition = other.definition;
+        synchronized (other) {
+            addLive(other.root);
+        }
+    }
+    
+    /**
+     * Adds the keys and IDs of the live nodes below the given one.
+     */
+    private void addLive(Node from) {
+        if (from == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(from);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            for (Long id : node.ids) {
+                add(node.key, id);
+            }
+            pending.addAll(node.children.values());
+        }
+    }
+    
+    /**
+     * A key within the searched distance of the query, with the entities holding it.
+     */
+    public static final class Match {
+        
+        private final String key;
+        private final int distance;
+        private final long[] ids;
+        
+        Match(String key, int distance, long[] ids) {
+            this.key = key;
+            this.distance = distance;
+            this.ids = ids;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        public int getDistance() {
+            return distance;
+        }
+        
+        /**
+         * Returns the IDs of the entities holding the key, in ascending order.
+         */
+        public long[] getIds() {
+            return ids;
+        }
+    }
+    
+    private static final class Node {
+        
+        final String key;
+        final Set<Long> ids = new HashSet<>(2);
+        final Map<Integer, Node> children = new HashMap<>(4);
+        /** Largest distance to a child, bounding the distances a search needs exactly. */
+        int maxEdge;
+        
+        Node(String key) {
+            this.key = key;
+        }
+    }
+    
+    @Override
+    public BkTreeIndex<T> copy() {
+        return new BkTreeIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, String> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Finds the keys within a Levenshtein distance of the query, closest first and then in key order.
+     * The query must be normalized like the keys.
+     */
+    public synchronized List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // A distance beyond this neither matches nor selects a child
+            int bound = (int) Math.min((long) maxDistance + node.maxEdge, Integer.MAX_VALUE - 1);
+            int distance = distance(query, node.key, bound);
+            if (distance <= maxDistance && !node.ids.isEmpty()) {
+                matches.add(new Match(node.key, distance, Postings.sorted(node.ids)));
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::getDistance).thenComparing(Match::getKey));
+        return matches;
+    }
+    
+    @Override
+    public synchronized void add(T entity) {
+        for (String key : definition.keysOf(entity)) {
+            add(key, entity.getId());
+        }
+    }
+    
+    @Override
+    public synchronized void remove(T entity) {
+        for (String key : definition.keysOf(entity)) {
+            remove(key, entity.getId());
+        }
+    }
+    
+    @Override
+    public synchronized void update(T previous, T current) {
+        Set<String> oldKeys = new HashSet<>(definition.keysOf(previous));
+        Set<String> newKeys = new HashSet<>(definition.keysOf(current));
+        for (String key : newKeys) {
+            if (!oldKeys.contains(key)) {
+                add(key, current.getId());
+            }
+        }
+        for (String key : oldKeys) {
+            if (!newKeys.contains(key)) {
+                remove(key, previous.getId());
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void clear() {
+        root = null;
+        liveNodes = 0;
+        deadNodes = 0;
+    }
+    
+    /**
+     * Returns the number of nodes in the tree, live or dead.
+     */
+    synchronized int nodeCount() {
+        return liveNodes + deadNodes;
+    }
+    
+    private void add(String key, Long id) {
+        if (root == null) {
+            root = new Node(key);
+            root.ids.add(id);
+            liveNodes++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(key, node.key, Integer.MAX_VALUE);
+            if (distance == 0) {
+                if (node.ids.isEmpty()) {
+                    deadNodes--;
+                    liveNodes++;
+                }
+                node.ids.add(id);
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                child = new Node(key);
+                child.ids.add(id);
+                node.children.put(distance, child);
+                node.maxEdge = Math.max(node.maxEdge, distance);
+                liveNodes++;
+                return;
+            }
+            node = child;
+        }
+    }
+    
+    private void remove(String key, Long id) {
+        Node node = root;
+        while (node != null) {
+            int distance = distance(key, node.key, Integer.MAX_VALUE);
+            if (distance == 0) {
+                if (node.ids.remove(id) && node.ids.isEmpty()) {
+                    liveNodes--;
+                    deadNodes++;
+                    if (deadNodes > liveNodes * MAX_DEAD_FRACTION) {
+                        rebuild();
+                    }
+                }
+                return;
+            }
+            node = node.children.get(distance);
+        }
+    }
+    
+    private void rebuild() {
+        Node previous = root;
+        clear();
+        addLive(previous);
+    }
+    
+    /**
+     * Computes the Levenshtein distance between two strings: the number of single character
+     * insertions, deletions and substitutions that turn one into the other.
+     */
+    static int distance(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Computes the Levenshtein distance between two strings as far as {@code bound}: distances above
+     * it are returned as {@code bound + 1}, without filling the rest of the edit matrix.
+     */
+    static int distance(String a, String b, int bound) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a.length() - b.length() > bound) {
+            return bound + 1;
+        }
+        // Two rows of the edit matrix, over the shorter string
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            int rowMinimum = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            // Distances never decrease from one row to the next
+            if (rowMinimum > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int distance = previous[b.length()];
+        return distance > bound ? bound + 1 : distance;
+    }
+}
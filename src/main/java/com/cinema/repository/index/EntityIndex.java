@@ -0,0 +1,43 @@
+package com.cinema.repository.index;
+
+import com.cinema.exception.DuplicateKeyException;
+import com.cinema.models.BaseEntity;
+
+/**
+ * A secondary index over the entities of an {@link com.cinema.repository.EntityTable}, created from
+ * an {@link IndexDefinition}. Implementations must allow lookups concurrently with changes of
+ * different entities, which happen in the striped concurrency mode.
+ * @param <T> Entity type
+ */
+public interface EntityIndex<T extends BaseEntity> {
+    
+    IndexDefinition<T, ?> getDefinition();
+    
+    /**
+     * Indexes a new entity.
+     * @throws DuplicateKeyException if the index is unique and another entity holds the key
+     */
+    void add(T entity) throws DuplicateKeyException;
+    
+    /**
+     * Removes an entity from the index.
+     */
+    void remove(T entity);
+    
+    /**
+     * Moves an entity from the entries of its previous state to those of its current state.
+     * The index is unchanged if this fails.
+     * @throws DuplicateKeyException if the index is unique and another entity holds the new key
+     */
+    void update(T previous, T current) throws DuplicateKeyException;
+    
+    /**
+     * Removes all entries.
+     */
+    void clear();
+    
+    /**
+     * Creates an independent copy of this index.
+     */
+    EntityIndex<T> copy();
+}
@@ -0,0 +1,256 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inverted index for ranked full-text search over the text of an {@link IndexDefinition}.
+ * Text is split into words, lowercased, stripped of common stop words and reduced to a light stem
+ * that folds regular plurals, so that "Wars" finds "war". Each term maps to the IDs of the entities
+ * containing it with its frequency in their text, and queries are scored with Okapi BM25, which
+ * favors rare terms and terms that make up more of a short text. Only the posting lists of the
+ * query terms are read, so the cost of a query does not depend on the number of entities.
+ * @param <T> Entity type
+ */
+public class FullTextIndex<T extends BaseEntity> implements EntityIndex<T> {
+    
+    /** BM25 term frequency saturation: higher values keep rewarding repeated terms for longer. */
+    private static final double K1 = 1.2;
+    /** BM25 length normalization: 0 ignores text length, 1 scales term frequency fully by it. */
+    private static final double B = 0.75;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of",
+            "on", "or", "that", "the", "this", "to", "was", "with");
+    
+    private final IndexDefinition<T, String> definition;
+    /** Term to entity ID to the number of times the term occurs in the entity's text. */
+    private final ConcurrentHashMap<String, Map<Long, Integer>> postings;
+    /** Entity ID to the number of terms in its text, for entities with at least one term. */
+    private final ConcurrentHashMap<Long, Integer> lengths;
+    private final AtomicLong totalLength;
+    
+    public FullTextIndex(IndexDefinition<T, String> definition) {
+        this.definition = definition;
+        this.postings = new ConcurrentHashMap<>();
+        this.lengths = new ConcurrentHashMap<>();
+        this.totalLength = new AtomicLong();
+    }
+    
+    private FullTextIndex(FullTextIndex<T> other) {
+        this.definition = other.definition;
+        this.postings = new ConcurrentHashMap<>(other.postings.size());
+        for (Map.Entry<String, Map<Long, Integer>> entry : other.postings.entrySet()) {
+            postings.put(entry.getKey(), new ConcurrentHashMap<>(entry.getValue()));
+        }
+        this.lengths = new ConcurrentHashMap<>(other.lengths);
+        this.totalLength = new AtomicLong(other.totalLength.get());
+    }
+    
+    /**
+     * A scored search result.
+     */
+    public static final class Hit {
+        
+        private final long id;
+        private final double score;
+        
+        Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+        
+        public long getId() {
+            return id;
+        }
+        
+        public double getScore() {
+            return score;
+        }
+    }
+    
+    /**
+     * Splits text into the terms that are indexed and searched, in order of occurrence.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(word)) {
+                    terms.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+    
+    /**
+     * Reduces a word to a light stem that folds regular plurals into the singular. A final "y"
+     * becomes "ie", so that "story" and "stories" share the stem of "movie" and "movies".
+     */
+    static String stem(String word) {
+        String stem = word;
+        if (stem.length() > 4 && (stem.endsWith("xes") || stem.endsWith("ches") || stem.endsWith("shes")
+                || stem.endsWith("sses"))) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.length() > 3 && stem.endsWith("s") && !stem.endsWith("us") && !stem.endsWith("ss")
+                && !stem.endsWith("is")) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        if (stem.length() > 2 && stem.endsWith("y")) {
+            stem = stem.substring(0, stem.length() - 1) + "ie";
+        }
+        return stem;
+    }
+    
+    @Override
+    public FullTextIndex<T> copy() {
+        return new FullTextIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, String> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns the entities that contain any term of the query, highest BM25 score first and then in
+     * ascending ID order.
+     * @param limit maximum number of hits to return
+     */
+    public List<Hit> search(String query, int limit) {
+        Map<String, Integer> terms = frequencies(tokenize(query));
+        long count = lengths.size();
+        if (terms.isEmpty() || count == 0 || limit <= 0) {
+            return List.of();
+        }
+        double averageLength = (double) totalLength.get() / count;
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            Map<Long, Integer> ids = postings.get(term.getKey());
+            if (ids == null) {
+                continue;
+            }
+            int frequency = ids.size();
+            double idf = Math.log(1 + (count - frequency + 0.5) / (frequency + 0.5));
+            for (Map.Entry<Long, Integer> posting : ids.entrySet()) {
+                Integer length = lengths.get(posting.getKey());
+                double tf = posting.getValue();
+                double norm = K1 * (1 - B + B * (length == null ? averageLength : length) / averageLength);
+                // A term repeated in the query counts that many times
+                double score = term.getValue() * idf * tf * (K1 + 1) / (tf + norm);
+                scores.merge(posting.getKey(), score, Double::sum);
+            }
+        }
+        
+        // Keep the best hits in a heap whose head is the worst of them
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::getScore).reversed()
+                .thenComparingLong(Hit::getId);
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, order.reversed());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            best.add(new Hit(entry.getKey(), entry.getValue()));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Hit> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+    
+    @Override
+    public void add(T entity) {
+        List<String> terms = tokenize(definition.keyOf(entity));
+        Map<String, Integer> frequencies = frequencies(terms);
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            put(term.getKey(), entity.getId(), term.getValue());
+        }
+        setLength(entity.getId(), terms.size());
+    }
+    
+    @Override
+    public void remove(T entity) {
+        for (String term : frequencies(tokenize(definition.keyOf(entity))).keySet()) {
+            delete(term, entity.getId());
+        }
+        setLength(entity.getId(), 0);
+    }
+    
+    @Override
+    public void update(T previous, T current) {
+        String oldText = definition.keyOf(previous);
+        String newText = definition.keyOf(current);
+        if (Objects.equals(oldText, newText)) {
+            return;
+        }
+        // Add the new postings before removing the old ones, so that the entity stays findable
+        Map<String, Integer> oldTerms = frequencies(tokenize(oldText));
+        List<String> newTerms = tokenize(newText);
+        Map<String, Integer> newFrequencies = frequencies(newTerms);
+        for (Map.Entry<String, Integer> term : newFrequencies.entrySet()) {
+            put(term.getKey(), current.getId(), term.getValue());
+        }
+        for (String term : oldTerms.keySet()) {
+            if (!newFrequencies.containsKey(term)) {
+                delete(term, previous.getId());
+            }
+        }
+        setLength(current.getId(), newTerms.size());
+    }
+    
+    @Override
+    public void clear() {
+        postings.clear();
+        lengths.clear();
+        totalLength.set(0);
+    }
+    
+    private void put(String term, Long id, int frequency) {
+        // Inside compute, so that a concurrent removal cannot drop the map before the ID is added
+        postings.compute(term, (t, ids) -> {
+            Map<Long, Integer> result = ids != null ? ids : new ConcurrentHashMap<>();
+            result.put(id, frequency);
+            return result;
+        });
+    }
+    
+    private void delete(String term, Long id) {
+        postings.computeIfPresent(term, (t, ids) -> ids.remove(id) != null && ids.isEmpty() ? null : ids);
+    }
+    
+    private void setLength(Long id, int length) {
+        Integer previous = length == 0 ? lengths.remove(id) : lengths.put(id, length);
+        totalLength.addAndGet(length - (previous == null ? 0 : previous));
+    }
+    
+    private static Map<String, Integer> frequencies(List<String> terms) {
+        if (terms.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+}
@@ -0,0 +1,88 @@
+package com.cinema.repository.index;
+
+import com.cinema.exception.DuplicateKeyException;
+import com.cinema.models.BaseEntity;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Unique hash index from the normalized keys of an {@link IndexDefinition} to entity IDs.
+ * Lookups may run concurrently with each other and with changes of different entities; a key is
+ * claimed atomically, so two entities can never both hold the same key.
+ * @param <T> Entity type
+ * @param <K> Key type
+ */
+public class HashIndex<T extends BaseEntity, K> implements EntityIndex<T> {
+    
+    private final IndexDefinition<T, K> definition;
+    private final ConcurrentHashMap<K, Long> ids;
+    
+    public HashIndex(IndexDefinition<T, K> definition) {
+        this.definition = definition;
+        this.ids = new ConcurrentHashMap<>();
+    }
+    
+    private HashIndex(HashIndex<T, K> other) {
+        this.definition = other.definition;
+        this.ids = new ConcurrentHashMap<>(other.ids);
+    }
+    
+    @Override
+    public HashIndex<T, K> copy() {
+        return new HashIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, K> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns the ID of the entity indexed under the key, or null if none.
+     */
+    public Long get(K key) {
+        return key == null ? null : ids.get(key);
+    }
+    
+    @Override
+    public void add(T entity) throws DuplicateKeyException {
+        K key = definition.keyOf(entity);
+        if (key == null) {
+            return;
+        }
+        Long existing = ids.putIfAbsent(key, entity.getId());
+        if (existing != null && !existing.equals(entity.getId())) {
+            throw new DuplicateKeyException(definition.getName(), key, existing);
+        }
+    }
+    
+    @Override
+    public void remove(T entity) {
+        K key = definition.keyOf(entity);
+        if (key != null) {
+            ids.remove(key, entity.getId());
+        }
+    }
+    
+    /**
+     * Claims the new key before releasing the old one, so the index is unchanged on failure.
+     */
+    @Override
+    public void update(T previous, T current) throws DuplicateKeyException {
+        K oldKey = definition.keyOf(previous);
+        K newKey = definition.keyOf(current);
+        if (Objects.equals(oldKey, newKey)) {
+            return;
+        }
+        add(current);
+        if (oldKey != null) {
+            ids.remove(oldKey, previous.getId());
+        }
+    }
+    
+    @Override
+    public void clear() {
+        ids.clear();
+    }
+}
@@ -0,0 +1,277 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+import com.cinema.repository.query.Field;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Declares a secondary index of a repository: a name and a function that extracts the normalized
+ * key of an entity. Entities whose key is null are not indexed. A multi-valued definition extracts
+ * any number of keys per entity instead. Definitions are compared by identity, so a repository
+ * declares each one once, typically as a constant. A definition declared over a {@link Field} is
+ * used by the {@link com.cinema.repository.query.QueryPlanner} for criteria on that field.
+ * @param <T> Entity type
+ * @param <K> Key type
+ */
+public final class IndexDefinition<T extends BaseEntity, K> {
+    
+    /**
+     * The kind of index created for a definition.
+     */
+    public enum Kind {
+        /** {@link HashIndex}: at most one entity per key. */
+        UNIQUE,
+        /** {@link MultiHashIndex}: any number of entities per key. */
+        MULTI,
+        /** {@link NGramIndex}: substring search over text keys. */
+        NGRAM,
+        /** {@link SortedIndex}: range and top-K queries over numeric keys. */
+        SORTED,
+        /** {@link BitmapIndex}: keys with few distinct values, combined by AND and OR. */
+        BITMAP,
+        /** {@link FullTextIndex}: ranked search for the words of a text. */
+        FULL_TEXT,
+        /** {@link BkTreeIndex}: text keys within an edit distance of a query. */
+        FUZZY
+    }
+    
+    private final String name;
+    /** The field whose values are indexed, or null if the index is not available to queries. */
+    private final Field<T, ?> field;
+    /** Null for multi-valued definitions. */
+    private final Function<? super T, ? extends K> keyExtractor;
+    private final Function<? super T, ? extends Collection<? extends K>> keysExtractor;
+    private final BiPredicate<? super T, ? super K> keyTest;
+    private final Kind kind;
+    
+    private IndexDefinition(String name, Field<T, ?> field, Function<? super T, ? extends K> keyExtractor, Kind kind) {
+        this.name = name;
+        this.field = field;
+        this.keyExtractor = keyExtractor;
+        this.keysExtractor = entity -> {
+            K key = keyExtractor.apply(entity);
+            return key == null ? List.of() : List.of(key);
+        };
+        this.keyTest = (entity, key) -> key.equals(keyExtractor.apply(entity));
+        this.kind = kind;
+    }
+    
+    private IndexDefinition(String name, Function<? super T, ? extends Collection<? extends K>> keysExtractor,
+                            BiPredicate<? super T, ? super K> keyTest, Kind kind) {
+        this.name = name;
+        this.field = null;
+        this.keyExtractor = null;
+        this.keysExtractor = keysExtractor;
+        this.keyTest = keyTest;
+        this.kind = kind;
+    }
+    
+    /**
+     * Declares an index that allows at most one entity per key.
+     */
+    public static <T extends BaseEntity, K> IndexDefinition<T, K> unique(String name,
+                                                                         Function<? super T, ? extends K> keyExtractor) {
+        return new IndexDefinition<>(name, null, keyExtractor, Kind.UNIQUE);
+    }
+    
+    /**
+     * Declares an index that maps each key to any number of entities.
+     */
+    public static <T extends BaseEntity, K> IndexDefinition<T, K> nonUnique(String name,
+                                                                            Function<? super T, ? extends K> keyExtractor) {
+        return new IndexDefinition<>(name, null, keyExtractor, Kind.MULTI);
+    }
+    
+    /**
+     * Declares a bitmap index, for keys with few distinct values that are filtered in combination.
+     */
+    public static <T extends BaseEntity, K> IndexDefinition<T, K> bitmap(String name,
+                                                                         Function<? super T, ? extends K> keyExtractor) {
+        return new IndexDefinition<>(name, null, keyExtractor, Kind.BITMAP);
+    }
+    
+    /**
+     * Declares a unique index over the normalized values of a field, see {@link #normalizeKey}.
+     */
+    public static <T extends BaseEntity, V> IndexDefinition<T, V> unique(Field<T, V> field) {
+        return new IndexDefinition<>(field.getName(), field, entity -> normalizeKey(field.get(entity)), Kind.UNIQUE);
+    }
+    
+    /**
+     * Declares a non-unique hash index over the normalized values of a field, see {@link #normalizeKey}.
+     */
+    public static <T extends BaseEntity, V> IndexDefinition<T, V> nonUnique(Field<T, V> field) {
+        return new IndexDefinition<>(field.getName(), field, entity -> normalizeKey(field.get(entity)), Kind.MULTI);
+    }
+    
+    /**
+     * Declares a bitmap index over the normalized values of a field, see {@link #normalizeKey}.
+     */
+    public static <T extends BaseEntity, V> IndexDefinition<T, V> bitmap(Field<T, V> field) {
+        return new IndexDefinition<>(field.getName(), field, entity -> normalizeKey(field.get(entity)), Kind.BITMAP);
+    }
+    
+    /**
+     * Declares a trigram index over a text field.
+     */
+    public static <T extends BaseEntity> IndexDefinition<T, String> ngram(Field<T, String> field) {
+        return new IndexDefinition<>(field.getName(), field, entity -> NGramIndex.normalize(field.get(entity)),
+                Kind.NGRAM);
+    }
+    
+    /**
+     * Declares an ordered index over a numeric field.
+     */
+    public static <T extends BaseEntity> IndexDefinition<T, Double> sorted(Field<T, ? extends Number> field) {
+        return new IndexDefinition<>(field.getName(), field, entity -> {
+            Number value = field.get(entity);
+            return value == null ? null : value.doubleValue();
+        }, Kind.SORTED);
+    }
+    
+    /**
+     * Declares an index that maps each of the keys an entity holds to the entity, such as a reverse
+     * index over a list of references.
+     * @param keysExtractor returns the distinct keys of an entity; called when the entity is indexed
+     * @param keyTest checks whether an entity holds a key, preferably without allocating; called on lookups
+     */
+    public static <T extends BaseEntity, K> IndexDefinition<T, K> multiValued(
+            String name,
+            Function<? super T, ? extends Collection<? extends K>> keysExtractor,
+            BiPredicate<? super T, ? super K> keyTest) {
+        return new IndexDefinition<>(name, keysExtractor, keyTest, Kind.MULTI);
+    }
+    
+    /**
+     * Declares a BK-tree index for lookups by similar text, over the normalized keys an entity holds.
+     * @param keysExtractor returns the distinct keys of an entity, normalized as the queries will be
+     */
+    public static <T extends BaseEntity> IndexDefinition<T, String> fuzzy(
+            String name, Function<? super T, ? extends Collection<String>> keysExtractor) {
+        return new IndexDefinition<>(name, keysExtractor,
+                (entity, key) -> keysExtractor.apply(entity).contains(key), Kind.FUZZY);
+    }
+    
+    /**
+     * Declares a trigram index for case-insensitive substring search over the extracted text.
+     */
+    public static <T extends BaseEntity> IndexDefinition<T, String> ngram(String name,
+                                                                        Function<? super T, String> textExtractor) {
+        return new IndexDefinition<>(name, null, entity -> NGramIndex.normalize(textExtractor.apply(entity)), Kind.NGRAM);
+    }
+    
+    /**
+     * Declares an inverted index for ranked search by the words of the extracted text.
+     */
+    public static <T extends BaseEntity> IndexDefinition<T, String> fullText(String name,
+                                                                           Function<? super T, String> textExtractor) {
+        return new IndexDefinition<>(name, null, textExtractor, Kind.FULL_TEXT);
+    }
+    
+    /**
+     * Declares an ordered index over a numeric key, for range and top-K queries.
+     */
+    public static <T extends BaseEntity> IndexDefinition<T, Double> sorted(String name,
+                                                                         ToDoubleFunction<? super T> keyExtractor) {
+        return new IndexDefinition<>(name, null, entity -> keyExtractor.applyAsDouble(entity), Kind.SORTED);
+    }
+    
+    /**
+     * Normalizes a text key so that it matches regardless of case and surrounding whitespace.
+     * @return the normalized key, or null for a null or blank value
+     */
+    public static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Normalizes the value of a field for use as a key: text as by {@link #normalize(String)}, other
+     * values unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> V normalizeKey(V value) {
+        return value instanceof String ? (V) normalize((String) value) : value;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Returns the field whose values are indexed, or null if the index is not declared over a field.
+     */
+    public Field<T, ?> getField() {
+        return field;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public boolean isUnique() {
+        return kind == Kind.UNIQUE;
+    }
+    
+    /**
+     * Extracts the normalized key of an entity.
+     * @return the key, or null if the entity is not indexed
+     * @throws UnsupportedOperationException if the definition is multi-valued
+     */
+    public K keyOf(T entity) {
+        if (keyExtractor == null) {
+            throw new UnsupportedOperationException("Index " + name + " is multi-valued");
+        }
+        return keyExtractor.apply(entity);
+    }
+    
+    /**
+     * Extracts all normalized keys of an entity.
+     */
+    public Collection<? extends K> keysOf(T entity) {
+        return keysExtractor.apply(entity);
+    }
+    
+    /**
+     * Checks whether an entity currently holds a key.
+     */
+    public boolean hasKey(T entity, K key) {
+        return keyTest.test(entity, key);
+    }
+    
+    /**
+     * Creates an empty index for this definition.
+     */
+    @SuppressWarnings("unchecked")
+    public EntityIndex<T> createIndex() {
+        switch (kind) {
+            case UNIQUE:
+                return new HashIndex<>(this);
+            case NGRAM:
+                return new NGramIndex<>((IndexDefinition<T, String>) this);
+            case SORTED:
+                return new SortedIndex<>((IndexDefinition<T, Double>) this);
+            case BITMAP:
+                return new BitmapIndex<>(this);
+            case FULL_TEXT:
+                return new FullTextIndex<>((IndexDefinition<T, String>) this);
+            case FUZZY:
+                return new BkTreeIndex<>((IndexDefinition<T, String>) this);
+            default:
+                return new MultiHashIndex<>(this);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
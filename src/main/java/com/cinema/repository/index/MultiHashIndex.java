@@ -0,0 +1,88 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Non-unique hash index from the normalized keys of an {@link IndexDefinition} to the IDs of all
+ * entities with that key. Entities of a multi-valued definition are indexed under each of their keys.
+ * @param <T> Entity type
+ * @param <K> Key type
+ */
+public class MultiHashIndex<T extends BaseEntity, K> implements EntityIndex<T> {
+    
+    private final IndexDefinition<T, K> definition;
+    private final Postings<K> postings;
+    
+    public MultiHashIndex(IndexDefinition<T, K> definition) {
+        this.definition = definition;
+        this.postings = new Postings<>();
+    }
+    
+    private MultiHashIndex(MultiHashIndex<T, K> other) {
+        this.definition = other.definition;
+        this.postings = new Postings<>(other.postings);
+    }
+    
+    @Override
+    public MultiHashIndex<T, K> copy() {
+        return new MultiHashIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, K> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns the IDs of the entities indexed under the key, in ascending order.
+     */
+    public long[] get(K key) {
+        return postings.sorted(key);
+    }
+    
+    /**
+     * Returns the number of entities indexed under the key.
+     */
+    public int count(K key) {
+        Set<Long> ids = postings.get(key);
+        return ids == null ? 0 : ids.size();
+    }
+    
+    @Override
+    public void add(T entity) {
+        for (K key : definition.keysOf(entity)) {
+            postings.add(key, entity.getId());
+        }
+    }
+    
+    @Override
+    public void remove(T entity) {
+        for (K key : definition.keysOf(entity)) {
+            postings.remove(key, entity.getId());
+        }
+    }
+    
+    @Override
+    public void update(T previous, T current) {
+        Collection<? extends K> oldKeys = definition.keysOf(previous);
+        Collection<? extends K> newKeys = definition.keysOf(current);
+        for (K key : newKeys) {
+            if (!oldKeys.contains(key)) {
+                postings.add(key, current.getId());
+            }
+        }
+        for (K key : oldKeys) {
+            if (!newKeys.contains(key)) {
+                postings.remove(key, previous.getId());
+            }
+        }
+    }
+    
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+}
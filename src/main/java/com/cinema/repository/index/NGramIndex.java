@@ -0,0 +1,151 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Trigram index for case-insensitive substring search over the text of an {@link IndexDefinition}.
+ * Every run of three characters of an entity's text maps to the IDs of the entities containing it;
+ * a query is answered by intersecting the posting lists of its own trigrams, which yields every
+ * entity containing the query and possibly a few that contain its trigrams in another arrangement.
+ * Callers must verify the candidates, see {@link com.cinema.repository.EntityTable#search}.
+ * @param <T> Entity type
+ */
+public class NGramIndex<T extends BaseEntity> implements EntityIndex<T> {
+    
+    /** Length of the indexed character runs; shorter queries cannot use the index. */
+    public static final int GRAM_LENGTH = 3;
+    
+    private final IndexDefinition<T, String> definition;
+    private final Postings<Long> postings;
+    
+    public NGramIndex(IndexDefinition<T, String> definition) {
+        this.definition = definition;
+        this.postings = new Postings<>();
+    }
+    
+    private NGramIndex(NGramIndex<T> other) {
+        this.definition = other.definition;
+        this.postings = new Postings<>(other.postings);
+    }
+    
+    /**
+     * Normalizes text for indexing and querying.
+     */
+    public static String normalize(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+    
+    @Override
+    public NGramIndex<T> copy() {
+        return new NGramIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, String> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns the IDs of the entities whose text contains every trigram of the query, in ascending
+     * order. The query must be normalized and at least {@link #GRAM_LENGTH} characters long.
+     */
+    public long[] candidates(String query) {
+        Set<Long> grams = grams(query);
+        List<Set<Long>> lists = new ArrayList<>(grams.size());
+        for (Long gram : grams) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Postings.NONE;
+            }
+            lists.add(ids);
+        }
+        // Walk the shortest list and probe the others
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            boolean all = true;
+            for (int i = 1; i < lists.size() && all; i++) {
+                all = lists.get(i).contains(id);
+            }
+            if (all) {
+                result.add(id);
+            }
+        }
+        return Postings.sorted(result);
+    }
+    
+    /**
+     * Estimates the number of candidates for a query as the length of its shortest posting list.
+     * The query must be normalized and at least {@link #GRAM_LENGTH} characters long.
+     */
+    public long estimate(String query) {
+        long estimate = Long.MAX_VALUE;
+        for (Long gram : grams(query)) {
+            Set<Long> ids = postings.get(gram);
+            estimate = Math.min(estimate, ids == null ? 0 : ids.size());
+        }
+        return estimate;
+    }
+    
+    @Override
+    public void add(T entity) {
+        for (Long gram : grams(definition.keyOf(entity))) {
+            postings.add(gram, entity.getId());
+        }
+    }
+    
+    @Override
+    public void remove(T entity) {
+        for (Long gram : grams(definition.keyOf(entity))) {
+            postings.remove(gram, entity.getId());
+        }
+    }
+    
+    @Override
+    public void update(T previous, T current) {
+        String oldText = definition.keyOf(previous);
+        String newText = definition.keyOf(current);
+        if (Objects.equals(oldText, newText)) {
+            return;
+        }
+        Set<Long> oldGrams = grams(oldText);
+        Set<Long> newGrams = grams(newText);
+        for (Long gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.add(gram, current.getId());
+            }
+        }
+        for (Long gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                postings.remove(gram, previous.getId());
+            }
+        }
+    }
+    
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+    
+    /**
+     * Returns the distinct trigrams of the text, each packed into the low 48 bits of a long.
+     */
+    private static Set<Long> grams(String text) {
+        if (text == null || text.length() < GRAM_LENGTH) {
+            return Set.of();
+        }
+        Set<Long> grams = new HashSet<>(text.length() * 2);
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return grams;
+    }
+}
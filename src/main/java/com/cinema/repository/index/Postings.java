@@ -0,0 +1,73 @@
+package com.cinema.repository.index;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map from keys to the IDs of the entities holding them, shared by the non-unique indexes.
+ * Changes to the IDs of one key are serialized by the map, and lookups may run concurrently with them.
+ * @param <K> Key type
+ */
+final class Postings<K> {
+    
+    static final long[] NONE = new long[0];
+    
+    private final ConcurrentHashMap<K, Set<Long>> ids;
+    
+    Postings() {
+        this.ids = new ConcurrentHashMap<>();
+    }
+    
+    Postings(Postings<K> other) {
+        this.ids = new ConcurrentHashMap<>(other.ids.size());
+        for (Map.Entry<K, Set<Long>> entry : other.ids.entrySet()) {
+            Set<Long> copy = ConcurrentHashMap.newKeySet(entry.getValue().size());
+            copy.addAll(entry.getValue());
+            ids.put(entry.getKey(), copy);
+        }
+    }
+    
+    /**
+     * Returns the live set of IDs under the key, or null if none.
+     */
+    Set<Long> get(K key) {
+        return key == null ? null : ids.get(key);
+    }
+    
+    /**
+     * Returns the IDs under the key in ascending order.
+     */
+    long[] sorted(K key) {
+        Set<Long> set = get(key);
+        return set == null ? NONE : sorted(set);
+    }
+    
+    static long[] sorted(Set<Long> set) {
+        long[] result = set.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+    
+    void add(K key, Long id) {
+        if (key != null) {
+            // Inside compute, so that a concurrent removal cannot drop the set before the ID is added
+            ids.compute(key, (k, set) -> {
+                Set<Long> result = set != null ? set : ConcurrentHashMap.newKeySet();
+                result.add(id);
+                return result;
+            });
+        }
+    }
+    
+    void remove(K key, Long id) {
+        if (key != null) {
+            ids.computeIfPresent(key, (k, set) -> set.remove(id) && set.isEmpty() ? null : set);
+        }
+    }
+    
+    void clear() {
+        ids.clear();
+    }
+}
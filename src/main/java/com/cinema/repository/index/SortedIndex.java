@@ -0,0 +1,135 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Ordered index over a numeric key of an {@link IndexDefinition}, answering range and top-K queries
+ * in key order without sorting. Backed by a skip list of (key, ID) entries, so lookups may run
+ * concurrently with changes of different entities. An entity being updated may briefly appear under
+ * both its old and new key; callers keep only the entry matching the entity's current key.
+ * @param <T> Entity type
+ */
+public class SortedIndex<T extends BaseEntity> implements EntityIndex<T> {
+    
+    /**
+     * An indexed key and the ID of the entity holding it, ordered by key, then ID.
+     */
+    public static final class Entry implements Comparable<Entry> {
+        
+        private final double key;
+        private final long id;
+        
+        Entry(double key, long id) {
+            this.key = key;
+            this.id = id;
+        }
+        
+        public double getKey() {
+            return key;
+        }
+        
+        public long getId() {
+            return id;
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            int byKey = Double.compare(key, other.key);
+            return byKey != 0 ? byKey : Long.compare(id, other.id);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && compareTo((Entry) o) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Double.hashCode(key) * 31 + Long.hashCode(id);
+        }
+    }
+    
+    private final IndexDefinition<T, Double> definition;
+    private final ConcurrentSkipListSet<Entry> entries;
+    
+    public SortedIndex(IndexDefinition<T, Double> definition) {
+        this.definition = definition;
+        this.entries = new ConcurrentSkipListSet<>();
+    }
+    
+    private SortedIndex(SortedIndex<T> other) {
+        this.definition = other.definition;
+        this.entries = new ConcurrentSkipListSet<>(other.entries);
+    }
+    
+    @Override
+    public SortedIndex<T> copy() {
+        return new SortedIndex<>(this);
+    }
+    
+    @Override
+    public IndexDefinition<T, Double> getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * Returns a live view of the entries with keys between {@code from} and {@code to}, both inclusive.
+     * @param descending whether to iterate from the highest key down
+     */
+    public NavigableSet<Entry> range(double from, double to, boolean descending) {
+        if (Double.compare(from, to) > 0) {
+            return new ConcurrentSkipListSet<>();
+        }
+        NavigableSet<Entry> range = entries.subSet(new Entry(from, Long.MIN_VALUE), true,
+                new Entry(to, Long.MAX_VALUE), true);
+        return descending ? range.descendingSet() : range;
+    }
+    
+    /**
+     * Counts the entries with keys between {@code from} and {@code to}, both inclusive, stopping at {@code cap}.
+     */
+    public long count(double from, double to, long cap) {
+        long count = 0;
+        for (Iterator<Entry> it = range(from, to, false).iterator(); it.hasNext() && count < cap; it.next()) {
+            count++;
+        }
+        return count;
+    }
+    
+    @Override
+    public void add(T entity) {
+        Double key = definition.keyOf(entity);
+        if (key != null) {
+            entries.add(new Entry(key, entity.getId()));
+        }
+    }
+    
+    @Override
+    public void remove(T entity) {
+        Double key = definition.keyOf(entity);
+        if (key != null) {
+            entries.remove(new Entry(key, entity.getId()));
+        }
+    }
+    
+    /**
+     * Adds the new entry before removing the old one, so that a concurrent range query never misses the entity.
+     */
+    @Override
+    public void update(T previous, T current) {
+        if (!Objects.equals(definition.keyOf(previous), definition.keyOf(current))) {
+            add(current);
+            remove(previous);
+        }
+    }
+    
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+}
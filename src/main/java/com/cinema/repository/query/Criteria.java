@@ -0,0 +1,209 @@
+package com.cinema.repository.query;
+
+import com.cinema.models.BaseEntity;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.index.NGramIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * A condition on entities, built from field comparisons combined with AND and OR. Text comparisons
+ * ignore case; equality on text also ignores surrounding whitespace, as the indexes do.
+ * @param <T> Entity type
+ */
+public abstract class Criteria<T extends BaseEntity> {
+    
+    Criteria() {
+    }
+    
+    /**
+     * Checks whether an entity satisfies this condition.
+     */
+    public abstract boolean test(T entity);
+    
+    /**
+     * Matches entities whose field equals the value.
+     */
+    public static <T extends BaseEntity, V> Criteria<T> eq(Field<T, V> field, V value) {
+        return new Equals<>(field, value);
+    }
+    
+    /**
+     * Matches entities whose numeric field lies between {@code min} and {@code max}, both inclusive.
+     */
+    public static <T extends BaseEntity> Criteria<T> between(Field<T, ? extends Number> field, double min, double max) {
+        return new Range<>(field, min, max);
+    }
+    
+    /**
+     * Matches entities whose numeric field is at least {@code min}.
+     */
+    public static <T extends BaseEntity> Criteria<T> atLeast(Field<T, ? extends Number> field, double min) {
+        return new Range<>(field, min, Double.POSITIVE_INFINITY);
+    }
+    
+    /**
+     * Matches entities whose numeric field is at most {@code max}.
+     */
+    public static <T extends BaseEntity> Criteria<T> atMost(Field<T, ? extends Number> field, double max) {
+        return new Range<>(field, Double.NEGATIVE_INFINITY, max);
+    }
+    
+    /**
+     * Matches entities whose text field contains the text.
+     */
+    public static <T extends BaseEntity> Criteria<T> contains(Field<T, String> field, String text) {
+        return new Contains<>(field, text);
+    }
+    
+    /**
+     * Matches entities that satisfy all conditions.
+     */
+    @SafeVarargs
+    public static <T extends BaseEntity> Criteria<T> and(Criteria<T>... criteria) {
+        List<Criteria<T>> conditions = new ArrayList<>(criteria.length);
+        // Copied here rather than passed on, which would make the generic varargs array unchecked
+        for (Criteria<T> condition : criteria) {
+            conditions.add(condition);
+        }
+        return new And<>(conditions);
+    }
+    
+    /**
+     * Matches entities that satisfy any of the conditions.
+     */
+    @SafeVarargs
+    public static <T extends BaseEntity> Criteria<T> or(Criteria<T>... criteria) {
+        List<Criteria<T>> conditions = new ArrayList<>(criteria.length);
+        for (Criteria<T> condition : criteria) {
+            conditions.add(condition);
+        }
+        return new Or<>(conditions);
+    }
+    
+    static final class Equals<T extends BaseEntity, V> extends Criteria<T> {
+        
+        final Field<T, V> field;
+        final V key;
+        private final V value;
+        
+        Equals(Field<T, V> field, V value) {
+            this.field = field;
+            this.value = value;
+            this.key = IndexDefinition.normalizeKey(value);
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            return Objects.equals(key, IndexDefinition.normalizeKey(field.get(entity)));
+        }
+        
+        @Override
+        public String toString() {
+            return field + " = " + (value instanceof String ? "'" + value + "'" : value);
+        }
+    }
+    
+    static final class Range<T extends BaseEntity> extends Criteria<T> {
+        
+        final Field<T, ? extends Number> field;
+        final double min;
+        final double max;
+        
+        Range(Field<T, ? extends Number> field, double min, double max) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            Number value = field.get(entity);
+            return value != null && value.doubleValue() >= min && value.doubleValue() <= max;
+        }
+        
+        @Override
+        public String toString() {
+            if (max == Double.POSITIVE_INFINITY) {
+                return field + " >= " + min;
+            }
+            if (min == Double.NEGATIVE_INFINITY) {
+                return field + " <= " + max;
+            }
+            return field + " BETWEEN " + min + " AND " + max;
+        }
+    }
+    
+    static final class Contains<T extends BaseEntity> extends Criteria<T> {
+        
+        final Field<T, String> field;
+        final String text;
+        
+        Contains(Field<T, String> field, String text) {
+            this.field = field;
+            this.text = NGramIndex.normalize(text);
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            String value = NGramIndex.normalize(field.get(entity));
+            return value != null && value.contains(text);
+        }
+        
+        @Override
+        public String toString() {
+            return field + " CONTAINS '" + text + "'";
+        }
+    }
+    
+    static final class And<T extends BaseEntity> extends Criteria<T> {
+        
+        final List<Criteria<T>> criteria;
+        
+        And(List<Criteria<T>> criteria) {
+            this.criteria = List.copyOf(criteria);
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            for (Criteria<T> c : criteria) {
+                if (!c.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public String toString() {
+            return criteria.stream().map(Criteria::toString).collect(Collectors.joining(" AND ", "(", ")"));
+        }
+    }
+    
+    static final class Or<T extends BaseEntity> extends Criteria<T> {
+        
+        final List<Criteria<T>> criteria;
+        
+        Or(List<Criteria<T>> criteria) {
+            this.criteria = List.copyOf(criteria);
+        }
+        
+        @Override
+        public boolean test(T entity) {
+            for (Criteria<T> c : criteria) {
+                if (c.test(entity)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public String toString() {
+            return criteria.stream().map(Criteria::toString).collect(Collectors.joining(" OR ", "(", ")"));
+        }
+    }
+}
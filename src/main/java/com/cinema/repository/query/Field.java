@@ -0,0 +1,43 @@
+package com.cinema.repository.query;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.function.Function;
+
+/**
+ * A named, readable property of an entity that queries can filter and sort on. Repositories
+ * declare their fields as constants and build indexes over them, which the {@link QueryPlanner}
+ * then finds by field. Fields are compared by identity.
+ * @param <T> Entity type
+ * @param <V> Value type
+ */
+public final class Field<T extends BaseEntity, V> {
+    
+    private final String name;
+    private final Function<? super T, ? extends V> getter;
+    
+    private Field(String name, Function<? super T, ? extends V> getter) {
+        this.name = name;
+        this.getter = getter;
+    }
+    
+    public static <T extends BaseEntity, V> Field<T, V> of(String name, Function<? super T, ? extends V> getter) {
+        return new Field<>(name, getter);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Reads the value of this field from an entity.
+     */
+    public V get(T entity) {
+        return getter.apply(entity);
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
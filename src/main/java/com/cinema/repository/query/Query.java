@@ -0,0 +1,76 @@
+package com.cinema.repository.query;
+
+import com.cinema.models.BaseEntity;
+
+/**
+ * A query for {@link com.cinema.repository.Repository#find}: an optional condition, an optional
+ * sort field and a limit. Built with chained calls, e.g.
+ * {@code Query.where(Criteria.eq(GENRE, "Drama")).orderBy(RATING, true).limit(10)}.
+ * @param <T> Entity type
+ */
+public final class Query<T extends BaseEntity> {
+    
+    private final Criteria<T> criteria;
+    private Field<T, ? extends Comparable<?>> orderBy;
+    private boolean descending;
+    private int limit = Integer.MAX_VALUE;
+    
+    private Query(Criteria<T> criteria) {
+        this.criteria = criteria;
+    }
+    
+    /**
+     * Starts a query for the entities matching the criteria.
+     */
+    public static <T extends BaseEntity> Query<T> where(Criteria<T> criteria) {
+        return new Query<>(criteria);
+    }
+    
+    /**
+     * Starts a query for all entities.
+     */
+    public static <T extends BaseEntity> Query<T> all() {
+        return new Query<>(null);
+    }
+    
+    /**
+     * Sorts the results by a field, in ascending order or, if {@code descending}, highest first.
+     * Entities whose field is null come last, and ties are broken by ID in the same direction.
+     * Without a sort field, the order of the results depends on the plan.
+     */
+    public Query<T> orderBy(Field<T, ? extends Comparable<?>> field, boolean descending) {
+        this.orderBy = field;
+        this.descending = descending;
+        return this;
+    }
+    
+    /**
+     * Returns at most {@code limit} results.
+     */
+    public Query<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+    
+    /**
+     * Returns the condition, or null if the query matches all entities.
+     */
+    public Criteria<T> getCriteria() {
+        return criteria;
+    }
+    
+    public Field<T, ? extends Comparable<?>> getOrderBy() {
+        return orderBy;
+    }
+    
+    public boolean isDescending() {
+        return descending;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,239 @@
+package com.cinema.repository.query;
+
+import com.cinema.models.BaseEntity;
+import com.cinema.repository.EntityTable;
+import com.cinema.repository.index.BitmapIndex;
+import com.cinema.repository.index.EntityIndex;
+import com.cinema.repository.index.HashIndex;
+import com.cinema.repository.index.MultiHashIndex;
+import com.cinema.repository.index.NGramIndex;
+import com.cinema.repository.index.SortedIndex;
+import com.cinema.utils.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * The plan the {@link QueryPlanner} chose for a query on one table: where the candidate entities
+ * come from, and whether the results are sorted afterwards or read in order from a sorted index.
+ * Candidates from indexes are always verified against the full criteria. A plan is bound to the
+ * table it was made for and must be executed while the caller still holds its view of that table.
+ * {@link #toString()} describes the plan, one step per line with inputs indented below.
+ * @param <T> Entity type
+ */
+public final class QueryPlan<T extends BaseEntity> {
+    
+    private final EntityTable<T> table;
+    private final Query<T> query;
+    private final Source<T> source;
+    private final SortedIndex<T> orderIndex;
+    private final long orderEstimate;
+    
+    QueryPlan(EntityTable<T> table, Query<T> query, Source<T> source, SortedIndex<T> orderIndex, long orderEstimate) {
+        this.table = table;
+        this.query = query;
+        this.source = source;
+        this.orderIndex = orderIndex;
+        this.orderEstimate = orderEstimate;
+    }
+    
+    /**
+     * Runs the plan.
+     */
+    public List<T> execute() {
+        Criteria<T> criteria = query.getCriteria();
+        Predicate<T> filter = criteria == null ? entity -> true : criteria::test;
+        int limit = query.getLimit();
+        if (orderIndex != null) {
+            return readInOrder(filter, limit);
+        }
+        
+        List<T> result = source != null
+                ? table.resolve(source.ids(), filter)
+                : table.stream().filter(filter).collect(Collectors.toList());
+        if (query.getOrderBy() != null) {
+            result.sort(comparator(query.getOrderBy(), query.isDescending()));
+        }
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+    
+    private List<T> readInOrder(Predicate<T> filter, int limit) {
+        List<T> result = new ArrayList<>();
+        for (SortedIndex.Entry entry : orderIndex.range(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                query.isDescending())) {
+            if (result.size() >= limit) {
+                return result;
+            }
+            T entity = table.get(entry.getId());
+            // Skip the stale entry of an entity being updated, as EntityTable#findRange does
+            if (entity != null && Objects.equals(orderIndex.getDefinition().keyOf(entity), entry.getKey())
+                    && filter.test(entity)) {
+                result.add(entity);
+            }
+        }
+        // Entities without a value are not in the index and sort last
+        Field<T, ?> field = query.getOrderBy();
+        table.stream()
+                .filter(entity -> field.get(entity) == null && filter.test(entity))
+                .limit(limit - result.size())
+                .forEach(result::add);
+        return result;
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends BaseEntity> Comparator<T> comparator(Field<T, ? extends Comparable<?>> field,
+                                                                 boolean descending) {
+        Comparator<Comparable> values = descending ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        Comparator<T> byId = Comparator.comparing(BaseEntity::getId);
+        return Comparator.comparing((T entity) -> (Comparable) field.get(entity), Comparator.nullsLast(values))
+                .thenComparing(descending ? byId.reversed() : byId);
+    }
+    
+    /**
+     * Returns the estimated number of entities the plan reads before verifying them.
+     */
+    public long getEstimatedRows() {
+        if (orderIndex != null) {
+            return orderEstimate;
+        }
+        return source != null ? source.estimate : table.size();
+    }
+    
+    /**
+     * Checks whether the plan reads every entity.
+     */
+    public boolean isFullScan() {
+        return source == null && orderIndex == null;
+    }
+    
+    @Override
+    public String toString() {
+        List<String> lines = new ArrayList<>();
+        int depth = 0;
+        if (query.getLimit() < Integer.MAX_VALUE) {
+            lines.add("Limit " + query.getLimit());
+            depth++;
+        }
+        if (query.getOrderBy() != null && orderIndex == null) {
+            lines.add(indent(depth++) + "Sort by " + query.getOrderBy() + (query.isDescending() ? " DESC" : " ASC"));
+        }
+        if (query.getCriteria() != null) {
+            lines.add(indent(depth++) + "Filter " + query.getCriteria());
+        }
+        if (orderIndex != null) {
+            lines.add(indent(depth) + "Read in order of " + describe(orderIndex)
+                    + (query.isDescending() ? " DESC" : " ASC") + " (est. " + orderEstimate + " rows)");
+        } else if (source != null) {
+            source.describe(depth, lines);
+        } else {
+            lines.add(indent(depth) + "Full scan (" + table.size() + " rows)");
+        }
+        return String.join(System.lineSeparator(), lines);
+    }
+    
+    private static String indent(int depth) {
+        return "  ".repeat(depth);
+    }
+    
+    private static String describe(EntityIndex<?> index) {
+        return index.getClass().getSimpleName() + " " + index.getDefinition().getName();
+    }
+    
+    /**
+     * A step that produces the IDs of candidate entities.
+     */
+    abstract static class Source<T extends BaseEntity> {
+        
+        /** Estimated number of IDs produced. */
+        final long estimate;
+        
+        Source(long estimate) {
+            this.estimate = estimate;
+        }
+        
+        abstract RoaringBitmap ids();
+        
+        abstract void describe(int depth, List<String> lines);
+    }
+    
+    /**
+     * Reads the IDs for one criterion from an index.
+     */
+    static final class IndexSource<T extends BaseEntity> extends Source<T> {
+        
+        private final EntityIndex<T> index;
+        private final Criteria<T> criterion;
+        
+        IndexSource(EntityIndex<T> index, Criteria<T> criterion, long estimate) {
+            super(estimate);
+            this.index = index;
+            this.criterion = criterion;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        RoaringBitmap ids() {
+            if (index instanceof HashIndex) {
+                Long id = ((HashIndex<T, Object>) index).get(((Criteria.Equals<T, ?>) criterion).key);
+                return id == null ? new RoaringBitmap() : RoaringBitmap.of(id);
+            }
+            if (index instanceof MultiHashIndex) {
+                return RoaringBitmap.of(((MultiHashIndex<T, Object>) index).get(((Criteria.Equals<T, ?>) criterion).key));
+            }
+            if (index instanceof BitmapIndex) {
+                return ((BitmapIndex<T, Object>) index).get(((Criteria.Equals<T, ?>) criterion).key);
+            }
+            if (index instanceof NGramIndex) {
+                return RoaringBitmap.of(((NGramIndex<T>) index).candidates(((Criteria.Contains<T>) criterion).text));
+            }
+            Criteria.Range<T> range = (Criteria.Range<T>) criterion;
+            RoaringBitmap ids = new RoaringBitmap();
+            for (SortedIndex.Entry entry : ((SortedIndex<T>) index).range(range.min, range.max, false)) {
+                ids.add(entry.getId());
+            }
+            return ids;
+        }
+        
+        @Override
+        void describe(int depth, List<String> lines) {
+            lines.add(indent(depth) + "Index " + QueryPlan.describe(index) + ": " + criterion
+                    + " (est. " + estimate + " rows)");
+        }
+    }
+    
+    /**
+     * Intersects or unites the IDs of several sources.
+     */
+    static final class CombinedSource<T extends BaseEntity> extends Source<T> {
+        
+        private final List<Source<T>> sources;
+        private final boolean intersect;
+        
+        CombinedSource(List<Source<T>> sources, boolean intersect, long estimate) {
+            super(estimate);
+            this.sources = sources;
+            this.intersect = intersect;
+        }
+        
+        @Override
+        RoaringBitmap ids() {
+            RoaringBitmap ids = sources.get(0).ids();
+            for (int i = 1; i < sources.size(); i++) {
+                ids = intersect ? ids.and(sources.get(i).ids()) : ids.or(sources.get(i).ids());
+            }
+            return ids;
+        }
+        
+        @Override
+        void describe(int depth, List<String> lines) {
+            lines.add(indent(depth) + (intersect ? "Intersect" : "Union") + " (est. " + estimate + " rows)");
+            for (Source<T> source : sources) {
+                source.describe(depth + 1, lines);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.cinema.repository.query;
+
+import com.cinema.models.BaseEntity;
+import com.cinema.repository.EntityTable;
+import com.cinema.repository.index.BitmapIndex;
+import com.cinema.repository.index.EntityIndex;
+import com.cinema.repository.index.HashIndex;
+import com.cinema.repository.index.IndexDefinition;
+import com.cinema.repository.index.MultiHashIndex;
+import com.cinema.repository.index.NGramIndex;
+import com.cinema.repository.index.SortedIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses how to run a {@link Query} against the indexes of a table.
+ * <p>
+ * Each criterion on a field with a suitable index becomes an index read, whose size is estimated
+ * from the index itself: exactly for hash and bitmap indexes, by counting up to a cap for sorted
+ * indexes and by the shortest posting list for trigram indexes. An AND is driven by its most
+ * selective input, intersected with any others of comparable size; an OR can use indexes only if
+ * all of its inputs can. When the estimate is not well below the table size, a full scan is used.
+ * A query that is sorted by a field with a sorted index and limited may instead read that index in
+ * order and stop at the limit, if fewer entities are expected to be examined that way.
+ */
+public final class QueryPlanner {
+    
+    /** Index reads up to this many times larger than the smallest are intersected with it. */
+    private static final long INTERSECT_RATIO = 8;
+    /** Reading an entity through an index costs about this many entities scanned in order. */
+    private static final long INDEX_READ_COST = 2;
+    
+    private QueryPlanner() {
+    }
+    
+    /**
+     * Plans a query against a table.
+     */
+    public static <T extends BaseEntity> QueryPlan<T> plan(EntityTable<T> table, Query<T> query) {
+        List<EntityIndex<T>> indexes = table.getIndexes();
+        long size = table.size();
+        
+        QueryPlan.Source<T> source = null;
+        if (query.getCriteria() != null) {
+            source = source(query.getCriteria(), indexes, size);
+            if (source != null && source.estimate * INDEX_READ_COST >= size) {
+                source = null;
+            }
+        }
+        long cost = source != null ? source.estimate * INDEX_READ_COST : size;
+        
+        SortedIndex<T> orderIndex = query.getOrderBy() == null ? null : sortedIndex(query.getOrderBy(), indexes);
+        if (orderIndex != null) {
+            // Matches are assumed to be spread evenly over the index order
+            long matches = source != null ? source.estimate : size;
+            long examined = query.getLimit() == Integer.MAX_VALUE || matches == 0
+                    ? size
+                    : Math.min(size, (long) query.getLimit() * size / matches);
+            // Reading in order also saves the sort, so it wins ties
+            if (examined <= cost && (source == null || examined < cost)) {
+                return new QueryPlan<>(table, query, null, orderIndex, examined);
+            }
+        }
+        return new QueryPlan<>(table, query, source, null, 0);
+    }
+    
+    /**
+     * Plans the index reads for a criterion.
+     * @param cap the estimate beyond which the reads are of no use; counting may stop there
+     * @return the reads, or null if the criterion needs a scan
+     */
+    private static <T extends BaseEntity> QueryPlan.Source<T> source(Criteria<T> criteria,
+                                                                    List<EntityIndex<T>> indexes, long cap) {
+        if (criteria instanceof Criteria.Equals) {
+            Criteria.Equals<T, ?> equals = (Criteria.Equals<T, ?>) criteria;
+            if (equals.key == null) {
+                return null;
+            }
+            for (EntityIndex<T> index : indexes) {
+                if (index.getDefinition().getField() == equals.field) {
+                    long estimate = equalsEstimate(index, equals.key);
+                    if (estimate >= 0) {
+                        return new QueryPlan.IndexSource<>(index, criteria, estimate);
+                    }
+                }
+            }
+            return null;
+        }
+        if (criteria instanceof Criteria.Range) {
+            Criteria.Range<T> range = (Criteria.Range<T>) criteria;
+            SortedIndex<T> index = sortedIndex(range.field, indexes);
+            return index == null ? null
+                    : new QueryPlan.IndexSource<>(index, criteria, index.count(range.min, range.max, cap));
+        }
+        if (criteria instanceof Criteria.Contains) {
+            Criteria.Contains<T> contains = (Criteria.Contains<T>) criteria;
+            if (contains.text == null || contains.text.length() < NGramIndex.GRAM_LENGTH) {
+                return null;
+            }
+            for (EntityIndex<T> index : indexes) {
+                if (index instanceof NGramIndex && index.getDefinition().getField() == contains.field) {
+                    long estimate = ((NGramIndex<T>) index).estimate(contains.text);
+                    return new QueryPlan.IndexSource<>(index, criteria, estimate);
+                }
+            }
+            return null;
+        }
+        if (criteria instanceof Criteria.And) {
+            return and(((Criteria.And<T>) criteria).criteria, indexes, cap);
+        }
+        return or(((Criteria.Or<T>) criteria).criteria, indexes, cap);
+    }
+    
+    private static <T extends BaseEntity> QueryPlan.Source<T> and(List<Criteria<T>> criteria,
+                                                                 List<EntityIndex<T>> indexes, long cap) {
+        // Plan ranges last, so that their counting can stop at what the exact estimates allow
+        List<Criteria<T>> ordered = new ArrayList<>(criteria);
+        ordered.sort(Comparator.comparing(c -> c instanceof Criteria.Range));
+        List<QueryPlan.Source<T>> sources = new ArrayList<>();
+        long best = cap;
+        for (Criteria<T> c : ordered) {
+            long limit = best >= cap / INTERSECT_RATIO ? cap : best * INTERSECT_RATIO + 1;
+            QueryPlan.Source<T> source = source(c, indexes, limit);
+            if (source != null) {
+                sources.add(source);
+                best = Math.min(best, source.estimate);
+            }
+        }
+        if (sources.isEmpty()) {
+            return null;
+        }
+        sources.sort(Comparator.comparingLong(s -> s.estimate));
+        long driver = sources.get(0).estimate;
+        List<QueryPlan.Source<T>> used = new ArrayList<>();
+        for (QueryPlan.Source<T> source : sources) {
+            if (used.isEmpty() || source.estimate <= driver * INTERSECT_RATIO) {
+                used.add(source);
+            }
+        }
+        return used.size() == 1 ? used.get(0) : new QueryPlan.CombinedSource<>(used, true, driver);
+    }
+    
+    private static <T extends BaseEntity> QueryPlan.Source<T> or(List<Criteria<T>> criteria,
+                                                                List<EntityIndex<T>> indexes, long cap) {
+        List<QueryPlan.Source<T>> sources = new ArrayList<>();
+        long total = 0;
+        for (Criteria<T> c : criteria) {
+            QueryPlan.Source<T> source = source(c, indexes, cap);
+            if (source == null) {
+                return null;
+            }
+            sources.add(source);
+            total = Math.min(cap, total + source.estimate);
+        }
+        if (sources.isEmpty()) {
+            return null;
+        }
+        return sources.size() == 1 ? sources.get(0) : new QueryPlan.CombinedSource<>(sources, false, total);
+    }
+    
+    /**
+     * Returns the exact number of entities under a key of an equality index, or -1 if the index
+     * cannot answer equality.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends BaseEntity> long equalsEstimate(EntityIndex<T> index, Object key) {
+        if (index instanceof HashIndex) {
+            return ((HashIndex<T, Object>) index).get(key) == null ? 0 : 1;
+        }
+        if (index instanceof MultiHashIndex) {
+            return ((MultiHashIndex<T, Object>) index).count(key);
+        }
+        if (index instanceof BitmapIndex) {
+            return ((BitmapIndex<T, Object>) index).count(key);
+        }
+        return -1;
+    }
+    
+    private static <T extends BaseEntity> SortedIndex<T> sortedIndex(Field<T, ?> field, List<EntityIndex<T>> indexes) {
+        for (EntityIndex<T> index : indexes) {
+            IndexDefinition<T, ?> definition = index.getDefinition();
+            if (index instanceof SortedIndex && definition.getField() == field) {
+                return (SortedIndex<T>) index;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.cinema.service;
+
+import com.cinema.models.Customer;
+
+/**
+ * Fields of a customer in a bulk create or update. Loyalty points are only changed through
+ * {@link CustomerService#addLoyaltyPoints(Long, int)}.
+ */
+public final class CustomerFields extends EntityFields<Customer> {
+    
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final String phoneNumber;
+    
+    public CustomerFields(Long id, Long version, String firstName, String lastName, String email, String phoneNumber) {
+        super(id, version);
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+    }
+    
+    @Override
+    Customer create() {
+        return new Customer(null, firstName, lastName, email, phoneNumber);
+    }
+    
+    @Override
+    void applyTo(Customer customer) {
+        if (firstName != null) customer.setFirstName(firstName);
+        if (lastName != null) customer.setLastName(lastName);
+        if (email != null) customer.setEmail(email);
+        if (phoneNumber != null) customer.setPhoneNumber(phoneNumber);
+    }
+}
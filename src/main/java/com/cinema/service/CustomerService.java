@@ -4,9 +4,14 @@ import com.cinema.exception.CinemaException;
 import com.cinema.exception.EntityNotFoundException;
 import com.cinema.exception.ValidationException;
 import com.cinema.models.Customer;
+import com.cinema.repository.BatchResult;
 import com.cinema.repository.CustomerRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
 import java.util.logging.Logger;
 
 /**
@@ -15,10 +20,29 @@ import java.util.logging.Logger;
 public class CustomerService {
     
     private static final Logger logger = Logger.getLogger(CustomerService.class.getName());
+    /** Estimated memory taken by a cached customer. */
+    public static final ToLongFunction<Customer> WEIGHER = c -> EntityCache.ENTITY_OVERHEAD
+            + EntityCache.textWeight(c.getFirstName(), c.getLastName(), c.getEmail(), c.getPhoneNumber());
     private final CustomerRepository customerRepository;
+    private final OptimisticRetry retry;
+    private final EntityCache<Customer> cache;
     
     public CustomerService(CustomerRepository customerRepository) {
+        this(customerRepository, new OptimisticRetry());
+    }
+    
+    public CustomerService(CustomerRepository customerRepository, OptimisticRetry retry) {
+        this(customerRepository, retry, new EntityCache<>(EntityCache.DEFAULT_MAX_WEIGHT, WEIGHER));
+    }
+    
+    /**
+     * Creates a service that reads customers by ID through the given cache, which it invalidates on
+     * every update and delete. The repository must not be changed other than through this service.
+     */
+    public CustomerService(CustomerRepository customerRepository, OptimisticRetry retry, EntityCache<Customer> cache) {
         this.customerRepository = customerRepository;
+        this.retry = retry;
+        this.cache = cache;
     }
     
     /**
@@ -43,8 +67,11 @@ public class CustomerService {
      * Retrieves a customer by ID.
      */
     public Customer getCustomerById(Long id) throws EntityNotFoundException {
-        return customerRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Customer", id));
+        Customer customer = cache.get(id, key -> customerRepository.findById(key).orElse(null));
+        if (customer == null) {
+            throw new EntityNotFoundException("Customer", id);
+        }
+        return customer;
     }
     
     /**
@@ -54,45 +81,134 @@ public class CustomerService {
         return customerRepository.findAll();
     }
     
+    /**
+     * Retrieves the customers with the lowest IDs above the given one, in ascending ID order.
+     * @param afterId the last ID of the previous page, or null for the first page
+     */
+    public List<Customer> getCustomersAfter(Long afterId, int limit) {
+        return customerRepository.findAllAfter(afterId, limit);
+    }
+    
     /**
      * Updates customer information.
      */
     public Customer updateCustomer(Long id, String firstName, String lastName, String email, String phoneNumber) 
             throws CinemaException {
-        
-        Customer customer = getCustomerById(id);
-        
-        if (firstName != null) customer.setFirstName(firstName);
-        if (lastName != null) customer.setLastName(lastName);
-        if (email != null) customer.setEmail(email);
-        if (phoneNumber != null) customer.setPhoneNumber(phoneNumber);
-        
-        return customerRepository.update(customer);
+        return retry.execute(() -> {
+            Customer customer = getCustomerById(id).copy();
+            
+            if (firstName != null) customer.setFirstName(firstName);
+            if (lastName != null) customer.setLastName(lastName);
+            if (email != null) customer.setEmail(email);
+            if (phoneNumber != null) customer.setPhoneNumber(phoneNumber);
+            
+            return update(customer);
+        });
     }
     
     /**
      * Deletes a customer by ID.
      */
     public void deleteCustomer(Long id) throws CinemaException {
-        if (!customerRepository.deleteById(id)) {
+        boolean deleted;
+        try {
+            deleted = customerRepository.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+        if (!deleted) {
             throw new EntityNotFoundException("Customer", id);
         }
     }
     
     /**
-     * Searches customers by name.
+     * Creates customers in bulk from the fields a client may set, for imports. They are validated in
+     * parallel, saved under one write and persisted once; customers that are invalid or whose email is
+     * taken are reported in the result instead of stopping the import.
+     */
+    public BatchResult<Customer> createCustomers(List<CustomerFields> items) throws CinemaException {
+        List<Customer> customers = new ArrayList<>(items.size());
+        for (CustomerFields item : items) {
+            customers.add(item.create());
+        }
+        return customerRepository.saveAll(customers);
+    }
+    
+    /**
+     * Updates customers in bulk under one write persisted once, copying the fields set in each item onto the
+     * stored customer with its ID. Items without a customer are reported in the result, as are those with a
+     * version other than the stored one, with an {@link com.cinema.exception.OptimisticLockException}.
+     */
+    public BatchResult<Customer> updateCustomers(List<CustomerFields> items) throws CinemaException {
+        try {
+            return EntityFields.updateAll(items, customerRepository, "Customer");
+        } finally {
+            for (CustomerFields item : items) {
+                cache.invalidate(item.getId());
+            }
+        }
+    }
+    
+    /**
+     * Deletes customers in bulk under one write persisted once; IDs without a customer are reported in the
+     * result.
+     */
+    public BatchResult<Long> deleteCustomers(List<Long> ids) throws CinemaException {
+        try {
+            return customerRepository.deleteAllById(ids);
+        } finally {
+            for (Long id : ids) {
+                cache.invalidate(id);
+            }
+        }
+    }
+    
+    /**
+     * Searches customers by name: those whose first or last name contains the query, followed by
+     * those whose name is within a few typing errors of it, closest first.
      */
     public List<Customer> searchCustomers(String query) {
-        return customerRepository.searchByName(query);
+        return searchCustomers(query, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Searches customers as {@link #searchCustomers(String)}, returning at most {@code limit} of them.
+     */
+    public List<Customer> searchCustomers(String query, int limit) {
+        Map<Long, Customer> results = new LinkedHashMap<>();
+        for (Customer customer : customerRepository.searchByName(query)) {
+            if (results.size() >= limit) {
+                break;
+            }
+            results.put(customer.getId(), customer);
+        }
+        if (results.size() < limit) {
+            for (Customer customer : customerRepository.findBySimilarName(query, limit)) {
+                if (results.size() >= limit) {
+                    break;
+                }
+                results.putIfAbsent(customer.getId(), customer);
+            }
+        }
+        return new ArrayList<>(results.values());
     }
     
     /**
      * Adds loyalty points to a customer.
      */
     public Customer addLoyaltyPoints(Long customerId, int points) throws CinemaException {
-        Customer customer = getCustomerById(customerId);
-        customer.addLoyaltyPoints(points);
-        return customerRepository.update(customer);
+        return retry.execute(() -> {
+            Customer customer = getCustomerById(customerId).copy();
+            customer.addLoyaltyPoints(points);
+            return update(customer);
+        });
+    }
+    
+    /**
+     * Finds the customers with the most loyalty points, most points first.
+     */
+    public List<Customer> getTopCustomers(int limit) {
+        return customerRepository.findTopByLoyaltyPoints(limit);
     }
     
     /**
@@ -101,4 +217,29 @@ public class CustomerService {
     public long getCustomerCount() {
         return customerRepository.count();
     }
+    
+    /**
+     * Gets the number of update attempts that lost a version check to a concurrent update.
+     */
+    public long getUpdateConflicts() {
+        return retry.getConflicts();
+    }
+    
+    /**
+     * Returns the cache of customers by ID, with its statistics.
+     */
+    public EntityCache<Customer> getCache() {
+        return cache;
+    }
+    
+    /**
+     * Stores a changed customer, invalidating its cached state whether or not the update succeeds.
+     */
+    private Customer update(Customer customer) throws CinemaException {
+        try {
+            return customerRepository.update(customer);
+        } finally {
+            cache.invalidate(customer.getId());
+        }
+    }
 }
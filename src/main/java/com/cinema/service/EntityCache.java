@@ -0,0 +1,347 @@
+package com.cinema.service;
+
+import com.cinema.models.BaseEntity;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded read-through cache of entities by ID, placed by the services in front of their repository.
+ * <p>
+ * The size is bounded by a memory budget, against which every entry is charged the weight estimated
+ * for its entity. Eviction follows W-TinyLFU: new entries enter a small LRU window, and an entry
+ * leaving the window is admitted to the main space only if it has been requested more often than
+ * the entry it would evict there. Request frequencies are kept approximately, in a count-min sketch
+ * that is periodically halved so that old popularity fades. The main space is a segmented LRU whose
+ * protected segment holds entries requested again after admission. This keeps frequently read
+ * entities cached through scans of many rarely read ones.
+ * <p>
+ * Writers must {@link #invalidate} an entity after changing or deleting it. A load that overlaps an
+ * invalidation is returned but not cached, as it may have read the entity before the change.
+ * Access is synchronized on the cache; loads run outside the lock.
+ * @param <T> Entity type
+ */
+public class EntityCache<T extends BaseEntity> {
+    
+    /** Memory budget of the caches the services create by default, in bytes. */
+    public static final long DEFAULT_MAX_WEIGHT = 16L * 1024 * 1024;
+    /** Estimated size of an entity with no text, including its cache entry. */
+    public static final long ENTITY_OVERHEAD = 256;
+    
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+    
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+    
+    private static final class Entry<T> {
+        
+        final Long id;
+        final T value;
+        final long weight;
+        Segment segment;
+        
+        Entry(Long id, T value, long weight) {
+            this.id = id;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+    
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long protectedMaxWeight;
+    private final ToLongFunction<? super T> weigher;
+    private final Map<Long, Entry<T>> entries = new HashMap<>();
+    /** Each segment in LRU order, least recently used first. */
+    private final Map<Long, Entry<T>> window = new LinkedHashMap<>();
+    private final Map<Long, Entry<T>> probation = new LinkedHashMap<>();
+    private final Map<Long, Entry<T>> protectedSegment = new LinkedHashMap<>();
+    private final FrequencySketch sketch;
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    /** Incremented by every invalidation, so that loads can detect one that overlapped them. */
+    private long invalidations;
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    /**
+     * Creates a cache.
+     * @param maxWeight memory budget in bytes; 0 disables caching
+     * @param weigher estimates the memory an entity takes, in bytes
+     */
+    public EntityCache(long maxWeight, ToLongFunction<? super T> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Max weight must not be negative");
+        }
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, (long) (maxWeight * WINDOW_SHARE));
+        this.protectedMaxWeight = (long) ((maxWeight - windowMaxWeight) * PROTECTED_SHARE);
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(maxWeight / ENTITY_OVERHEAD);
+    }
+    
+    /**
+     * Estimates the memory taken by the text fields of an entity, for use in weighers.
+     */
+    public static long textWeight(String... values) {
+        long weight = 0;
+        for (String value : values) {
+            if (value != null) {
+                weight += 48 + value.length();
+            }
+        }
+        return weight;
+    }
+    
+    /**
+     * Returns the cached entity with the ID, or loads and caches it on a miss.
+     * A null ID is passed straight to the loader, and its result is not cached.
+     * @param loader returns the entity with an ID, or null if there is none, which is not cached
+     */
+    public T get(Long id, Function<Long, ? extends T> loader) {
+        if (id == null) {
+            return loader.apply(null);
+        }
+        long generation;
+        synchronized (this) {
+            sketch.increment(id);
+            Entry<T> entry = entries.get(id);
+            if (entry != null) {
+                hits++;
+                touch(entry);
+                return entry.value;
+            }
+            misses++;
+            generation = invalidations;
+        }
+        T value = loader.apply(id);
+        if (value != null) {
+            synchronized (this) {
+                if (generation == invalidations && !entries.containsKey(id)) {
+                    insert(new Entry<>(id, value, weigher.applyAsLong(value)));
+                }
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Removes the entity with the ID, which has been changed or deleted.
+     */
+    public synchronized void invalidate(Long id) {
+        invalidations++;
+        Entry<T> entry = entries.remove(id);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+    
+    /**
+     * Removes all entities.
+     */
+    public synchronized void invalidateAll() {
+        invalidations++;
+        entries.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * Returns the share of lookups that were hits, or 0 before the first lookup.
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+    
+    /**
+     * Number of entities removed to stay within the memory budget, or not admitted at all.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    /**
+     * Returns the estimated memory taken by the cached entities, in bytes.
+     */
+    public synchronized long getWeight() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+    
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entities, %d/%d bytes, %d hits, %d misses, %d evictions",
+                entries.size(), getWeight(), maxWeight, hits, misses, evictions);
+    }
+    
+    private void touch(Entry<T> entry) {
+        switch (entry.segment) {
+            case WINDOW:
+                window.remove(entry.id);
+                window.put(entry.id, entry);
+                break;
+            case PROBATION:
+                // Requested again after admission: promote, demoting the coldest protected entries
+                probation.remove(entry.id);
+                probationWeight -= entry.weight;
+                entry.segment = Segment.PROTECTED;
+                protectedSegment.put(entry.id, entry);
+                protectedWeight += entry.weight;
+                while (protectedWeight > protectedMaxWeight && protectedSegment.size() > 1) {
+                    Entry<T> demoted = removeFirst(protectedSegment);
+                    protectedWeight -= demoted.weight;
+                    demoted.segment = Segment.PROBATION;
+                    probation.put(demoted.id, demoted);
+                    probationWeight += demoted.weight;
+                }
+                break;
+            default:
+                protectedSegment.remove(entry.id);
+                protectedSegment.put(entry.id, entry);
+        }
+    }
+    
+    private void insert(Entry<T> entry) {
+        if (entry.weight > maxWeight) {
+            evictions++;
+            return;
+        }
+        entries.put(entry.id, entry);
+        entry.segment = Segment.WINDOW;
+        window.put(entry.id, entry);
+        windowWeight += entry.weight;
+        while (windowWeight > windowMaxWeight && !window.isEmpty()) {
+            Entry<T> candidate = removeFirst(window);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+    }
+    
+    /**
+     * Moves an entry leaving the window into the main space if it is requested more often than the
+     * entries it would displace there; otherwise evicts it.
+     */
+    private void admit(Entry<T> candidate) {
+        int frequency = sketch.frequency(candidate.id);
+        while (getWeight() + candidate.weight > maxWeight) {
+            Map<Long, Entry<T>> victims = probation.isEmpty() ? protectedSegment : probation;
+            Entry<T> victim = victims.isEmpty() ? null : victims.values().iterator().next();
+            if (victim == null || sketch.frequency(victim.id) >= frequency) {
+                entries.remove(candidate.id);
+                evictions++;
+                return;
+            }
+            entries.remove(victim.id);
+            unlink(victim);
+            evictions++;
+        }
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.id, candidate);
+        probationWeight += candidate.weight;
+    }
+    
+    private void unlink(Entry<T> entry) {
+        switch (entry.segment) {
+            case WINDOW:
+                window.remove(entry.id);
+                windowWeight -= entry.weight;
+                break;
+            case PROBATION:
+                probation.remove(entry.id);
+                probationWeight -= entry.weight;
+                break;
+            default:
+                protectedSegment.remove(entry.id);
+                protectedWeight -= entry.weight;
+        }
+    }
+    
+    private static <T> Entry<T> removeFirst(Map<Long, Entry<T>> segment) {
+        Iterator<Entry<T>> iterator = segment.values().iterator();
+        Entry<T> first = iterator.next();
+        iterator.remove();
+        return first;
+    }
+    
+    /**
+     * Count-min sketch of request frequencies: four rows of byte counters saturating at 15, of which
+     * an ID's frequency is the smallest of its four. All counters are halved once as many increments as ten
+     * times the counters per row have been recorded.
+     */
+    private static final class FrequencySketch {
+        
+        private static final int MAX_COUNT = 15;
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+        
+        private final byte[][] rows;
+        private final int mask;
+        private final int sampleSize;
+        private int increments;
+        
+        FrequencySketch(long expectedEntries) {
+            int width = Integer.highestOneBit((int) Math.max(16, Math.min(expectedEntries, 1 << 22)) - 1) << 1;
+            this.rows = new byte[SEEDS.length][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+        
+        void increment(long id) {
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int index = index(id, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++increments >= sampleSize) {
+                for (byte[] row : rows) {
+                    for (int j = 0; j < row.length; j++) {
+                        row[j] >>= 1;
+                    }
+                }
+                increments /= 2;
+            }
+        }
+        
+        int frequency(long id) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][index(id, i)]);
+            }
+            return frequency;
+        }
+        
+        private int index(long id, int row) {
+            long hash = (id + SEEDS[row]) * SEEDS[row];
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.cinema.service;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.EntityNotFoundException;
+import com.cinema.exception.ValidationException;
+import com.cinema.models.BaseEntity;
+import com.cinema.repository.BatchResult;
+import com.cinema.repository.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fields of one item of a bulk create or update, as sent by a client. Only the fields a client may
+ * set are carried; IDs, timestamps, versions and derived state are kept by the repository. Fields
+ * left null are not changed by an update.
+ * @param <T> Entity type
+ */
+public abstract class EntityFields<T extends BaseEntity> {
+    
+    private final Long id;
+    private final Long version;
+    
+    /**
+     * @param id ID of the entity to update; ignored on create
+     * @param version version the client last read, or null to update whatever version is stored
+     */
+    protected EntityFields(Long id, Long version) {
+        this.id = id;
+        this.version = version;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    /**
+     * Returns a new entity holding the fields.
+     */
+    abstract T create();
+    
+    /**
+     * Copies the fields that are set onto the entity.
+     */
+    abstract void applyTo(T entity);
+    
+    /**
+     * Applies each item's fields to a copy of the stored entity and updates those found under one
+     * write; items without an ID or entity are reported in the result.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends BaseEntity> BatchResult<T> updateAll(List<? extends EntityFields<T>> items,
+                                                           Repository<T> repository, String entityName)
+            throws CinemaException {
+        CinemaException[] errors = new CinemaException[items.size()];
+        List<T> entities = new ArrayList<>(items.size());
+        List<Integer> positions = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            EntityFields<T> item = items.get(i);
+            if (item.id == null) {
+                errors[i] = new ValidationException("Cannot update entity without ID");
+                continue;
+            }
+            T stored = repository.findById(item.id).orElse(null);
+            if (stored == null) {
+                errors[i] = new EntityNotFoundException(entityName, item.id);
+                continue;
+            }
+            T entity = (T) stored.copy();
+            item.applyTo(entity);
+            if (item.version != null) {
+                entity.setVersion(item.version);
+            }
+            entities.add(entity);
+            positions.add(i);
+        }
+        
+        BatchResult<T> updated = repository.updateAll(entities);
+        List<T> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            results.add(null);
+        }
+        for (int j = 0; j < entities.size(); j++) {
+            int i = positions.get(j);
+            results.set(i, updated.getResult(j));
+            errors[i] = updated.getError(j);
+        }
+        return new BatchResult<>(results, errors);
+    }
+}
@@ -0,0 +1,49 @@
+package com.cinema.service;
+
+import com.cinema.models.Movie;
+
+/**
+ * Fields of a movie in a bulk create or update.
+ */
+public final class MovieFields extends EntityFields<Movie> {
+    
+    private final String title;
+    private final String genre;
+    private final Integer durationMinutes;
+    private final String director;
+    private final String language;
+    private final Double rating;
+    private final String description;
+    
+    public MovieFields(Long id, Long version, String title, String genre, Integer durationMinutes,
+                       String director, String language, Double rating, String description) {
+        super(id, version);
+        this.title = title;
+        this.genre = genre;
+        this.durationMinutes = durationMinutes;
+        this.director = director;
+        this.language = language;
+        this.rating = rating;
+        this.description = description;
+    }
+    
+    @Override
+    Movie create() {
+        // A missing duration is left at zero, for validation to reject with the other invalid items
+        Movie movie = new Movie(null, title, genre, durationMinutes == null ? 0 : durationMinutes, director, language);
+        if (rating != null) movie.setRating(rating);
+        if (description != null) movie.setDescription(description);
+        return movie;
+    }
+    
+    @Override
+    void applyTo(Movie movie) {
+        if (title != null) movie.setTitle(title);
+        if (genre != null) movie.setGenre(genre);
+        if (durationMinutes != null) movie.setDurationMinutes(durationMinutes);
+        if (director != null) movie.setDirector(director);
+        if (language != null) movie.setLanguage(language);
+        if (rating != null) movie.setRating(rating);
+        if (description != null) movie.setDescription(description);
+    }
+}
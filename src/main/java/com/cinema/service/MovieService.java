@@ -3,21 +3,47 @@ package com.cinema.service;
 import com.cinema.exception.CinemaException;
 import com.cinema.exception.EntityNotFoundException;
 import com.cinema.models.Movie;
+import com.cinema.repository.BatchResult;
 import com.cinema.repository.MovieRepository;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToLongFunction;
 import java.util.logging.Logger;
 
 /**
  * Service layer for Movie business logic.
+ * Catalog queries are served from a {@link QueryCache} while the repository is unchanged; the
+ * lists they return are unmodifiable.
  */
 public class MovieService {
     
     private static final Logger logger = Logger.getLogger(MovieService.class.getName());
+    /** Estimated memory taken by a cached movie. */
+    public static final ToLongFunction<Movie> WEIGHER = m -> EntityCache.ENTITY_OVERHEAD
+            + EntityCache.textWeight(m.getTitle(), m.getGenre(), m.getDirector(), m.getLanguage(), m.getDescription());
     private final MovieRepository movieRepository;
+    private final OptimisticRetry retry;
+    private final EntityCache<Movie> cache;
+    private final QueryCache queryCache;
     
     public MovieService(MovieRepository movieRepository) {
+        this(movieRepository, new OptimisticRetry());
+    }
+    
+    public MovieService(MovieRepository movieRepository, OptimisticRetry retry) {
+        this(movieRepository, retry, new EntityCache<>(EntityCache.DEFAULT_MAX_WEIGHT, WEIGHER));
+    }
+    
+    /**
+     * Creates a service that reads movies by ID through the given cache, which it invalidates on
+     * every update and delete. The repository must not be changed other than through this service.
+     */
+    public MovieService(MovieRepository movieRepository, OptimisticRetry retry, EntityCache<Movie> cache) {
         this.movieRepository = movieRepository;
+        this.retry = retry;
+        this.cache = cache;
+        this.queryCache = new QueryCache(movieRepository::getModificationCount, QueryCache.DEFAULT_MAX_ENTRIES);
     }
     
     /**
@@ -25,7 +51,17 @@ public class MovieService {
      */
     public Movie createMovie(String title, String genre, int durationMinutes, String director, String language) 
             throws CinemaException {
+        return createMovie(title, genre, durationMinutes, director, language, null, null);
+    }
+    
+    /**
+     * Creates a new movie with an optional rating and description, saved with a single write.
+     */
+    public Movie createMovie(String title, String genre, int durationMinutes, String director, String language,
+                             Double rating, String description) throws CinemaException {
         Movie movie = new Movie(null, title, genre, durationMinutes, director, language);
+        if (rating != null) movie.setRating(rating);
+        if (description != null) movie.setDescription(description);
         return movieRepository.save(movie);
     }
     
@@ -33,15 +69,26 @@ public class MovieService {
      * Retrieves a movie by ID.
      */
     public Movie getMovieById(Long id) throws EntityNotFoundException {
-        return movieRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Movie", id));
+        Movie movie = cache.get(id, key -> movieRepository.findById(key).orElse(null));
+        if (movie == null) {
+            throw new EntityNotFoundException("Movie", id);
+        }
+        return movie;
     }
     
     /**
      * Retrieves all movies.
      */
     public List<Movie> getAllMovies() {
-        return movieRepository.findAll();
+        return queryCache.get(movieRepository::findAll, "all");
+    }
+    
+    /**
+     * Retrieves the movies with the lowest IDs above the given one, in ascending ID order.
+     * @param afterId the last ID of the previous page, or null for the first page
+     */
+    public List<Movie> getMoviesAfter(Long afterId, int limit) {
+        return movieRepository.findAllAfter(afterId, limit);
     }
     
     /**
@@ -50,57 +97,133 @@ public class MovieService {
     public Movie updateMovie(Long id, String title, String genre, Integer durationMinutes, 
                             String director, String language, Double rating, String description) 
             throws CinemaException {
-        
-        Movie movie = getMovieById(id);
-        
-        if (title != null) movie.setTitle(title);
-        if (genre != null) movie.setGenre(genre);
-        if (durationMinutes != null) movie.setDurationMinutes(durationMinutes);
-        if (director != null) movie.setDirector(director);
-        if (language != null) movie.setLanguage(language);
-        if (rating != null) movie.setRating(rating);
-        if (description != null) movie.setDescription(description);
-        
-        return movieRepository.update(movie);
+        return retry.execute(() -> {
+            Movie movie = getMovieById(id).copy();
+            
+            if (title != null) movie.setTitle(title);
+            if (genre != null) movie.setGenre(genre);
+            if (durationMinutes != null) movie.setDurationMinutes(durationMinutes);
+            if (director != null) movie.setDirector(director);
+            if (language != null) movie.setLanguage(language);
+            if (rating != null) movie.setRating(rating);
+            if (description != null) movie.setDescription(description);
+            
+            return update(movie);
+        });
     }
     
     /**
      * Deletes a movie by ID.
      */
     public void deleteMovie(Long id) throws CinemaException {
-        if (!movieRepository.deleteById(id)) {
+        boolean deleted;
+        try {
+            deleted = movieRepository.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+        if (!deleted) {
             throw new EntityNotFoundException("Movie", id);
         }
     }
     
     /**
-     * Searches movies by title.
+     * Creates movies in bulk from the fields a client may set, for imports. They are validated in
+     * parallel, saved under one write and persisted once; invalid movies are reported in the result
+     * instead of stopping the import.
+     */
+    public BatchResult<Movie> createMovies(List<MovieFields> items) throws CinemaException {
+        List<Movie> movies = new ArrayList<>(items.size());
+        for (MovieFields item : items) {
+            movies.add(item.create());
+        }
+        return movieRepository.saveAll(movies);
+    }
+    
+    /**
+     * Updates movies in bulk under one write persisted once, copying the fields set in each item onto the
+     * stored movie with its ID. Items without a movie are reported in the result, as are those with a
+     * version other than the stored one, with an {@link com.cinema.exception.OptimisticLockException}.
+     */
+    public BatchResult<Movie> updateMovies(List<MovieFields> items) throws CinemaException {
+        try {
+            return EntityFields.updateAll(items, movieRepository, "Movie");
+        } finally {
+            for (MovieFields item : items) {
+                cache.invalidate(item.getId());
+            }
+        }
+    }
+    
+    /**
+     * Deletes movies in bulk under one write persisted once; IDs without a movie are reported in the
+     * result.
+     */
+    public BatchResult<Long> deleteMovies(List<Long> ids) throws CinemaException {
+        try {
+            return movieRepository.deleteAllById(ids);
+        } finally {
+            for (Long id : ids) {
+                cache.invalidate(id);
+            }
+        }
+    }
+    
+    /**
+     * Searches movies by the words of their title, director and description, best match first.
+     * If no word matches, falls back to movies whose title contains the query, so that partly typed
+     * words still find something.
      */
     public List<Movie> searchMovies(String query) {
-        return movieRepository.searchByTitle(query);
+        return searchMovies(query, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Searches movies as {@link #searchMovies(String)}, returning at most {@code limit} of them.
+     */
+    public List<Movie> searchMovies(String query, int limit) {
+        return queryCache.get(() -> search(query, limit), "search", query, limit);
+    }
+    
+    private List<Movie> search(String query, int limit) {
+        List<Movie> movies = movieRepository.searchText(query, limit);
+        if (!movies.isEmpty()) {
+            return movies;
+        }
+        List<Movie> byTitle = movieRepository.searchByTitle(query);
+        return byTitle.size() > limit ? byTitle.subList(0, limit) : byTitle;
     }
     
     /**
      * Finds movies by genre.
      */
     public List<Movie> getMoviesByGenre(String genre) {
-        return movieRepository.findByGenre(genre);
+        return queryCache.get(() -> movieRepository.findByGenre(genre), "genre", genre);
     }
     
     /**
      * Finds movies by director.
      */
     public List<Movie> getMoviesByDirector(String director) {
-        return movieRepository.findByDirector(director);
+        return queryCache.get(() -> movieRepository.findByDirector(director), "director", director);
+    }
+    
+    /**
+     * Finds the highest rated movies, highest rating first.
+     */
+    public List<Movie> getTopRatedMovies(int limit) {
+        return queryCache.get(() -> movieRepository.findTopRated(limit), "topRated", limit);
     }
     
     /**
      * Updates movie rating.
      */
     public Movie updateRating(Long movieId, double rating) throws CinemaException {
-        Movie movie = getMovieById(movieId);
-        movie.setRating(rating);
-        return movieRepository.update(movie);
+        return retry.execute(() -> {
+            Movie movie = getMovieById(movieId).copy();
+            movie.setRating(rating);
+            return update(movie);
+        });
     }
     
     /**
@@ -109,4 +232,36 @@ public class MovieService {
     public long getMovieCount() {
         return movieRepository.count();
     }
+    
+    /**
+     * Gets the number of update attempts that lost a version check to a concurrent update.
+     */
+    public long getUpdateConflicts() {
+        return retry.getConflicts();
+    }
+    
+    /**
+     * Returns the cache of catalog query results, with its statistics.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+    
+    /**
+     * Returns the cache of movies by ID, with its statistics.
+     */
+    public EntityCache<Movie> getCache() {
+        return cache;
+    }
+    
+    /**
+     * Stores a changed movie, invalidating its cached state whether or not the update succeeds.
+     */
+    private Movie update(Movie movie) throws CinemaException {
+        try {
+            return movieRepository.update(movie);
+        } finally {
+            cache.invalidate(movie.getId());
+        }
+    }
 }
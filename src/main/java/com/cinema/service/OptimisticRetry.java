@@ -0,0 +1,84 @@
+package com.cinema.service;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.OptimisticLockException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs read-modify-write operations that may lose an optimistic version check, retrying them
+ * after a short randomized backoff. The operation must re-read the entity on every attempt.
+ * Counts conflicts and operations that gave up after the last attempt.
+ */
+public class OptimisticRetry {
+    
+    /**
+     * A read-modify-write operation.
+     */
+    @FunctionalInterface
+    public interface Operation<R> {
+        R run() throws CinemaException;
+    }
+    
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+    
+    private static final Logger logger = Logger.getLogger(OptimisticRetry.class.getName());
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    
+    private final int maxAttempts;
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    
+    public OptimisticRetry() {
+        this(DEFAULT_MAX_ATTEMPTS);
+    }
+    
+    public OptimisticRetry(int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+    
+    /**
+     * Runs the operation, retrying it when it fails with an {@link OptimisticLockException}.
+     * @throws OptimisticLockException if every attempt conflicted
+     */
+    public <R> R execute(Operation<R> operation) throws CinemaException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.run();
+            } catch (OptimisticLockException e) {
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    logger.log(Level.WARNING, "Giving up after {0} conflicting attempts: {1}",
+                            new Object[]{attempt, e.getMessage()});
+                    throw e;
+                }
+                // Randomized exponential backoff keeps conflicting writers from retrying in lockstep
+                long bound = Math.min(MAX_BACKOFF_NANOS, TimeUnit.MICROSECONDS.toNanos(50L << attempt));
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound));
+            }
+        }
+    }
+    
+    /**
+     * Number of attempts that failed with a version conflict.
+     */
+    public long getConflicts() {
+        return conflicts.get();
+    }
+    
+    /**
+     * Number of operations that failed because every attempt conflicted.
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+}
@@ -0,0 +1,114 @@
+package com.cinema.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache of query results keyed by query name and parameters, for the repeated catalog queries of
+ * a service. Every result is stored with the modification count of the repository it was computed
+ * from, read before the query ran, and is served only while the count is unchanged; so any change
+ * to the repository invalidates every result at once, and no result can outlive a change it missed.
+ * The least recently used results are dropped beyond the maximum number of entries.
+ * Access is synchronized on the cache; queries run outside the lock.
+ */
+public class QueryCache {
+    
+    /** Maximum number of results the caches the services create by default keep. */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    
+    private static final class Result {
+        
+        final long generation;
+        final List<?> value;
+        
+        Result(long generation, List<?> value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+    
+    private final LongSupplier generation;
+    private final Map<List<Object>, Result> results;
+    private long hits;
+    private long misses;
+    
+    /**
+     * Creates a cache.
+     * @param generation returns the modification count of the repository the queries read,
+     *                   see {@link com.cinema.repository.Repository#getModificationCount}
+     */
+    public QueryCache(LongSupplier generation, int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Max entries must not be negative");
+        }
+        this.generation = generation;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Result> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    /**
+     * Returns the current result of a query, running it if no current result is cached.
+     * @param query runs the query
+     * @param name identifies the query
+     * @param parameters the parameters of the query, compared by {@code equals}
+     * @return an unmodifiable list of the results
+     */
+    @SuppressWarnings("unchecked")
+    public <E> List<E> get(Supplier<? extends List<E>> query, String name, Object... parameters) {
+        List<Object> key = new ArrayList<>(parameters.length + 1);
+        key.add(name);
+        key.addAll(Arrays.asList(parameters));
+        long current = generation.getAsLong();
+        synchronized (this) {
+            Result result = results.get(key);
+            if (result != null && result.generation == current) {
+                hits++;
+                return (List<E>) result.value;
+            }
+            misses++;
+        }
+        List<E> value = Collections.unmodifiableList(new ArrayList<>(query.get()));
+        synchronized (this) {
+            Result result = results.get(key);
+            // Keep a result computed concurrently from a later state
+            if (result == null || result.generation < current) {
+                results.put(key, new Result(current, value));
+            }
+        }
+        return value;
+    }
+    
+    /**
+     * Drops all results.
+     */
+    public synchronized void invalidateAll() {
+        results.clear();
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized int size() {
+        return results.size();
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("%d results, %d hits, %d misses", results.size(), hits, misses);
+    }
+}
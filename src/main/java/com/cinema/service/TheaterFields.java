@@ -0,0 +1,40 @@
+package com.cinema.service;
+
+import com.cinema.models.Theater;
+
+/**
+ * Fields of a theater in a bulk create or update. Scheduled movies are only changed through
+ * {@link TheaterService#addMovieToTheater(Long, Long)} and its counterpart.
+ */
+public final class TheaterFields extends EntityFields<Theater> {
+    
+    private final String name;
+    private final Integer capacity;
+    private final String screenType;
+    private final Boolean hasWheelchairAccess;
+    
+    public TheaterFields(Long id, Long version, String name, Integer capacity, String screenType,
+                         Boolean hasWheelchairAccess) {
+        super(id, version);
+        this.name = name;
+        this.capacity = capacity;
+        this.screenType = screenType;
+        this.hasWheelchairAccess = hasWheelchairAccess;
+    }
+    
+    @Override
+    Theater create() {
+        // A missing capacity is left at zero, for validation to reject with the other invalid items
+        Theater theater = new Theater(null, name, capacity == null ? 0 : capacity, screenType);
+        if (hasWheelchairAccess != null) theater.setHasWheelchairAccess(hasWheelchairAccess);
+        return theater;
+    }
+    
+    @Override
+    void applyTo(Theater theater) {
+        if (name != null) theater.setName(name);
+        if (capacity != null) theater.setCapacity(capacity);
+        if (screenType != null) theater.setScreenType(screenType);
+        if (hasWheelchairAccess != null) theater.setHasWheelchairAccess(hasWheelchairAccess);
+    }
+}
@@ -3,21 +3,47 @@ package com.cinema.service;
 import com.cinema.exception.CinemaException;
 import com.cinema.exception.EntityNotFoundException;
 import com.cinema.models.Theater;
+import com.cinema.repository.BatchResult;
 import com.cinema.repository.TheaterRepository;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToLongFunction;
 import java.util.logging.Logger;
 
 /**
  * Service layer for Theater business logic.
+ * Catalog queries are served from a {@link QueryCache} while the repository is unchanged; the
+ * lists they return are unmodifiable.
  */
 public class TheaterService {
     
     private static final Logger logger = Logger.getLogger(TheaterService.class.getName());
+    /** Estimated memory taken by a cached theater. */
+    public static final ToLongFunction<Theater> WEIGHER = t -> EntityCache.ENTITY_OVERHEAD
+            + EntityCache.textWeight(t.getName(), t.getScreenType()) + 24L * t.getCurrentMovieIds().size();
     private final TheaterRepository theaterRepository;
+    private final OptimisticRetry retry;
+    private final EntityCache<Theater> cache;
+    private final QueryCache queryCache;
     
     public TheaterService(TheaterRepository theaterRepository) {
+        this(theaterRepository, new OptimisticRetry());
+    }
+    
+    public TheaterService(TheaterRepository theaterRepository, OptimisticRetry retry) {
+        this(theaterRepository, retry, new EntityCache<>(EntityCache.DEFAULT_MAX_WEIGHT, WEIGHER));
+    }
+    
+    /**
+     * Creates a service that reads theaters by ID through the given cache, which it invalidates on
+     * every update and delete. The repository must not be changed other than through this service.
+     */
+    public TheaterService(TheaterRepository theaterRepository, OptimisticRetry retry, EntityCache<Theater> cache) {
         this.theaterRepository = theaterRepository;
+        this.retry = retry;
+        this.cache = cache;
+        this.queryCache = new QueryCache(theaterRepository::getModificationCount, QueryCache.DEFAULT_MAX_ENTRIES);
     }
     
     /**
@@ -32,15 +58,26 @@ public class TheaterService {
      * Retrieves a theater by ID.
      */
     public Theater getTheaterById(Long id) throws EntityNotFoundException {
-        return theaterRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Theater", id));
+        Theater theater = cache.get(id, key -> theaterRepository.findById(key).orElse(null));
+        if (theater == null) {
+            throw new EntityNotFoundException("Theater", id);
+        }
+        return theater;
     }
     
     /**
      * Retrieves all theaters.
      */
     public List<Theater> getAllTheaters() {
-        return theaterRepository.findAll();
+        return queryCache.get(theaterRepository::findAll, "all");
+    }
+    
+    /**
+     * Retrieves the theaters with the lowest IDs above the given one, in ascending ID order.
+     * @param afterId the last ID of the previous page, or null for the first page
+     */
+    public List<Theater> getTheatersAfter(Long afterId, int limit) {
+        return theaterRepository.findAllAfter(afterId, limit);
     }
     
     /**
@@ -48,56 +85,109 @@ public class TheaterService {
      */
     public Theater updateTheater(Long id, String name, Integer capacity, String screenType, 
                                 Boolean hasWheelchairAccess) throws CinemaException {
-        
-        Theater theater = getTheaterById(id);
-        
-        if (name != null) theater.setName(name);
-        if (capacity != null) theater.setCapacity(capacity);
-        if (screenType != null) theater.setScreenType(screenType);
-        if (hasWheelchairAccess != null) theater.setHasWheelchairAccess(hasWheelchairAccess);
-        
-        return theaterRepository.update(theater);
+        return retry.execute(() -> {
+            Theater theater = getTheaterById(id).copy();
+            
+            if (name != null) theater.setName(name);
+            if (capacity != null) theater.setCapacity(capacity);
+            if (screenType != null) theater.setScreenType(screenType);
+            if (hasWheelchairAccess != null) theater.setHasWheelchairAccess(hasWheelchairAccess);
+            
+            return update(theater);
+        });
     }
     
     /**
      * Deletes a theater by ID.
      */
     public void deleteTheater(Long id) throws CinemaException {
-        if (!theaterRepository.deleteById(id)) {
+        boolean deleted;
+        try {
+            deleted = theaterRepository.deleteById(id);
+        } finally {
+            cache.invalidate(id);
+        }
+        if (!deleted) {
             throw new EntityNotFoundException("Theater", id);
         }
     }
     
+    /**
+     * Creates theaters in bulk from the fields a client may set, for imports. They are validated in
+     * parallel, saved under one write and persisted once; invalid theaters are reported in the result
+     * instead of stopping the import.
+     */
+    public BatchResult<Theater> createTheaters(List<TheaterFields> items) throws CinemaException {
+        List<Theater> theaters = new ArrayList<>(items.size());
+        for (TheaterFields item : items) {
+            theaters.add(item.create());
+        }
+        return theaterRepository.saveAll(theaters);
+    }
+    
+    /**
+     * Updates theaters in bulk under one write persisted once, copying the fields set in each item onto the
+     * stored theater with its ID. Items without a theater are reported in the result, as are those with a
+     * version other than the stored one, with an {@link com.cinema.exception.OptimisticLockException}.
+     */
+    public BatchResult<Theater> updateTheaters(List<TheaterFields> items) throws CinemaException {
+        try {
+            return EntityFields.updateAll(items, theaterRepository, "Theater");
+        } finally {
+            for (TheaterFields item : items) {
+                cache.invalidate(item.getId());
+            }
+        }
+    }
+    
+    /**
+     * Deletes theaters in bulk under one write persisted once; IDs without a theater are reported in the
+     * result.
+     */
+    public BatchResult<Long> deleteTheaters(List<Long> ids) throws CinemaException {
+        try {
+            return theaterRepository.deleteAllById(ids);
+        } finally {
+            for (Long id : ids) {
+                cache.invalidate(id);
+            }
+        }
+    }
+    
     /**
      * Adds a movie to a theater's schedule.
      */
     public Theater addMovieToTheater(Long theaterId, Long movieId) throws CinemaException {
-        Theater theater = getTheaterById(theaterId);
-        theater.addMovie(movieId);
-        return theaterRepository.update(theater);
+        return retry.execute(() -> {
+            Theater theater = getTheaterById(theaterId).copy();
+            theater.addMovie(movieId);
+            return update(theater);
+        });
     }
     
     /**
      * Removes a movie from a theater's schedule.
      */
     public Theater removeMovieFromTheater(Long theaterId, Long movieId) throws CinemaException {
-        Theater theater = getTheaterById(theaterId);
-        theater.removeMovie(movieId);
-        return theaterRepository.update(theater);
+        return retry.execute(() -> {
+            Theater theater = getTheaterById(theaterId).copy();
+            theater.removeMovie(movieId);
+            return update(theater);
+        });
     }
     
     /**
      * Searches theaters by name.
      */
     public List<Theater> searchTheaters(String query) {
-        return theaterRepository.searchByName(query);
+        return queryCache.get(() -> theaterRepository.searchByName(query), "search", query);
     }
     
     /**
      * Finds theaters by screen type.
      */
     public List<Theater> getTheatersByScreenType(String screenType) {
-        return theaterRepository.findByScreenType(screenType);
+        return queryCache.get(() -> theaterRepository.findByScreenType(screenType), "screenType", screenType);
     }
     
     /**
@@ -106,4 +196,36 @@ public class TheaterService {
     public long getTheaterCount() {
         return theaterRepository.count();
     }
+    
+    /**
+     * Gets the number of update attempts that lost a version check to a concurrent update.
+     */
+    public long getUpdateConflicts() {
+        return retry.getConflicts();
+    }
+    
+    /**
+     * Returns the cache of catalog query results, with its statistics.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+    
+    /**
+     * Returns the cache of theaters by ID, with its statistics.
+     */
+    public EntityCache<Theater> getCache() {
+        return cache;
+    }
+    
+    /**
+     * Stores a changed theater, invalidating its cached state whether or not the update succeeds.
+     */
+    private Theater update(Theater theater) throws CinemaException {
+        try {
+            return theaterRepository.update(theater);
+        } finally {
+            cache.invalidate(theater.getId());
+        }
+    }
 }
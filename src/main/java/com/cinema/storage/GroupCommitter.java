@@ -0,0 +1,270 @@
+package com.cinema.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces records submitted by many threads into batches that are written by a single
+ * background thread, so that one write and one fsync cover a whole batch.
+ * A batch is closed when it reaches the maximum size or when the maximum delay has elapsed
+ * since its first record was taken. Each submitter receives a future that completes once the
+ * batch containing its record has been written.
+ * @param <R> Record type
+ */
+public class GroupCommitter<R> implements Closeable {
+    
+    /**
+     * Writes a batch of records durably.
+     */
+    @FunctionalInterface
+    public interface BatchWriter<R> {
+        void write(List<R> batch) throws IOException;
+    }
+    
+    /**
+     * Storage work that must run on the writer thread, ordered with the batches around it.
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws IOException;
+    }
+    
+    private static final Logger logger = Logger.getLogger(GroupCommitter.class.getName());
+    
+    private final BatchWriter<R> writer;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Entry<R>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    /**
+     * Guards {@link #running} against submissions: enqueueing holds the read lock, so that once
+     * stopping takes the write lock no entry can land behind the final drain.
+     */
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+    
+    public GroupCommitter(String name, BatchWriter<R> writer, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive");
+        }
+        this.writer = writer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.thread = new Thread(this::runLoop, "group-commit-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    /**
+     * Queues a record for the next batch.
+     * @return a future completed when the record's batch has been written
+     */
+    public CompletableFuture<Void> submit(R record) {
+        return enqueue(new Entry<>(record, null));
+    }
+    
+    /**
+     * Queues an action that runs on the writer thread after every previously submitted record
+     * has been written.
+     */
+    public CompletableFuture<Void> submit(Action action) {
+        return enqueue(new Entry<>(null, action));
+    }
+    
+    /**
+     * Number of batches written so far.
+     */
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+    
+    /**
+     * Number of records written so far.
+     */
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+    
+    /**
+     * Writes all pending records and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        stateLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            queue.add(new Entry<>(null, null));
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending(new IOException("Group committer is closed"));
+    }
+    
+    private CompletableFuture<Void> enqueue(Entry<R> entry) {
+        stateLock.readLock().lock();
+        try {
+            if (running) {
+                queue.add(entry);
+                return entry.future;
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        entry.future.completeExceptionally(new IOException("Group committer is closed"));
+        return entry.future;
+    }
+    
+    private void runLoop() {
+        Throwable failure = null;
+        try {
+            List<Entry<R>> batch = new ArrayList<>(maxBatchSize);
+            boolean stopped = false;
+            while (!stopped) {
+                try {
+                    Entry<R> first = queue.take();
+                    if (first.isStop()) {
+                        break;
+                    }
+                    batch.add(first);
+                    if (first.action == null) {
+                        stopped = collectBatch(batch);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped = true;
+                }
+                flush(batch);
+            }
+        } catch (Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            // Whether closed, interrupted or dying, refuse new entries and fail those still queued
+            stateLock.writeLock().lock();
+            try {
+                running = false;
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            failPending(failure == null
+                    ? new IOException("Group committer is closed")
+                    : new IOException("Group commit writer died", failure));
+        }
+    }
+    
+    private void failPending(IOException cause) {
+        Entry<R> orphan;
+        while ((orphan = queue.poll()) != null) {
+            orphan.future.completeExceptionally(cause);
+        }
+    }
+    
+    /**
+     * Adds records to the batch until it is full, the delay expires, or an action is reached.
+     * @return true if the stop marker was reached
+     */
+    private boolean collectBatch(List<Entry<R>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            Entry<R> next = queue.peek();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return false;
+                }
+            } else {
+                queue.poll();
+            }
+            if (next.isStop()) {
+                return true;
+            }
+            batch.add(next);
+            if (next.action != null) {
+                return false;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Writes the collected records, runs a trailing action if present and completes the futures.
+     */
+    private void flush(List<Entry<R>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        Entry<R> last = batch.get(batch.size() - 1);
+        Action action = last.action;
+        List<R> records = new ArrayList<>(batch.size());
+        for (Entry<R> entry : batch) {
+            if (entry.action == null) {
+                records.add(entry.record);
+            }
+        }
+        
+        try {
+            if (!records.isEmpty()) {
+                writer.write(records);
+                batchesWritten.incrementAndGet();
+                recordsWritten.addAndGet(records.size());
+            }
+            if (action != null) {
+                action.run();
+            }
+            for (Entry<R> entry : batch) {
+                entry.future.complete(null);
+            }
+        } catch (Throwable e) {
+            logger.log(Level.WARNING, "Group commit of {0} entries failed: {1}", new Object[]{batch.size(), e.toString()});
+            for (Entry<R> entry : batch) {
+                entry.future.completeExceptionally(e);
+            }
+            if (e instanceof Error) {
+                // The writer thread cannot be trusted to go on; runLoop fails everything after it
+                throw (Error) e;
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+    
+    private static final class Entry<R> {
+        final R record;
+        final Action action;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        
+        Entry(R record, Action action) {
+            this.record = record;
+            this.action = action;
+        }
+        
+        boolean isStop() {
+            return record == null && action == null;
+        }
+    }
+}
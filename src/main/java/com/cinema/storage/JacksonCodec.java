@@ -0,0 +1,89 @@
+package com.cinema.storage;
+
+import com.cinema.utils.JsonUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage codec backed by a Jackson data format.
+ */
+public class JacksonCodec implements StorageCodec {
+    
+    private final ObjectMapper mapper;
+    private final ObjectWriter snapshotWriter;
+    private final ObjectWriter recordWriter;
+    
+    private JacksonCodec(ObjectMapper mapper, boolean indentSnapshots) {
+        this.mapper = mapper;
+        this.recordWriter = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.snapshotWriter = indentSnapshots
+                ? mapper.writer().with(SerializationFeature.INDENT_OUTPUT)
+                : recordWriter;
+    }
+    
+    /**
+     * Creates a JSON codec. Journal records are always written compactly.
+     * @param pretty whether snapshots are indented for human readers
+     */
+    public static JacksonCodec json(boolean pretty) {
+        return new JacksonCodec(JsonUtil.getObjectMapper(), pretty);
+    }
+    
+    /**
+     * Creates a codec for Smile, Jackson's binary JSON format. Repeated property names and
+     * short string values are back-referenced instead of being written out again, and dates
+     * are written as compact numeric arrays instead of ISO-8601 text.
+     */
+    public static JacksonCodec smile() {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        ObjectMapper mapper = JsonUtil.createMapper(factory)
+                .enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return new JacksonCodec(mapper, false);
+    }
+    
+    /**
+     * Gets the mapper for this codec's data format.
+     */
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+    
+    /**
+     * Creates a generator that writes this codec's snapshot layout, e.g. for transcoding.
+     */
+    public JsonGenerator createSnapshotGenerator(OutputStream out) throws IOException {
+        return snapshotWriter.createGenerator(out);
+    }
+    
+    @Override
+    public <T> void writeAll(List<T> entities, OutputStream out) throws IOException {
+        snapshotWriter.writeValue(out, entities);
+    }
+    
+    @Override
+    public <T> long readAll(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException {
+        return JsonUtil.streamFromStream(mapper, in, type, consumer);
+    }
+    
+    @Override
+    public byte[] encode(Object entity) throws IOException {
+        return recordWriter.writeValueAsBytes(entity);
+    }
+    
+    @Override
+    public <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException {
+        return mapper.readValue(data, offset, length, type);
+    }
+}
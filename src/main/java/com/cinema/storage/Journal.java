@@ -0,0 +1,202 @@
+package com.cinema.storage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of repository mutations.
+ * Each record is stored as a frame of {@code [int length][int crc32c][payload]} where the payload is
+ * {@code [byte operation][long id][encoded entity]}. Entities are encoded with the repository's
+ * {@link StorageCodec}; the format of each record is recognized on replay, so a journal stays
+ * readable after the repository switches formats. A frame that is truncated or fails its
+ * checksum marks the end of the log; it is the remnant of an interrupted append and is discarded.
+ * @param <T> Entity type
+ */
+public class Journal<T> implements Closeable {
+    
+    private static final Logger logger = Logger.getLogger(Journal.class.getName());
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int PAYLOAD_HEADER_BYTES = 9;
+    
+    private final Path path;
+    private final Class<T> entityClass;
+    private final StorageCodec codec;
+    private FileChannel channel;
+    
+    public Journal(Path path, Class<T> entityClass, StorageCodec codec) {
+        this.path = path;
+        this.entityClass = entityClass;
+        this.codec = codec;
+    }
+    
+    /**
+     * Reads all intact records in order and passes them to the consumer.
+     * A torn record at the end of the file is cut off so that later appends follow valid data.
+     * @return the number of records replayed
+     */
+    public int replay(Consumer<JournalRecord<T>> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        
+        long fileLength = Files.size(path);
+        long validLength = 0;
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                byte[] payload = readFrame(in, fileLength - validLength);
+                if (payload == null) {
+                    break;
+                }
+                consumer.accept(decode(payload));
+                validLength += FRAME_HEADER_BYTES + payload.length;
+                count++;
+            }
+        }
+        
+        if (validLength < fileLength) {
+            logger.log(Level.WARNING, "Discarding {0} bytes of incomplete journal data in {1}",
+                    new Object[]{fileLength - validLength, path});
+            try (FileChannel truncating = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncating.truncate(validLength);
+                truncating.force(true);
+            }
+        }
+        
+        logger.log(Level.INFO, "Replayed {0} journal records from {1}", new Object[]{count, path});
+        return count;
+    }
+    
+    /**
+     * Appends a record and forces it to disk.
+     */
+    public void append(JournalRecord<T> record) throws IOException {
+        append(Collections.singletonList(record), true);
+    }
+    
+    /**
+     * Appends a batch of records with a single write, optionally forcing them to disk.
+     */
+    public void append(List<JournalRecord<T>> records, boolean force) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        int totalBytes = 0;
+        for (JournalRecord<T> record : records) {
+            byte[] payload = encode(record);
+            payloads.add(payload);
+            totalBytes += FRAME_HEADER_BYTES + payload.length;
+        }
+        
+        ByteBuffer frames = ByteBuffer.allocate(totalBytes);
+        for (byte[] payload : payloads) {
+            frames.putInt(payload.length);
+            frames.putInt(checksum(payload));
+            frames.put(payload);
+        }
+        frames.flip();
+        
+        FileChannel out = channel();
+        while (frames.hasRemaining()) {
+            out.write(frames);
+        }
+        if (force) {
+            out.force(false);
+        }
+    }
+    
+    /**
+     * Discards all records, typically after their effects have been captured in a snapshot.
+     */
+    public void truncate() throws IOException {
+        if (channel == null && !Files.exists(path)) {
+            return;
+        }
+        FileChannel out = channel();
+        out.truncate(0);
+        out.force(true);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+    
+    /**
+     * Reads the payload of the next frame, or returns null at the end of the intact log.
+     * @param remaining bytes left in the file from the start of the frame; a frame claiming more
+     *                  is a torn or garbage tail, rejected before its payload is allocated
+     */
+    private static byte[] readFrame(DataInputStream in, long remaining) throws IOException {
+        try {
+            int length = in.readInt();
+            int expectedChecksum = in.readInt();
+            if (length < PAYLOAD_HEADER_BYTES || length > remaining - FRAME_HEADER_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return checksum(payload) == expectedChecksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+    
+    private byte[] encode(JournalRecord<T> record) throws IOException {
+        byte[] entityBytes = record.getEntity() != null ? codec.encode(record.getEntity()) : new byte[0];
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_HEADER_BYTES + entityBytes.length);
+        payload.put((byte) record.getOperation().ordinal());
+        payload.putLong(record.getId());
+        payload.put(entityBytes);
+        return payload.array();
+    }
+    
+    private JournalRecord<T> decode(byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        JournalRecord.Operation operation = JournalRecord.Operation.fromCode(buffer.get());
+        long id = buffer.getLong();
+        switch (operation) {
+            case PUT:
+                int length = payload.length - PAYLOAD_HEADER_BYTES;
+                T entity = StorageFormat.detect(payload, PAYLOAD_HEADER_BYTES, length).codec()
+                        .decode(payload, PAYLOAD_HEADER_BYTES, length, entityClass);
+                return JournalRecord.put(id, entity);
+            default:
+                return JournalRecord.delete(id);
+        }
+    }
+    
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
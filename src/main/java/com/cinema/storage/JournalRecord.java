@@ -0,0 +1,65 @@
+package com.cinema.storage;
+
+/**
+ * A single mutation recorded in a {@link Journal}.
+ * @param <T> Entity type
+ */
+public final class JournalRecord<T> {
+    
+    /**
+     * Kind of mutation a record describes.
+     */
+    public enum Operation {
+        PUT, DELETE;
+        
+        private static final Operation[] VALUES = values();
+        
+        static Operation fromCode(int code) {
+            if (code < 0 || code >= VALUES.length) {
+                throw new IllegalArgumentException("Unknown journal operation code: " + code);
+            }
+            return VALUES[code];
+        }
+    }
+    
+    private final Operation operation;
+    private final long id;
+    private final T entity;
+    
+    private JournalRecord(Operation operation, long id, T entity) {
+        this.operation = operation;
+        this.id = id;
+        this.entity = entity;
+    }
+    
+    /**
+     * Creates a record that inserts or replaces the entity with the given ID.
+     */
+    public static <T> JournalRecord<T> put(long id, T entity) {
+        return new JournalRecord<>(Operation.PUT, id, entity);
+    }
+    
+    /**
+     * Creates a record that removes the entity with the given ID.
+     */
+    public static <T> JournalRecord<T> delete(long id) {
+        return new JournalRecord<>(Operation.DELETE, id, null);
+    }
+    
+    public Operation getOperation() {
+        return operation;
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public T getEntity() {
+        return entity;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("JournalRecord[op=%s, id=%d]", operation, id);
+    }
+}
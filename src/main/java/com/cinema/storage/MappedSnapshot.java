@@ -0,0 +1,215 @@
+package com.cinema.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot layout designed to be memory-mapped, so that entities are decoded on first access
+ * instead of at startup:
+ * <pre>
+ * [int magic "CMAP"][int version]
+ * [entity bodies, each encoded on its own]
+ * [index: one {long id, long offset, int length, int crc32c} entry per entity]
+ * [trailer: {long indexOffset, int count, int index crc32c}]
+ * </pre>
+ * Opening a snapshot verifies only the trailer and the fixed-width index, so its cost depends on
+ * the number of entities rather than the size of the data. Each body is verified against its own
+ * checksum when it is decoded.
+ */
+public final class MappedSnapshot {
+    
+    private static final int MAGIC = 0x434D4150;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int ENTRY_BYTES = 24;
+    private static final int TRAILER_BYTES = 16;
+    
+    private final ByteBuffer buffer;
+    private final int indexOffset;
+    private final int count;
+    
+    private MappedSnapshot(ByteBuffer buffer, int indexOffset, int count) {
+        this.buffer = buffer;
+        this.indexOffset = indexOffset;
+        this.count = count;
+    }
+    
+    /**
+     * Checks whether the file starts with the mapped snapshot header.
+     */
+    public static boolean isMapped(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(StorageFormat.headerLength());
+            return StorageFormat.detect(header, 0, header.length) == StorageFormat.MAPPED;
+        }
+    }
+    
+    /**
+     * Writes entities in the mapped layout, encoding each one separately with the codec.
+     */
+    public static <T> void write(List<T> entities, ToLongFunction<? super T> idOf, StorageCodec codec,
+                                 OutputStream out) throws IOException {
+        Writer writer = new Writer(out, entities.size());
+        for (T entity : entities) {
+            writer.add(idOf.applyAsLong(entity), codec.encode(entity));
+        }
+        writer.finish();
+    }
+    
+    /**
+     * Opens a mapped snapshot after verifying its header, trailer and index.
+     * @throws IOException if the content is not a complete, intact mapped snapshot
+     */
+    public static MappedSnapshot open(ByteBuffer buffer) throws IOException {
+        int limit = buffer.limit();
+        if (limit < HEADER_BYTES + TRAILER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported mapped snapshot version " + buffer.getInt(4));
+        }
+        
+        int trailer = limit - TRAILER_BYTES;
+        long indexOffset = buffer.getLong(trailer);
+        int count = buffer.getInt(trailer + 8);
+        if (count < 0 || indexOffset < HEADER_BYTES || indexOffset + (long) count * ENTRY_BYTES != trailer) {
+            throw new IOException("Mapped snapshot index is truncated or damaged");
+        }
+        
+        CRC32C crc = new CRC32C();
+        crc.update(region(buffer, (int) indexOffset, count * ENTRY_BYTES));
+        if ((int) crc.getValue() != buffer.getInt(trailer + 12)) {
+            throw new IOException("Checksum mismatch in mapped snapshot index");
+        }
+        return new MappedSnapshot(buffer, (int) indexOffset, count);
+    }
+    
+    /**
+     * Returns a view of a region of the buffer, leaving the buffer's own position untouched so that
+     * concurrent readers do not interfere.
+     */
+    private static ByteBuffer region(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer region = buffer.duplicate();
+        region.limit(offset + length).position(offset);
+        return region;
+    }
+    
+    /**
+     * Number of entities in the snapshot.
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * Returns the ID of the entity at the given index position without decoding it.
+     */
+    public long getId(int index) {
+        return buffer.getLong(entry(index));
+    }
+    
+    /**
+     * Verifies and decodes the entity at the given index position.
+     */
+    public <T> T read(int index, Class<T> type) throws IOException {
+        int entry = entry(index);
+        long offset = buffer.getLong(entry + 8);
+        int length = buffer.getInt(entry + 16);
+        if (offset < HEADER_BYTES || length < 0 || offset + length > indexOffset) {
+            throw new IOException("Mapped snapshot entry " + index + " points outside the data area");
+        }
+        
+        byte[] body = new byte[length];
+        region(buffer, (int) offset, length).get(body);
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(entry + 20)) {
+            throw new IOException(String.format("Checksum mismatch in mapped snapshot entity %d", getId(index)));
+        }
+        return StorageFormat.detect(body, 0, length).codec().decode(body, 0, length, type);
+    }
+    
+    private int entry(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Entry " + index + " of " + count);
+        }
+        return indexOffset + index * ENTRY_BYTES;
+    }
+    
+    /**
+     * Writes a mapped snapshot one encoded entity at a time. Bodies are written as they arrive;
+     * the index is kept in memory and written by {@link #finish()}.
+     */
+    public static final class Writer {
+        
+        private final DataOutputStream out;
+        private long position = HEADER_BYTES;
+        private long[] ids;
+        private long[] offsets;
+        private int[] lengths;
+        private int[] checksums;
+        private int count;
+        
+        public Writer(OutputStream out, int expectedSize) throws IOException {
+            this.out = new DataOutputStream(out);
+            int capacity = Math.max(expectedSize, 16);
+            this.ids = new long[capacity];
+            this.offsets = new long[capacity];
+            this.lengths = new int[capacity];
+            this.checksums = new int[capacity];
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+        
+        /**
+         * Appends an encoded entity.
+         */
+        public void add(long id, byte[] body) throws IOException {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                checksums = Arrays.copyOf(checksums, capacity);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            ids[count] = id;
+            offsets[count] = position;
+            lengths[count] = body.length;
+            checksums[count] = (int) crc.getValue();
+            count++;
+            
+            out.write(body);
+            position += body.length;
+        }
+        
+        /**
+         * Writes the index and trailer. The underlying stream is flushed but not closed.
+         */
+        public void finish() throws IOException {
+            long indexOffset = position;
+            CRC32C crc = new CRC32C();
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES);
+            for (int i = 0; i < count; i++) {
+                entry.clear();
+                entry.putLong(ids[i]).putLong(offsets[i]).putInt(lengths[i]).putInt(checksums[i]);
+                crc.update(entry.array());
+                out.write(entry.array());
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(count);
+            out.writeInt((int) crc.getValue());
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.cinema.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Crash-safe snapshot file with one previous generation kept as a fallback.
+ * <p>
+ * A snapshot is written to {@code <file>.tmp}, fsynced, and atomically renamed over the data file,
+ * so the data file always holds either the old or the new snapshot in full. Before the rename the
+ * current file is preserved as {@code <file>.prev} and the CRC32C checksums of both generations are
+ * recorded in {@code <file>.crc32c}. On load a generation is accepted only if its checksum matches a
+ * recorded one; if the current file fails verification or cannot be parsed, the previous generation
+ * is loaded instead. Files written before checksums were introduced have no sidecar and are accepted
+ * as they are. A {@link MappedSnapshot} is mapped rather than streamed and verifies itself, so it is
+ * not read in full on load.
+ */
+public class SnapshotFile {
+    
+    /**
+     * Writes snapshot content to a stream.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+    
+    /**
+     * Reads snapshot content from a stream. May be invoked once per generation tried, so it must
+     * discard anything it kept from an earlier, failed invocation.
+     */
+    @FunctionalInterface
+    public interface ContentReader {
+        /**
+         * @param length size in bytes of the generation being read
+         */
+        void read(InputStream in, long length) throws IOException;
+    }
+    
+    /**
+     * Reads a memory-mapped snapshot. The mapping stays valid after the file is replaced, so the
+     * reader may keep it for lazy access.
+     */
+    @FunctionalInterface
+    public interface MappedReader {
+        void read(ByteBuffer content) throws IOException;
+    }
+    
+    private static final Logger logger = Logger.getLogger(SnapshotFile.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final Path path;
+    private final Path tempPath;
+    private final Path previousPath;
+    private final Path checksumPath;
+    
+    /** Checksum of the generation currently in {@link #path}, if known to be valid. */
+    private Checksum current;
+    /** Checksum of the generation in {@link #previousPath}, if known to be valid. */
+    private Checksum previous;
+    
+    public SnapshotFile(Path path) {
+        this.path = path;
+        this.tempPath = sibling(path, ".tmp");
+        this.previousPath = sibling(path, ".prev");
+        this.checksumPath = sibling(path, ".crc32c");
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    /**
+     * Loads the newest valid generation.
+     * @return false if no snapshot exists yet
+     * @throws IOException if snapshots exist but none of them is valid
+     */
+    public boolean load(ContentReader reader) throws IOException {
+        return load(reader, null);
+    }
+    
+    /**
+     * Loads the newest valid generation, passing mapped snapshots to {@code mappedReader} and
+     * streaming all other generations to {@code reader}.
+     * @return false if no snapshot exists yet
+     * @throws IOException if snapshots exist but none of them is valid
+     */
+    public boolean load(ContentReader reader, MappedReader mappedReader) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        
+        List<Checksum> recorded = readRecordedChecksums();
+        try {
+            current = loadGeneration(path, recorded, 0, reader, mappedReader);
+            return true;
+        } catch (IOException e) {
+            if (!Files.exists(previousPath)) {
+                throw e;
+            }
+            logger.log(Level.SEVERE, "Snapshot {0} is invalid ({1}); falling back to previous generation",
+                    new Object[]{path, e.getMessage()});
+            try {
+                previous = loadGeneration(previousPath, recorded, 1, reader, mappedReader);
+            } catch (IOException fallbackError) {
+                e.addSuppressed(fallbackError);
+                throw e;
+            }
+            current = null;
+            return true;
+        }
+    }
+    
+    /**
+     * Atomically replaces the snapshot with new content.
+     * @param fsync whether to force the data to disk before it replaces the current snapshot
+     */
+    public void write(ContentWriter writer, boolean fsync) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), crc);
+            writer.write(new NonClosingOutputStream(out));
+            out.flush();
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+        Checksum written = new Checksum(crc.getValue(), Files.size(tempPath));
+        
+        // Keep the current generation as the fallback, unless it already failed verification
+        if (current != null && Files.exists(path)) {
+            Files.deleteIfExists(previousPath);
+            try {
+                Files.createLink(previousPath, path);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                Files.copy(path, previousPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            previous = current;
+        }
+        
+        writeRecordedChecksums(written, previous, fsync);
+        moveAtomically(tempPath, path);
+        if (fsync) {
+            forceDirectory(parent);
+        }
+        current = written;
+    }
+    
+    /**
+     * Loads one generation.
+     * @param generation position of the generation's checksum in the sidecar, newest first
+     */
+    private Checksum loadGeneration(Path file, List<Checksum> recorded, int generation,
+                                    ContentReader reader, MappedReader mappedReader) throws IOException {
+        if (mappedReader != null && MappedSnapshot.isMapped(file)) {
+            return mapGeneration(file, recorded, generation, mappedReader);
+        }
+        
+        CRC32C crc = new CRC32C();
+        long length = Files.size(file);
+        try (CheckedInputStream in = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), crc)) {
+            reader.read(new NonClosingInputStream(in), length);
+            // Consume anything the reader left behind so the checksum covers the whole file
+            byte[] rest = new byte[BUFFER_SIZE];
+            while (in.read(rest) != -1) {
+                // draining
+            }
+        }
+        
+        Checksum actual = new Checksum(crc.getValue(), length);
+        if (!recorded.isEmpty() && !recorded.contains(actual)) {
+            throw new IOException(String.format("Checksum mismatch in %s (crc32c=%08x, length=%d)",
+                    file, actual.crc, actual.length));
+        }
+        return actual;
+    }
+    
+    private Checksum mapGeneration(Path file, List<Checksum> recorded, int generation,
+                                   MappedReader mappedReader) throws IOException {
+        long length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " is too large to map");
+            }
+            mappedReader.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+        
+        // The file was not checksummed as a whole; keep the recorded checksum if it still applies
+        if (generation < recorded.size() && recorded.get(generation).length == length) {
+            return recorded.get(generation);
+        }
+        return null;
+    }
+    
+    private List<Checksum> readRecordedChecksums() throws IOException {
+        List<Checksum> recorded = new ArrayList<>(2);
+        try {
+            for (String line : Files.readAllLines(checksumPath, StandardCharsets.US_ASCII)) {
+                Checksum checksum = Checksum.parse(line);
+                if (checksum != null) {
+                    recorded.add(checksum);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Snapshot written before checksums were recorded
+        }
+        return recorded;
+    }
+    
+    private void writeRecordedChecksums(Checksum latest, Checksum older, boolean fsync) throws IOException {
+        StringBuilder content = new StringBuilder(latest.toString()).append('\n');
+        if (older != null) {
+            content.append(older).append('\n');
+        }
+        Path tempChecksumPath = sibling(checksumPath, ".tmp");
+        try (FileChannel channel = FileChannel.open(tempChecksumPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(StandardCharsets.US_ASCII.encode(content.toString()));
+            if (fsync) {
+                channel.force(true);
+            }
+        }
+        moveAtomically(tempChecksumPath, checksumPath);
+    }
+    
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Makes completed renames durable. Not all platforms allow opening a directory; there the
+     * rename is left to the file system's own ordering guarantees.
+     */
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not fsync directory {0}: {1}", new Object[]{directory, e.getMessage()});
+        }
+    }
+    
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+    
+    /**
+     * Keeps readers from closing the underlying stream before it has been fully checksummed.
+     */
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public void close() {
+            // closed by the owner
+        }
+    }
+    
+    /**
+     * Keeps writers from closing the underlying channel before it has been forced.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+    
+    /**
+     * CRC32C and length of one snapshot generation.
+     */
+    private static final class Checksum {
+        final long crc;
+        final long length;
+        
+        Checksum(long crc, long length) {
+            this.crc = crc;
+            this.length = length;
+        }
+        
+        static Checksum parse(String line) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2) {
+                return null;
+            }
+            try {
+                return new Checksum(Long.parseLong(parts[0], 16), Long.parseLong(parts[1]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Checksum)) return false;
+            Checksum that = (Checksum) o;
+            return crc == that.crc && length == that.length;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Long.hashCode(crc * 31 + length);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%08x %d", crc, length);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cinema.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Encodes entities for repository snapshots and journal records.
+ */
+public interface StorageCodec {
+    
+    /**
+     * Writes all entities as one snapshot.
+     */
+    <T> void writeAll(List<T> entities, OutputStream out) throws IOException;
+    
+    /**
+     * Reads a snapshot one entity at a time.
+     * @return the number of entities read
+     */
+    <T> long readAll(InputStream in, Class<T> type, Consumer<? super T> consumer) throws IOException;
+    
+    /**
+     * Encodes a single entity, e.g. for a journal record.
+     */
+    byte[] encode(Object entity) throws IOException;
+    
+    /**
+     * Decodes a single entity from a range of bytes.
+     */
+    <T> T decode(byte[] data, int offset, int length, Class<T> type) throws IOException;
+}
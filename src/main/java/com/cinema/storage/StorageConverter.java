@@ -0,0 +1,149 @@
+package com.cinema.storage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One-shot conversion of a repository data file between storage formats.
+ * The source format is detected from the file itself and the content is transcoded one element at
+ * a time as a JSON tree, so neither the entity classes nor the whole data set are needed in memory. The target is written through {@link SnapshotFile}, so it is
+ * replaced atomically and gets a checksum. Journals need no conversion: their records are
+ * recognized individually on replay.
+ */
+public class StorageConverter {
+    
+    private static final Logger logger = Logger.getLogger(StorageConverter.class.getName());
+    
+    private StorageConverter() {
+        // utility class
+    }
+    
+    /**
+     * Converts a data file to the given format.
+     * @return the detected format of the source
+     * @throws IOException if the source is missing or invalid, or the target cannot be written
+     */
+    public static StorageFormat convert(Path source, Path target, StorageFormat format) throws IOException {
+        if (source.toAbsolutePath().normalize().equals(target.toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Source and target must be different files");
+        }
+        
+        StorageFormat[] detected = new StorageFormat[1];
+        SnapshotFile targetFile = new SnapshotFile(target);
+        boolean found = new SnapshotFile(source).load((in, size) -> {
+            BufferedInputStream buffered = new BufferedInputStream(in);
+            byte[] header = new byte[StorageFormat.headerLength()];
+            buffered.mark(header.length);
+            int length = buffered.readNBytes(header, 0, header.length);
+            buffered.reset();
+            detected[0] = StorageFormat.detect(header, 0, length);
+            
+            ObjectMapper mapper = detected[0].codec().getMapper();
+            try (JsonParser parser = mapper.createParser(buffered)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected an array in " + source);
+                }
+                targetFile.write(out -> {
+                    ElementWriter writer = ElementWriter.open(out, format);
+                    JsonToken token;
+                    while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                        writer.write(mapper.readTree(parser));
+                    }
+                    if (token != JsonToken.END_ARRAY) {
+                        throw new IOException("Unexpected " + token + " in " + source);
+                    }
+                    writer.finish();
+                }, true);
+            }
+        }, content -> {
+            detected[0] = StorageFormat.MAPPED;
+            MappedSnapshot snapshot = MappedSnapshot.open(content);
+            targetFile.write(out -> {
+                ElementWriter writer = ElementWriter.open(out, format);
+                for (int i = 0; i < snapshot.size(); i++) {
+                    writer.write(snapshot.read(i, JsonNode.class));
+                }
+                writer.finish();
+            }, true);
+        });
+        if (!found) {
+            throw new IOException("Data file not found: " + source);
+        }
+        
+        logger.log(Level.INFO, "Converted {0} ({1}, {2} bytes) to {3} ({4}, {5} bytes)",
+                new Object[]{source, detected[0], Files.size(source), target, format, Files.size(target)});
+        return detected[0];
+    }
+    
+    /**
+     * Command line entry point: {@code StorageConverter <source> <target> <JSON|JSON_COMPACT|SMILE|MAPPED>}.
+     */
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: StorageConverter <source> <target> <JSON|JSON_COMPACT|SMILE|MAPPED>");
+            System.exit(2);
+        }
+        try {
+            StorageFormat format = StorageFormat.valueOf(args[2].toUpperCase(Locale.ROOT));
+            StorageFormat detected = convert(Paths.get(args[0]), Paths.get(args[1]), format);
+            System.out.printf("Converted %s (%s) to %s (%s)%n", args[0], detected, args[1], format);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Writes entities, one element at a time, in the target format.
+     */
+    private interface ElementWriter {
+        void write(JsonNode element) throws IOException;
+        
+        void finish() throws IOException;
+        
+        static ElementWriter open(OutputStream out, StorageFormat format) throws IOException {
+            if (format == StorageFormat.MAPPED) {
+                MappedSnapshot.Writer writer = new MappedSnapshot.Writer(out, 0);
+                return new ElementWriter() {
+                    @Override
+                    public void write(JsonNode element) throws IOException {
+                        writer.add(element.path("id").asLong(), format.codec().encode(element));
+                    }
+                    
+                    @Override
+                    public void finish() throws IOException {
+                        writer.finish();
+                    }
+                };
+            }
+            
+            JsonGenerator generator = format.codec().createSnapshotGenerator(out);
+            generator.writeStartArray();
+            return new ElementWriter() {
+                @Override
+                public void write(JsonNode element) throws IOException {
+                    generator.writeTree(element);
+                }
+                
+                @Override
+                public void finish() throws IOException {
+                    generator.writeEndArray();
+                    generator.close();
+                }
+            };
+        }
+    }
+}
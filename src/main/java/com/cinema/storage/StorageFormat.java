@@ -0,0 +1,83 @@
+package com.cinema.storage;
+
+/**
+ * On-disk formats available for repository data files and journal records.
+ * Readers recognize the format from the data itself, so a repository can switch formats and
+ * still load files written in the previous one.
+ */
+public enum StorageFormat {
+    
+    /**
+     * Indented JSON, readable and editable by hand.
+     */
+    JSON(JacksonCodec.json(true)),
+    
+    /**
+     * JSON without whitespace.
+     */
+    JSON_COMPACT(JacksonCodec.json(false)),
+    
+    /**
+     * Jackson Smile binary JSON.
+     */
+    SMILE(JacksonCodec.smile()),
+    
+    /**
+     * Memory-mapped snapshot with a fixed-width index whose entities are decoded on first access
+     * (see {@link MappedSnapshot}). Entity bodies and journal records are written as Smile.
+     */
+    MAPPED(JacksonCodec.smile());
+    
+    /** Every Smile document starts with the header ":)\n". */
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    
+    /** Mapped snapshots start with the magic number "CMAP". */
+    private static final byte[] MAPPED_HEADER = {'C', 'M', 'A', 'P'};
+    
+    private final JacksonCodec codec;
+    
+    StorageFormat(JacksonCodec codec) {
+        this.codec = codec;
+    }
+    
+    /**
+     * Codec for this format. For {@link #MAPPED} it encodes single entities and journal records;
+     * whole snapshots are laid out by {@link MappedSnapshot}.
+     */
+    public JacksonCodec codec() {
+        return codec;
+    }
+    
+    /**
+     * Number of leading bytes {@link #detect} needs to recognize a format.
+     */
+    public static int headerLength() {
+        return Math.max(SMILE_HEADER.length, MAPPED_HEADER.length);
+    }
+    
+    /**
+     * Recognizes the format of encoded data from its first bytes. JSON and compact JSON are read
+     * the same way, so JSON is reported for both.
+     */
+    public static StorageFormat detect(byte[] data, int offset, int length) {
+        if (startsWith(data, offset, length, SMILE_HEADER)) {
+            return SMILE;
+        }
+        if (startsWith(data, offset, length, MAPPED_HEADER)) {
+            return MAPPED;
+        }
+        return JSON;
+    }
+    
+    private static boolean startsWith(byte[] data, int offset, int length, byte[] header) {
+        if (length < header.length) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (data[offset + i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
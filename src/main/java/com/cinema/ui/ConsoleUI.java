@@ -14,6 +14,8 @@ public class ConsoleUI {
     
     private static final String SEPARATOR = "=".repeat(80);
     private static final String LINE = "-".repeat(80);
+    /** Number of rows shown per page of a listing. */
+    public static final int PAGE_SIZE = 20;
     
     /**
      * Displays the main menu.
@@ -197,6 +199,15 @@ public class ConsoleUI {
         return response.equals("y") || response.equals("yes");
     }
     
+    /**
+     * Asks whether to show the next page of a listing.
+     * @return true to show the next page, false to stop
+     */
+    public static boolean nextPage(Scanner scanner, long shown, long total) {
+        System.out.printf("%nShown %d of %d. Press Enter for the next page, or q to stop: ", shown, total);
+        return !scanner.nextLine().trim().equalsIgnoreCase("q");
+    }
+    
     /**
      * Waits for user to press Enter.
      */
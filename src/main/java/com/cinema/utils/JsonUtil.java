@@ -1,13 +1,18 @@
 package com.cinema.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,12 +25,20 @@ public class JsonUtil {
     private static final ObjectMapper objectMapper;
     
     static {
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper = createMapper(new JsonFactory());
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
     }
     
+    /**
+     * Creates an ObjectMapper for the given data format with the system's standard configuration.
+     */
+    public static ObjectMapper createMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+    
     /**
      * Writes a list of objects to a JSON file.
      */
@@ -61,6 +74,34 @@ public class JsonUtil {
         return result;
     }
     
+    /**
+     * Reads an array in the mapper's data format from a stream one element at a time, passing each
+     * to the consumer without materializing the whole array.
+     * @return the number of elements read
+     */
+    public static <T> long streamFromStream(ObjectMapper mapper, InputStream in, Class<T> clazz,
+                                            Consumer<? super T> consumer) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return 0;
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array but found " + token);
+            }
+            
+            long count = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("Unexpected end of array after " + count + " items");
+                }
+                consumer.accept(mapper.readValue(parser, clazz));
+                count++;
+            }
+            return count;
+        }
+    }
+    
     /**
      * Converts an object to JSON string.
      */
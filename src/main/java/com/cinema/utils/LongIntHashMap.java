@@ -0,0 +1,226 @@
+package com.cinema.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to primitive {@code int} values.
+ * Uses linear probing with backward-shift deletion, so there are no tombstones and lookups
+ * stay constant time regardless of how many keys have been removed. Keys and values are never
+ * boxed. Not thread-safe.
+ */
+public class LongIntHashMap {
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+    
+    /** Key 0 marks an empty slot; a real 0 key is stored out of band. */
+    private static final long EMPTY = 0L;
+    
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    
+    private boolean hasZeroKey;
+    private int zeroValue;
+    
+    public LongIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+    
+    /**
+     * Creates an independent copy of another map.
+     */
+    public LongIntHashMap(LongIntHashMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeThreshold = other.resizeThreshold;
+        this.hasZeroKey = other.hasZeroKey;
+        this.zeroValue = other.zeroValue;
+    }
+    
+    /**
+     * Returns the value mapped to the key, or {@code missingValue} if the key is absent.
+     */
+    public int get(long key, int missingValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Checks whether the key is present.
+     */
+    public boolean containsKey(long key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Maps the key to the value, replacing any previous mapping.
+     */
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                values[slot] = value;
+                return;
+            }
+            if (current == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Removes the key and returns its previous value, or {@code missingValue} if it was absent.
+     */
+    public int remove(long key, int missingValue) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                int previous = values[slot];
+                shiftKeysBack(slot);
+                size--;
+                return previous;
+            }
+            if (current == EMPTY) {
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Removes all mappings, keeping the allocated capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        hasZeroKey = false;
+        size = 0;
+    }
+    
+    /**
+     * Closes the gap left by a removed slot by moving later entries of the same probe run back.
+     */
+    private void shiftKeysBack(int removed) {
+        int gap = removed;
+        int slot = (gap + 1) & mask;
+        while (true) {
+            long current = keys[slot];
+            if (current == EMPTY) {
+                break;
+            }
+            int home = slot(current);
+            // Move the entry only if its home slot does not lie cyclically in (gap, slot]
+            boolean movable = gap <= slot
+                    ? (home <= gap || home > slot)
+                    : (home <= gap && home > slot);
+            if (movable) {
+                keys[gap] = current;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+    
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    private int slot(long key) {
+        // Fibonacci hashing spreads sequential IDs across the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(Math.max(needed, DEFAULT_CAPACITY) - 1) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+}
@@ -0,0 +1,439 @@
+package com.cinema.utils;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Compressed bitmap of non-negative {@code long} values in the style of Roaring bitmaps.
+ * Values are grouped by their high bits into chunks of 65536; each chunk is stored either as a
+ * sorted array of its low 16 bits while it holds at most 4096 values, or as a 65536-bit bitmap
+ * once it is denser. Intersections and unions work chunk by chunk and pick the cheapest algorithm
+ * for each pair of containers. Not thread-safe.
+ */
+public class RoaringBitmap {
+    
+    /** A chunk with more values than this is stored as a bitmap, which is then smaller. */
+    private static final int ARRAY_MAX = 4096;
+    
+    private long[] keys;
+    private Container[] containers;
+    private int size;
+    
+    public RoaringBitmap() {
+        this.keys = new long[4];
+        this.containers = new Container[4];
+    }
+    
+    /**
+     * Creates an independent copy of another bitmap.
+     */
+    public RoaringBitmap(RoaringBitmap other) {
+        this.keys = Arrays.copyOf(other.keys, Math.max(other.size, 4));
+        this.containers = new Container[keys.length];
+        for (int i = 0; i < other.size; i++) {
+            containers[i] = other.containers[i].copy();
+        }
+        this.size = other.size;
+    }
+    
+    /**
+     * Creates a bitmap holding the given values.
+     */
+    public static RoaringBitmap of(long... values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (long value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+    
+    /**
+     * Adds a value.
+     * @return true if the value was not present
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public boolean add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        long high = value >>> 16;
+        int i = Arrays.binarySearch(keys, 0, size, high);
+        if (i < 0) {
+            i = -i - 1;
+            insertContainer(i, high, new ArrayContainer());
+        }
+        int before = containers[i].cardinality;
+        containers[i] = containers[i].add((char) value);
+        return containers[i].cardinality > before;
+    }
+    
+    /**
+     * Removes a value.
+     * @return true if the value was present
+     */
+    public boolean remove(long value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        if (i < 0) {
+            return false;
+        }
+        int before = containers[i].cardinality;
+        Container container = containers[i].remove((char) value);
+        if (container.cardinality == 0) {
+            removeContainer(i);
+        } else {
+            containers[i] = container;
+        }
+        return container.cardinality < before;
+    }
+    
+    public boolean contains(long value) {
+        if (value < 0) {
+            return false;
+        }
+        int i = Arrays.binarySearch(keys, 0, size, value >>> 16);
+        return i >= 0 && containers[i].contains((char) value);
+    }
+    
+    /**
+     * Returns the number of values, without iterating them.
+     */
+    public long getCardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Returns a new bitmap holding the values present in both bitmaps.
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality > 0) {
+                    result.insertContainer(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns a new bitmap holding the values present in either bitmap.
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.insertContainer(result.size, keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.insertContainer(result.size, other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.insertContainer(result.size, keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Calls the action for every value in ascending order.
+     */
+    public void forEach(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+    
+    /**
+     * Returns the values in ascending order.
+     */
+    public long[] toArray() {
+        long[] values = new long[Math.toIntExact(getCardinality())];
+        int[] next = {0};
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+    
+    private void insertContainer(int index, long key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+    
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+    
+    /**
+     * The low 16 bits of the values of one chunk. Operations return the container that holds the
+     * result, which is a different kind when the cardinality crosses {@link #ARRAY_MAX}.
+     */
+    private abstract static class Container {
+        
+        int cardinality;
+        
+        abstract Container add(char value);
+        
+        abstract Container remove(char value);
+        
+        abstract boolean contains(char value);
+        
+        abstract Container and(Container other);
+        
+        abstract Container or(Container other);
+        
+        abstract Container copy();
+        
+        abstract void forEach(long base, LongConsumer action);
+    }
+    
+    private static final class ArrayContainer extends Container {
+        
+        private char[] values;
+        
+        ArrayContainer() {
+            this.values = new char[4];
+        }
+        
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+        
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), ARRAY_MAX));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+        
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+        
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+        
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+        
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                return toBitmap().or(array);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j >= array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+        
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+        }
+        
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+        
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer(new long[1024], 0);
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+    
+    private static final class BitmapContainer extends Container {
+        
+        private final long[] words;
+        
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+        
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+        
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArrayContainer() : this;
+        }
+        
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+        
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[words.length];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result[i] = words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer bitmap = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? bitmap.toArrayContainer() : bitmap;
+        }
+        
+        @Override
+        Container or(Container other) {
+            BitmapContainer result = new BitmapContainer(words.clone(), cardinality);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                result.words[i] |= otherWords[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return result;
+        }
+        
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+        
+        @Override
+        void forEach(long base, LongConsumer action) {
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(base | ((long) i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+        
+        private ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(cardinality, 4)];
+            int[] count = {0};
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
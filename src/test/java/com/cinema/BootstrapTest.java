@@ -0,0 +1,74 @@
+package com.cinema;
+
+import com.cinema.repository.CustomerRepository;
+import com.cinema.repository.MovieRepository;
+import com.cinema.repository.TheaterRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Bootstrap.
+ */
+class BootstrapTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    /**
+     * Delays a factory until all repositories have started loading, which only succeeds if
+     * they load concurrently.
+     */
+    private static <R> Supplier<R> afterAllStarted(CountDownLatch started, Supplier<R> factory) {
+        return () -> {
+            started.countDown();
+            try {
+                if (!started.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Repositories were not loaded concurrently");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return factory.get();
+        };
+    }
+    
+    @Test
+    void testRepositoriesLoadConcurrently() {
+        CountDownLatch started = new CountDownLatch(3);
+        try (Bootstrap bootstrap = new Bootstrap(
+                afterAllStarted(started, () -> new CustomerRepository(tempDir.resolve("customers.json").toString())),
+                afterAllStarted(started, () -> new MovieRepository(tempDir.resolve("movies.json").toString())),
+                afterAllStarted(started, () -> new TheaterRepository(tempDir.resolve("theaters.json").toString())))) {
+            bootstrap.awaitAll();
+            
+            assertEquals(0, bootstrap.getCustomerService().getCustomerCount());
+            assertEquals(0, bootstrap.getMovieService().getMovieCount());
+            assertEquals(0, bootstrap.getTheaterService().getTheaterCount());
+        }
+    }
+    
+    @Test
+    void testFailedLoadDoesNotBlockOtherServices() {
+        try (Bootstrap bootstrap = new Bootstrap(
+                () -> {
+                    throw new UncheckedIOException(new IOException("damaged"));
+                },
+                () -> new MovieRepository(tempDir.resolve("movies.json").toString()),
+                () -> new TheaterRepository(tempDir.resolve("theaters.json").toString()))) {
+            
+            assertEquals(0, bootstrap.getMovieService().getMovieCount());
+            assertThrows(UncheckedIOException.class, bootstrap::getCustomerService);
+            assertThrows(UncheckedIOException.class, bootstrap::awaitAll);
+        }
+    }
+}
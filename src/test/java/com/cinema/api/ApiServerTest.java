@@ -0,0 +1,216 @@
+package com.cinema.api;
+
+import com.cinema.Bootstrap;
+import com.cinema.repository.CustomerRepository;
+import com.cinema.repository.MovieRepository;
+import com.cinema.repository.TheaterRepository;
+import com.cinema.utils.JsonUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ApiServer.
+ */
+class ApiServerTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private Bootstrap bootstrap;
+    private ApiServer server;
+    private HttpClient client;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        bootstrap = new Bootstrap(
+                () -> new CustomerRepository(tempDir.resolve("customers.json").toString()),
+                () -> new MovieRepository(tempDir.resolve("movies.json").toString()),
+                () -> new TheaterRepository(tempDir.resolve("theaters.json").toString()));
+        server = new ApiServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), bootstrap);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+        bootstrap.close();
+    }
+    
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+    }
+    
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+    
+    private HttpResponse<String> send(String method, String path, String body)
+            throws IOException, InterruptedException {
+        return send(request(path).header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body)));
+    }
+    
+    private static JsonNode json(HttpResponse<String> response) throws IOException {
+        return JsonUtil.getObjectMapper().readTree(response.body());
+    }
+    
+    @Test
+    void testCustomerLifecycle() throws Exception {
+        HttpResponse<String> created = send("POST", "/api/customers",
+                "{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@example.com\"}");
+        assertEquals(201, created.statusCode());
+        assertTrue(created.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        long id = json(created).get("id").asLong();
+        
+        JsonNode read = json(send(request("/api/customers/" + id)));
+        assertEquals("Lovelace", read.get("lastName").asText());
+        
+        HttpResponse<String> updated = send("PUT", "/api/customers/" + id, "{\"lastName\":\"King\"}");
+        assertEquals(200, updated.statusCode());
+        assertEquals("King", json(updated).get("lastName").asText());
+        assertEquals("Ada", json(updated).get("firstName").asText());
+        
+        HttpResponse<String> points = send("POST", "/api/customers/" + id + "/loyalty-points", "{\"points\":25}");
+        assertEquals(25, json(points).get("loyaltyPoints").asInt());
+        assertEquals(1, json(send(request("/api/customers/count"))).get("count").asLong());
+        
+        assertEquals(204, send(request("/api/customers/" + id).DELETE()).statusCode());
+        HttpResponse<String> missing = send(request("/api/customers/" + id));
+        assertEquals(404, missing.statusCode());
+        assertEquals(404, json(missing).get("status").asInt());
+    }
+    
+    @Test
+    void testInvalidRequestsAreAnsweredWithErrors() throws Exception {
+        assertEquals(400, send("POST", "/api/customers",
+                "{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"not an email\"}").statusCode());
+        assertEquals(400, send("POST", "/api/customers", "{\"firstName\":").statusCode());
+        assertEquals(400, send("POST", "/api/customers", "[1, 2]").statusCode());
+        assertEquals(400, send("POST", "/api/movies", "{\"title\":\"Heat\",\"genre\":\"Crime\"}").statusCode());
+        assertEquals(400, send("POST", "/api/movies", "{\"title\":\"Heat\",\"genre\":\"Crime\","
+                + "\"durationMinutes\":170,\"rating\":11}").statusCode());
+        assertEquals(0, json(send(request("/api/movies/count"))).get("count").asLong());
+        assertEquals(400, send(request("/api/movies/abc")).statusCode());
+        assertEquals(400, send(request("/api/movies?limit=0")).statusCode());
+        assertEquals(404, send(request("/api/movies/1/cast")).statusCode());
+        assertEquals(404, send(request("/api/moviesX")).statusCode());
+        assertEquals(405, send("PATCH", "/api/movies", "{}").statusCode());
+        
+        send("POST", "/api/customers", "{\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@example.com\"}");
+        HttpResponse<String> duplicate = send("POST", "/api/customers",
+                "{\"firstName\":\"Ada\",\"lastName\":\"King\",\"email\":\"ada@example.com\"}");
+        assertEquals(400, duplicate.statusCode());
+        assertTrue(json(duplicate).get("error").asText().contains("ada@example.com"));
+    }
+    
+    @Test
+    void testMoviesAreSearchedAndPaged() throws Exception {
+        for (String title : List.of("Alien", "Aliens", "Heat", "Ronin")) {
+            assertEquals(201, send("POST", "/api/movies", "{\"title\":\"" + title
+                    + "\",\"genre\":\"Action\",\"durationMinutes\":120,\"director\":\"Someone\","
+                    + "\"language\":\"English\",\"rating\":7.5}").statusCode());
+        }
+        
+        JsonNode found = json(send(request("/api/movies?q=alien")));
+        assertEquals(2, found.size());
+        
+        JsonNode first = json(send(request("/api/movies?limit=3")));
+        assertEquals(3, first.size());
+        long last = first.get(2).get("id").asLong();
+        JsonNode rest = json(send(request("/api/movies?limit=3&after=" + last)));
+        assertEquals(1, rest.size());
+        assertEquals("Ronin", rest.get(0).get("title").asText());
+        assertEquals(7.5, rest.get(0).get("rating").asDouble());
+        
+        assertEquals(4, json(send(request("/api/movies?genre=action"))).size());
+        
+        long movieId = rest.get(0).get("id").asLong();
+        long theaterId = json(send("POST", "/api/theaters",
+                "{\"name\":\"Main Hall\",\"capacity\":200,\"screenType\":\"IMAX\"}")).get("id").asLong();
+        JsonNode scheduled = json(send("PUT", "/api/theaters/" + theaterId + "/movies/" + movieId, ""));
+        assertEquals(movieId, scheduled.get("currentMovieIds").get(0).asLong());
+    }
+    
+    @Test
+    void testBatchEndpointsReportEachItem() throws Exception {
+        HttpResponse<String> created = send("POST", "/api/theaters/batch",
+                "[{\"name\":\"Hall 1\",\"capacity\":100,\"screenType\":\"2D\"},"
+                        + "{\"name\":\"\",\"capacity\":100,\"screenType\":\"2D\"},"
+                        + "{\"name\":\"Hall 3\",\"capacity\":300,\"screenType\":\"IMAX\"}]");
+        assertEquals(200, created.statusCode());
+        JsonNode report = json(created);
+        assertEquals(2, report.get("succeeded").asInt());
+        assertEquals(1, report.get("failed").asInt());
+        assertEquals(201, report.get("items").get(0).get("status").asInt());
+        assertEquals(400, report.get("items").get(1).get("status").asInt());
+        assertTrue(report.get("items").get(1).has("error"));
+        JsonNode first = report.get("items").get(0).get("result");
+        long firstId = first.get("id").asLong();
+        long thirdId = report.get("items").get(2).get("result").get("id").asLong();
+        
+        String change = "{\"id\":" + firstId + ",\"version\":" + first.get("version").asLong() + ",\"capacity\":150}";
+        JsonNode updated = json(send("PUT", "/api/theaters/batch", "[" + change + "]"));
+        assertEquals(1, updated.get("succeeded").asInt());
+        JsonNode stored = json(send(request("/api/theaters/" + firstId)));
+        assertEquals(150, stored.get("capacity").asInt());
+        assertEquals("Hall 1", stored.get("name").asText());
+        assertEquals(first.get("createdAt"), stored.get("createdAt"));
+        JsonNode stale = json(send("PUT", "/api/theaters/batch", "[" + change + "]"));
+        assertEquals(409, stale.get("items").get(0).get("status").asInt());
+        
+        assertEquals(400, send("POST", "/api/theaters/batch/delete", "[" + thirdId + ".5]").statusCode());
+        assertEquals(400, send("POST", "/api/theaters/batch/delete", "[\"" + thirdId + "\"]").statusCode());
+        JsonNode deleted = json(send("POST", "/api/theaters/batch/delete", "[" + thirdId + ", 999]"));
+        assertEquals(200, deleted.get("items").get(0).get("status").asInt());
+        assertEquals(404, deleted.get("items").get(1).get("status").asInt());
+        assertEquals(1, json(send(request("/api/theaters/count"))).get("count").asLong());
+        assertEquals(400, send("POST", "/api/theaters/batch", "{}").statusCode());
+        assertEquals(400, send("POST", "/api/theaters/batch", "[{\"name\":\"Hall\",\"capacity\":\"many\"}]").statusCode());
+    }
+    
+    @Test
+    void testBatchCreateIgnoresServerManagedFields() throws Exception {
+        JsonNode report = json(send("POST", "/api/customers/batch",
+                "[{\"id\":500,\"version\":7,\"loyaltyPoints\":1000,\"createdAt\":\"2000-01-01 00:00:00\","
+                        + "\"firstName\":\"Ada\",\"lastName\":\"Lovelace\",\"email\":\"ada@example.com\"}]"));
+        JsonNode customer = report.get("items").get(0).get("result");
+        assertNotEquals(500, customer.get("id").asLong());
+        assertEquals(0, customer.get("loyaltyPoints").asInt());
+        assertNotEquals("2000-01-01 00:00:00", customer.get("createdAt").asText());
+        assertEquals(404, send(request("/api/customers/500")).statusCode());
+    }
+    
+    @Test
+    void testServesManyConcurrentRequests() throws Exception {
+        long id = json(send("POST", "/api/theaters",
+                "{\"name\":\"Main Hall\",\"capacity\":200,\"screenType\":\"IMAX\"}")).get("id").asLong();
+        
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            responses.add(client.sendAsync(request("/api/theaters/" + id).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.join().statusCode());
+        }
+    }
+}
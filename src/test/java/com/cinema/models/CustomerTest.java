@@ -96,4 +96,18 @@ class CustomerTest {
         Customer customer2 = new Customer(1L, "John", "Doe", "john.doe@example.com", "+1234567890");
         assertEquals(customer, customer2);
     }
+    
+    @Test
+    void testCopyIsIndependent() {
+        customer.addLoyaltyPoints(10);
+        Customer copy = customer.copy();
+        copy.setFirstName("Jane");
+        copy.addLoyaltyPoints(5);
+        
+        assertEquals(customer, copy);
+        assertEquals(customer.getCreatedAt(), copy.getCreatedAt());
+        assertEquals("John", customer.getFirstName());
+        assertEquals(10, customer.getLoyaltyPoints());
+        assertEquals(15, copy.getLoyaltyPoints());
+    }
 }
@@ -0,0 +1,481 @@
+package com.cinema.repository;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.DuplicateKeyException;
+import com.cinema.exception.EntityNotFoundException;
+import com.cinema.exception.OptimisticLockException;
+import com.cinema.exception.ValidationException;
+import com.cinema.models.Customer;
+import com.cinema.storage.StorageFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.AfterEach;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CustomerRepository persistence.
+ */
+class CustomerRepositoryTest {
+    
+    private static final String TEST_FILE = "src/test/resources/test-repository-customers.json";
+    private static final String JOURNAL_FILE = TEST_FILE + ".journal";
+    
+    private CustomerRepository repository;
+    
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
+    }
+    
+    private CustomerRepository openJournaled(int snapshotInterval) {
+        repository = new CustomerRepository(TEST_FILE, RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setSnapshotInterval(snapshotInterval));
+        return repository;
+    }
+    
+    @Test
+    void testJournalReplayRestoresMutations() throws CinemaException {
+        CustomerRepository repo = openJournaled(1000);
+        Customer john = repo.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        Customer jane = repo.save(new Customer(null, "Jane", "Doe", "jane@example.com", null));
+        john.addLoyaltyPoints(40);
+        repo.update(john);
+        repo.deleteById(jane.getId());
+        repo.close();
+        
+        assertFalse(new File(TEST_FILE).exists());
+        
+        CustomerRepository reopened = openJournaled(1000);
+        assertEquals(1, reopened.count());
+        assertEquals(40, reopened.findById(john.getId()).orElseThrow().getLoyaltyPoints());
+        assertFalse(reopened.existsById(jane.getId()));
+        
+        Customer next = reopened.save(new Customer(null, "Bob", "Smith", null, null));
+        assertEquals(jane.getId() + 1, next.getId());
+    }
+    
+    @Test
+    void testSnapshotIntervalTruncatesJournal() throws CinemaException {
+        CustomerRepository repo = openJournaled(3);
+        repo.save(new Customer(null, "A", "One", null, null));
+        repo.save(new Customer(null, "B", "Two", null, null));
+        assertTrue(new File(JOURNAL_FILE).length() > 0);
+        
+        repo.save(new Customer(null, "C", "Three", null, null));
+        assertEquals(0, new File(JOURNAL_FILE).length());
+        assertTrue(new File(TEST_FILE).exists());
+        
+        repo.save(new Customer(null, "D", "Four", null, null));
+        repo.close();
+        
+        assertEquals(4, openJournaled(3).count());
+    }
+    
+    @Test
+    void testTornJournalTailIsDiscarded() throws CinemaException, IOException {
+        CustomerRepository repo = openJournaled(1000);
+        repo.save(new Customer(null, "John", "Doe", null, null));
+        repo.save(new Customer(null, "Jane", "Doe", null, null));
+        repo.close();
+        
+        try (RandomAccessFile journal = new RandomAccessFile(JOURNAL_FILE, "rw")) {
+            journal.setLength(journal.length() - 3);
+        }
+        
+        CustomerRepository reopened = openJournaled(1000);
+        assertEquals(1, reopened.count());
+        
+        reopened.save(new Customer(null, "Bob", "Smith", null, null));
+        reopened.close();
+        assertEquals(2, openJournaled(1000).count());
+    }
+    
+    @Test
+    void testGarbageFrameLengthIsTreatedAsTornTail() throws CinemaException, IOException {
+        CustomerRepository repo = openJournaled(1000);
+        repo.save(new Customer(null, "John", "Doe", null, null));
+        repo.save(new Customer(null, "Jane", "Doe", null, null));
+        repo.close();
+        
+        long intactLength = new File(JOURNAL_FILE).length();
+        try (RandomAccessFile journal = new RandomAccessFile(JOURNAL_FILE, "rw")) {
+            journal.seek(intactLength);
+            journal.writeInt(Integer.MAX_VALUE);
+            journal.writeInt(0);
+            journal.write(new byte[16]);
+        }
+        
+        assertEquals(2, openJournaled(1000).count());
+        assertEquals(intactLength, new File(JOURNAL_FILE).length());
+    }
+    
+    @Test
+    void testUnreadableJournalRecordFailsTheLoad() throws CinemaException, IOException {
+        CustomerRepository repo = openJournaled(1000);
+        repo.save(new Customer(null, "John", "Doe", null, null));
+        repo.close();
+        repository = null;
+        
+        // An intact frame whose entity cannot be decoded: replaying around it would lose the write
+        byte[] entity = "{\"id\": \"oops\"".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(9 + entity.length).put((byte) 0).putLong(2L).put(entity);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        try (RandomAccessFile journal = new RandomAccessFile(JOURNAL_FILE, "rw")) {
+            journal.seek(journal.length());
+            journal.writeInt(payload.capacity());
+            journal.writeInt((int) crc.getValue());
+            journal.write(payload.array());
+        }
+        
+        assertThrows(UncheckedIOException.class, () -> openJournaled(1000));
+    }
+    
+    @Test
+    void testGroupCommitPersistsConcurrentSaves() throws Exception {
+        repository = new CustomerRepository(TEST_FILE, RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setGroupCommit(true)
+                .setMaxBatchSize(64)
+                .setMaxBatchDelay(Duration.ofMillis(5)));
+        CustomerRepository repo = repository;
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    repo.save(new Customer(null, "First" + thread, "Last" + i, null, null));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        repo.close();
+        
+        assertEquals(200, openJournaled(1000).count());
+    }
+    
+    @Test
+    void testCorruptedDataFileFallsBackToPreviousSnapshot() throws CinemaException, IOException {
+        repository = new CustomerRepository(TEST_FILE);
+        repository.save(new Customer(null, "John", "Doe", null, null));
+        repository.save(new Customer(null, "Jane", "Doe", null, null));
+        
+        try (RandomAccessFile data = new RandomAccessFile(TEST_FILE, "rw")) {
+            data.setLength(data.length() / 2);
+        }
+        
+        CustomerRepository reopened = new CustomerRepository(TEST_FILE);
+        assertEquals(1, reopened.count());
+        assertEquals("John", reopened.findAll().get(0).getFirstName());
+    }
+    
+    @Test
+    void testStreamingLoadReportsProgress() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        for (int i = 0; i < 50; i++) {
+            repository.save(new Customer(null, "First" + i, "Last" + i, null, null));
+        }
+        
+        long[] progress = new long[3];
+        CustomerRepository reopened = new CustomerRepository(TEST_FILE, RepositoryConfig.defaults()
+                .setLoadProgressListener((path, entities, bytesRead, totalBytes) -> {
+                    progress[0] = entities;
+                    progress[1] = bytesRead;
+                    progress[2] = totalBytes;
+                }));
+        
+        assertEquals(50, reopened.count());
+        assertEquals(50, progress[0]);
+        assertEquals(new File(TEST_FILE).length(), progress[2]);
+        assertTrue(progress[1] > 0 && progress[1] <= progress[2]);
+        assertEquals(51L, reopened.save(new Customer(null, "Next", "One", null, null)).getId());
+    }
+    
+    @Test
+    void testMappedSnapshotWithJournalReplay() throws CinemaException {
+        RepositoryConfig config = RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setStorageFormat(StorageFormat.MAPPED);
+        repository = new CustomerRepository(TEST_FILE, config);
+        for (int i = 0; i < 20; i++) {
+            repository.save(new Customer(null, "First" + i, "Last" + i, null, null));
+        }
+        repository.checkpoint();
+        Customer updated = repository.findById(3L).orElseThrow();
+        updated.addLoyaltyPoints(15);
+        repository.update(updated);
+        repository.deleteById(4L);
+        repository.close();
+        
+        repository = new CustomerRepository(TEST_FILE, config);
+        assertEquals(19, repository.count());
+        assertEquals(15, repository.findById(3L).orElseThrow().getLoyaltyPoints());
+        assertFalse(repository.existsById(4L));
+        assertEquals("First19", repository.findById(20L).orElseThrow().getFirstName());
+        assertEquals(21L, repository.save(new Customer(null, "Next", "One", null, null)).getId());
+    }
+    
+    @Test
+    void testMappedSnapshotDecodesEntitiesOnFirstAccess() throws CinemaException, IOException {
+        repository = new CustomerRepository(TEST_FILE, RepositoryConfig.defaults().setStorageFormat(StorageFormat.MAPPED));
+        repository.save(new Customer(null, "John", "Doe", null, null));
+        repository.save(new Customer(null, "Jane", "Doe", null, null));
+        repository.close();
+        
+        // Damage the first entity's body; the index stays intact
+        try (RandomAccessFile data = new RandomAccessFile(TEST_FILE, "rw")) {
+            data.seek(12);
+            int value = data.read();
+            data.seek(12);
+            data.write(value ^ 0x01);
+        }
+        
+        repository = new CustomerRepository(TEST_FILE, RepositoryConfig.defaults().setStorageFormat(StorageFormat.MAPPED));
+        assertEquals(2, repository.count());
+        assertTrue(repository.existsById(1L));
+        assertEquals("Jane", repository.findById(2L).orElseThrow().getFirstName());
+        assertThrows(UncheckedIOException.class, () -> repository.findById(1L));
+    }
+    
+    @Test
+    void testEmailIsUniqueIgnoringCase() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        Customer john = repository.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        Customer jane = repository.save(new Customer(null, "Jane", "Doe", "jane@example.com", null));
+        
+        assertThrows(DuplicateKeyException.class,
+                () -> repository.save(new Customer(null, "Johnny", "Doe", "John@Example.COM", null)));
+        Customer renamed = jane.copy();
+        renamed.setEmail("JOHN@example.com");
+        assertThrows(DuplicateKeyException.class, () -> repository.update(renamed));
+        
+        assertEquals(2, repository.count());
+        assertEquals(john.getId(), repository.findByEmail("JOHN@EXAMPLE.COM").getId());
+        assertEquals(jane.getId(), repository.findByEmail("jane@example.com").getId());
+    }
+    
+    @Test
+    void testRejectedWritesLeaveTheEntityRetryable() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        repository.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        Customer jane = repository.save(new Customer(null, "Jane", "Doe", "jane@example.com", null));
+        
+        Customer duplicate = new Customer(null, "Johnny", "Doe", "john@example.com", null);
+        assertThrows(DuplicateKeyException.class, () -> repository.save(duplicate));
+        assertNull(duplicate.getId());
+        duplicate.setEmail("johnny@example.com");
+        assertNotNull(repository.save(duplicate).getId());
+        
+        Customer renamed = jane.copy();
+        renamed.setEmail("john@example.com");
+        assertThrows(DuplicateKeyException.class, () -> repository.update(renamed));
+        assertEquals(jane.getVersion(), renamed.getVersion());
+        renamed.setEmail("jane.doe@example.com");
+        assertEquals(jane.getVersion() + 1, repository.update(renamed).getVersion());
+    }
+    
+    @Test
+    void testEmailIndexFollowsUpdatesAndDeletes() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        Customer john = repository.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        
+        Customer changed = john.copy();
+        changed.setEmail("johnny@example.com");
+        repository.update(changed);
+        assertNull(repository.findByEmail("john@example.com"));
+        assertEquals(john.getId(), repository.findByEmail("johnny@example.com").getId());
+        
+        Customer other = repository.save(new Customer(null, "Other", "Doe", "john@example.com", null));
+        repository.deleteById(other.getId());
+        assertNull(repository.findByEmail("john@example.com"));
+        repository.save(new Customer(null, "Third", "Doe", "john@example.com", null));
+    }
+    
+    @Test
+    void testEmailIndexIsRebuiltAfterReopen() throws CinemaException {
+        CustomerRepository repo = openJournaled(1000);
+        repo.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        repo.checkpoint();
+        repo.save(new Customer(null, "Jane", "Doe", "jane@example.com", null));
+        repo.close();
+        
+        CustomerRepository reopened = openJournaled(1000);
+        assertEquals(2L, reopened.findByEmail("Jane@Example.com").getId());
+        assertThrows(DuplicateKeyException.class,
+                () -> reopened.save(new Customer(null, "Johnny", "Doe", "JOHN@example.com", null)));
+    }
+    
+    @Test
+    void testConcurrentSavesWithSameEmailAdmitOne() throws Exception {
+        repository = new CustomerRepository(TEST_FILE);
+        CustomerRepository repo = repository;
+        
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                try {
+                    repo.save(new Customer(null, "First" + thread, "Doe", "Same@Example.com", null));
+                    return true;
+                } catch (DuplicateKeyException e) {
+                    return false;
+                }
+            }));
+        }
+        int saved = 0;
+        for (Future<Boolean> future : futures) {
+            saved += future.get() ? 1 : 0;
+        }
+        executor.shutdown();
+        
+        assertEquals(1, saved);
+        assertEquals(1, repo.count());
+    }
+    
+    @Test
+    void testNameSearchMatchesFirstOrLastName() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        repository.save(new Customer(null, "Annabel", "Smith", null, null));
+        repository.save(new Customer(null, "John", "Hannah", null, null));
+        repository.save(new Customer(null, "Bob", "Jones", null, null));
+        
+        assertEquals(2, repository.searchByName("ANN").size());
+        assertEquals("Bob", repository.searchByName("jon").get(0).getFirstName());
+        // A match must not span first and last name
+        assertTrue(repository.searchByName("bobjones").isEmpty());
+        assertTrue(repository.searchByName("elsmi").isEmpty());
+        assertEquals(3, repository.searchByName("").size());
+    }
+    
+    @Test
+    void testSimilarNameLookupToleratesTypos() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        Customer catherine = repository.save(new Customer(null, "Catherine", "Johnson", null, null));
+        repository.save(new Customer(null, "Katherine", "Jonson", null, null));
+        repository.save(new Customer(null, "Bob", "Smith", null, null));
+        
+        List<Customer> matches = repository.findBySimilarName("Cathrine", 10);
+        assertEquals(List.of("Catherine", "Katherine"), matches.stream()
+                .map(Customer::getFirstName).collect(Collectors.toList()));
+        assertEquals("Jonson", repository.findBySimilarName("jonsen", 10).get(0).getLastName());
+        assertEquals("Smith", repository.findBySimilarName("  bob  smyth ", 10).get(0).getLastName());
+        assertEquals(1, repository.findBySimilarName("Cathrine", 1).size());
+        assertTrue(repository.findBySimilarName("Zed", 10).isEmpty());
+        assertTrue(repository.findBySimilarName(" ", 10).isEmpty());
+        
+        Customer renamed = repository.findById(catherine.getId()).orElseThrow().copy();
+        renamed.setFirstName("Alice");
+        repository.update(renamed);
+        assertEquals(List.of("Katherine"), repository.findBySimilarName("Cathrine", 10).stream()
+                .map(Customer::getFirstName).collect(Collectors.toList()));
+        assertEquals(catherine.getId(), repository.findBySimilarName("alise", 10).get(0).getId());
+    }
+    
+    @Test
+    void testTopCustomersByLoyaltyPoints() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        for (int i = 0; i < 50; i++) {
+            Customer customer = new Customer(null, "First" + i, "Last" + i, null, null);
+            customer.addLoyaltyPoints((i * 37) % 50);
+            repository.save(customer);
+        }
+        
+        List<Customer> top = repository.findTopByLoyaltyPoints(3);
+        assertEquals(List.of(49, 48, 47), top.stream().map(Customer::getLoyaltyPoints).collect(Collectors.toList()));
+        assertEquals(10, repository.findByMinLoyaltyPoints(40).size());
+        
+        Customer promoted = repository.findById(1L).orElseThrow().copy();
+        promoted.addLoyaltyPoints(100);
+        repository.update(promoted);
+        assertEquals(1L, repository.findTopByLoyaltyPoints(1).get(0).getId());
+    }
+    
+    @Test
+    void testBulkSaveReportsRejectedItemsAndPersistsOnce() throws CinemaException {
+        CustomerRepository repo = openJournaled(100_000);
+        repo.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            customers.add(new Customer(null, "First" + i, "Last" + i, "customer" + i + "@example.com", null));
+        }
+        customers.set(10, new Customer(null, "", "Blank", null, null));
+        customers.set(20, new Customer(null, "Jack", "Doe", "JOHN@example.com", null));
+        customers.set(30, new Customer(1L, "Taken", "Id", null, null));
+        customers.set(40, new Customer(null, "Same", "Email", "customer39@example.com", null));
+        long modifications = repo.getModificationCount();
+        
+        BatchResult<Customer> result = repo.saveAll(customers);
+        
+        assertEquals(996, result.getSucceededCount());
+        assertEquals(List.of(10, 20, 30, 40), new ArrayList<>(result.getErrors().keySet()));
+        assertInstanceOf(DuplicateKeyException.class, result.getError(20));
+        assertInstanceOf(DuplicateKeyException.class, result.getError(30));
+        assertInstanceOf(DuplicateKeyException.class, result.getError(40));
+        assertNull(customers.get(20).getId());
+        assertNull(result.getResult(10));
+        assertEquals("customer39@example.com", result.getResult(39).getEmail());
+        assertEquals(1, repo.getModificationCount() - modifications);
+        repo.close();
+        
+        CustomerRepository reopened = openJournaled(100_000);
+        assertEquals(997, reopened.count());
+        assertEquals(result.getResult(999).getId(), reopened.findByEmail("customer999@example.com").getId());
+    }
+    
+    @Test
+    void testBulkUpdateAndDeleteReportPerItemErrors() throws CinemaException {
+        repository = new CustomerRepository(TEST_FILE);
+        Customer john = repository.save(new Customer(null, "John", "Doe", "john@example.com", null));
+        Customer jane = repository.save(new Customer(null, "Jane", "Doe", "jane@example.com", null));
+        Customer stale = repository.findById(jane.getId()).orElseThrow().copy();
+        repository.update(repository.findById(jane.getId()).orElseThrow().copy());
+        
+        Customer renamed = repository.findById(john.getId()).orElseThrow().copy();
+        renamed.setLastName("Smith");
+        Customer invalid = john.copy();
+        invalid.setEmail("not an email");
+        BatchResult<Customer> updated = repository.updateAll(List.of(renamed, stale, invalid,
+                new Customer(99L, "No", "One", null, null)));
+        
+        assertEquals(1, updated.getSucceededCount());
+        assertEquals(1, renamed.getVersion());
+        assertEquals("Smith", repository.findById(john.getId()).orElseThrow().getLastName());
+        assertInstanceOf(OptimisticLockException.class, updated.getError(1));
+        assertInstanceOf(ValidationException.class, updated.getError(2));
+        assertInstanceOf(EntityNotFoundException.class, updated.getError(3));
+        
+        BatchResult<Long> deleted = repository.deleteAllById(Arrays.asList(john.getId(), 99L, null));
+        assertEquals(List.of(john.getId()), deleted.getSucceeded());
+        assertInstanceOf(EntityNotFoundException.class, deleted.getError(1));
+        assertEquals(1, repository.count());
+    }
+}
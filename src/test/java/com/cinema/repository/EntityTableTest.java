@@ -0,0 +1,54 @@
+package com.cinema.repository;
+
+import com.cinema.exception.DuplicateKeyException;
+import com.cinema.models.Movie;
+import com.cinema.repository.index.IndexDefinition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EntityTable.
+ */
+class EntityTableTest {
+    
+    private static final IndexDefinition<Movie, String> TITLE = IndexDefinition.unique("title", Movie::getTitle);
+    private static final IndexDefinition<Movie, String> GENRE = IndexDefinition.nonUnique("genre", Movie::getGenre);
+    
+    private static Movie movie(long id, String title, String genre) {
+        return new Movie(id, title, genre, 100, "Director", "English");
+    }
+    
+    @Test
+    void testCopiesShareIndexesWithoutSeeingEachOthersChanges() throws DuplicateKeyException {
+        EntityTable<Movie> original = new EntityTable<>(List.of(TITLE, GENRE));
+        original.insert(movie(1, "Alien", "Sci-Fi"));
+        original.insert(movie(2, "Heat", "Crime"));
+        original.buildIndexes();
+        
+        EntityTable<Movie> copy = original.copy();
+        copy.replace(movie(1, "Alien", "Horror"));
+        copy.insert(movie(3, "Ronin", "Crime"));
+        copy.remove(2L);
+        
+        assertEquals(List.of(1L), ids(original.findAll(GENRE, "Sci-Fi")));
+        assertEquals(List.of(2L), ids(original.findAll(GENRE, "Crime")));
+        assertNull(original.findUnique(TITLE, "Ronin"));
+        assertEquals(List.of(1L), ids(copy.findAll(GENRE, "Horror")));
+        assertEquals(List.of(3L), ids(copy.findAll(GENRE, "Crime")));
+        assertNull(copy.findUnique(TITLE, "Heat"));
+        
+        EntityTable<Movie> second = copy.copy();
+        assertThrows(DuplicateKeyException.class, () -> second.replace(movie(3, "Alien", "Thriller")));
+        assertEquals(List.of(3L), ids(second.findAll(GENRE, "Crime")));
+        assertEquals(3L, second.findUnique(TITLE, "Ronin").getId());
+        second.clear();
+        assertEquals(1L, copy.findUnique(TITLE, "Alien").getId());
+    }
+    
+    private static List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+}
@@ -0,0 +1,197 @@
+package com.cinema.repository;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.exception.OptimisticLockException;
+import com.cinema.models.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonRepository under concurrent access.
+ */
+class JsonRepositoryConcurrencyTest {
+    
+    private static final String TEST_FILE = "src/test/resources/test-concurrency-customers.json";
+    
+    private CustomerRepository repository;
+    
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
+    }
+    
+    private CustomerRepository open(ConcurrencyMode mode) {
+        repository = new CustomerRepository(TEST_FILE, RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setConcurrencyMode(mode)
+                .setFsync(false));
+        return repository;
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testConcurrentWritersAndReaders(ConcurrencyMode mode) throws Exception {
+        CustomerRepository repo = open(mode);
+        int writers = 4;
+        int perWriter = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        List<Customer> all = repo.findAll();
+                        Set<Long> ids = new HashSet<>();
+                        for (Customer customer : all) {
+                            assertNotNull(customer);
+                            assertTrue(ids.add(customer.getId()), "Duplicate ID in a snapshot");
+                        }
+                        assertTrue(all.size() <= repo.count());
+                        repo.findByMinLoyaltyPoints(1);
+                    }
+                    return null;
+                }));
+            }
+            
+            List<Future<?>> writes = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                writes.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        Customer saved = repo.save(new Customer(null, "W" + writer, "C" + i, null, null));
+                        Customer copy = repo.findById(saved.getId()).orElseThrow().copy();
+                        copy.addLoyaltyPoints(10);
+                        repo.update(copy);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(writers * perWriter, repo.count());
+        assertEquals(writers * perWriter, repo.findByMinLoyaltyPoints(10).size());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testStoredEntitiesAreIsolatedFromCallers(ConcurrencyMode mode) throws CinemaException {
+        CustomerRepository repo = open(mode);
+        Customer customer = repo.save(new Customer(null, "John", "Doe", null, null));
+        customer.setFirstName("Changed");
+        
+        assertEquals("John", repo.findById(customer.getId()).orElseThrow().getFirstName());
+        
+        Customer copy = repo.findById(customer.getId()).orElseThrow().copy();
+        copy.addLoyaltyPoints(5);
+        assertEquals(0, repo.findById(customer.getId()).orElseThrow().getLoyaltyPoints());
+        repo.update(copy);
+        assertEquals(5, repo.findById(customer.getId()).orElseThrow().getLoyaltyPoints());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testListReturnedByFindAllIsUnaffectedByLaterWrites(ConcurrencyMode mode) throws CinemaException {
+        CustomerRepository repo = open(mode);
+        repo.save(new Customer(null, "John", "Doe", null, null));
+        List<Customer> before = repo.findAll();
+        
+        repo.save(new Customer(null, "Jane", "Doe", null, null));
+        repo.deleteAll();
+        
+        assertEquals(1, before.size());
+        assertEquals("John", before.get(0).getFirstName());
+        assertEquals(0, repo.count());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testConcurrentUpdatesSurviveReopen(ConcurrencyMode mode) throws Exception {
+        CustomerRepository repo = open(mode);
+        int threads = 4;
+        int updates = 50;
+        for (int i = 0; i < threads; i++) {
+            repo.save(new Customer(null, "First" + i, "Last", null, null));
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (long id = 1; id <= threads; id++) {
+                long customerId = id;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < updates; i++) {
+                        Customer copy = repo.findById(customerId).orElseThrow().copy();
+                        copy.addLoyaltyPoints(1);
+                        repo.update(copy);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        repo.close();
+        
+        CustomerRepository reopened = open(mode);
+        for (long id = 1; id <= threads; id++) {
+            assertEquals(updates, reopened.findById(id).orElseThrow().getLoyaltyPoints());
+        }
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testStaleUpdateIsRejected(ConcurrencyMode mode) throws CinemaException {
+        CustomerRepository repo = open(mode);
+        Customer saved = repo.save(new Customer(null, "John", "Doe", null, null));
+        assertEquals(0, saved.getVersion());
+        
+        Customer first = repo.findById(saved.getId()).orElseThrow().copy();
+        Customer second = repo.findById(saved.getId()).orElseThrow().copy();
+        first.addLoyaltyPoints(10);
+        assertEquals(1, repo.update(first).getVersion());
+        
+        second.addLoyaltyPoints(20);
+        OptimisticLockException conflict = assertThrows(OptimisticLockException.class, () -> repo.update(second));
+        assertEquals(0, conflict.getExpectedVersion());
+        assertEquals(1, conflict.getActualVersion());
+        assertEquals(1, repo.getUpdateConflicts());
+        
+        Customer stored = repo.findById(saved.getId()).orElseThrow();
+        assertEquals(10, stored.getLoyaltyPoints());
+        assertEquals(1, stored.getVersion());
+        repo.close();
+        
+        assertEquals(1, open(mode).findById(saved.getId()).orElseThrow().getVersion());
+    }
+}
@@ -0,0 +1,232 @@
+package com.cinema.repository;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.models.Movie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MovieRepository indexes.
+ */
+class MovieRepositoryTest {
+    
+    private static final String TEST_FILE = "src/test/resources/test-repository-movies.json";
+    
+    private MovieRepository repository;
+    
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
+    }
+    
+    private MovieRepository open(ConcurrencyMode mode) {
+        repository = new MovieRepository(TEST_FILE, RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setConcurrencyMode(mode));
+        return repository;
+    }
+    
+    private static List<String> titles(List<Movie> movies) {
+        return movies.stream().map(Movie::getTitle).collect(Collectors.toList());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testLookupsIgnoreCase(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        repo.save(new Movie(null, "Alien", "Sci-Fi", 117, "Ridley Scott", "English"));
+        repo.save(new Movie(null, "Amelie", "Comedy", 122, "Jean-Pierre Jeunet", "French"));
+        repo.save(new Movie(null, "Gladiator", "Action", 155, "Ridley Scott", "English"));
+        
+        assertEquals(List.of("Alien", "Gladiator"), titles(repo.findByDirector("ridley scott")));
+        assertEquals(List.of("Amelie"), titles(repo.findByLanguage(" FRENCH ")));
+        assertEquals(List.of("Alien"), titles(repo.findByGenre("sci-fi")));
+        assertTrue(repo.findByGenre("Horror").isEmpty());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testIndexesFollowUpdatesAndDeletes(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        Movie alien = repo.save(new Movie(null, "Alien", "Sci-Fi", 117, "Ridley Scott", "English"));
+        Movie heat = repo.save(new Movie(null, "Heat", "Crime", 170, "Michael Mann", "English"));
+        
+        Movie changed = repo.findById(alien.getId()).orElseThrow().copy();
+        changed.setGenre("Horror");
+        repo.update(changed);
+        repo.deleteById(heat.getId());
+        
+        assertTrue(repo.findByGenre("Sci-Fi").isEmpty());
+        assertEquals(List.of("Alien"), titles(repo.findByGenre("horror")));
+        assertTrue(repo.findByDirector("Michael Mann").isEmpty());
+        assertEquals(List.of("Alien"), titles(repo.findByLanguage("English")));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testIndexesAreRebuiltAfterReopen(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        repo.save(new Movie(null, "Alien", "Sci-Fi", 117, "Ridley Scott", "English"));
+        repo.checkpoint();
+        repo.save(new Movie(null, "Blade Runner", "Sci-Fi", 117, "Ridley Scott", "English"));
+        repo.close();
+        
+        MovieRepository reopened = open(mode);
+        assertEquals(List.of("Alien", "Blade Runner"), titles(reopened.findByGenre("SCI-FI")));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testTextSearchRanksAndFollowsUpdates(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        Movie alien = new Movie(null, "Alien", "Sci-Fi", 117, "Ridley Scott", "English");
+        alien.setDescription("The crew of a space freighter is hunted by an alien creature.");
+        alien = repo.save(alien);
+        Movie aliens = new Movie(null, "Aliens", "Sci-Fi", 137, "James Cameron", "English");
+        aliens.setDescription("Marines return to the colony to fight the aliens.");
+        repo.save(aliens);
+        Movie heat = new Movie(null, "Heat", "Crime", 170, "Michael Mann", "English");
+        heat.setDescription("A detective hunts a crew of bank robbers.");
+        heat = repo.save(heat);
+        
+        assertEquals(List.of("Aliens", "Alien"), titles(repo.searchText("ALIENS", 10)));
+        assertEquals(List.of("Alien"), titles(repo.searchText("ridley space", 10)));
+        assertEquals("Heat", repo.searchText("crew robber", 1).get(0).getTitle());
+        assertTrue(repo.searchText("the of", 10).isEmpty());
+        
+        Movie changed = repo.findById(heat.getId()).orElseThrow().copy();
+        changed.setDescription("A thief plans one last heist.");
+        repo.update(changed);
+        assertTrue(repo.searchText("robbers", 10).isEmpty());
+        assertEquals(List.of("Heat"), titles(repo.searchText("heist", 10)));
+        repo.deleteById(alien.getId());
+        assertEquals(List.of("Aliens"), titles(repo.searchText("alien", 10)));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testPagingByOffsetAndById(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        for (int i = 1; i <= 10; i++) {
+            repo.save(new Movie(null, "Movie " + i, "Drama", 100, "Director", "English"));
+        }
+        
+        assertEquals(List.of("Movie 4", "Movie 5", "Movie 6"), titles(repo.findAll(3, 3)));
+        assertTrue(repo.findAll(10, 5).isEmpty());
+        assertEquals(List.of("Movie 1", "Movie 2"), titles(repo.findAllAfter(null, 2)));
+        
+        List<Movie> page = repo.findAllAfter(null, 4);
+        // Deleting entities before and at the end of the page does not shift the next page
+        repo.deleteById(2L);
+        repo.deleteById(4L);
+        assertEquals(List.of("Movie 5", "Movie 6"), titles(repo.findAllAfter(page.get(3).getId(), 2)));
+        assertEquals(List.of("Movie 9", "Movie 10"), titles(repo.findAllAfter(8L, 5)));
+        assertEquals(8, repo.stream().count());
+        assertThrows(IllegalArgumentException.class, () -> repo.findAll(-1, 1));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testPagingByIdWithIdsSavedOutOfOrder(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        for (long id : new long[]{50, 10, 40, 20, 30}) {
+            Movie movie = new Movie(null, "Movie " + id, "Drama", 100, "Director", "English");
+            movie.setId(id);
+            repo.save(movie);
+        }
+        
+        assertEquals(List.of("Movie 10", "Movie 20"), titles(repo.findAllAfter(null, 2)));
+        assertEquals(List.of("Movie 30", "Movie 40"), titles(repo.findAllAfter(20L, 2)));
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L),
+                repo.stream().map(Movie::getId).collect(Collectors.toList()));
+        assertEquals(List.of("Movie 40", "Movie 20"), titles(repo.findAll(2, 2)));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testStreamReadsLazilyInPages(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        for (int i = 0; i < 2500; i++) {
+            repo.save(new Movie(null, "Movie " + i, "Drama", 100, "Director", "English"));
+        }
+        
+        assertEquals(2500, repo.stream().map(Movie::getId).distinct().count());
+        assertEquals("Movie 2000", repo.stream().skip(2000).findFirst().orElseThrow().getTitle());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testTitleSearchFollowsUpdates(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        Movie matrix = repo.save(new Movie(null, "The Matrix", "Sci-Fi", 136, "Wachowski", "English"));
+        repo.save(new Movie(null, "Matrimony", "Drama", 100, "Someone", "English"));
+        repo.save(new Movie(null, "Heat", "Crime", 170, "Michael Mann", "English"));
+        
+        assertEquals(List.of("The Matrix", "Matrimony"), titles(repo.searchByTitle("MATRI")));
+        assertEquals(List.of("The Matrix", "Heat"), titles(repo.searchByTitle("he")));
+        assertTrue(repo.searchByTitle("xirtam").isEmpty());
+        
+        Movie renamed = repo.findById(matrix.getId()).orElseThrow().copy();
+        renamed.setTitle("The Matrix Reloaded");
+        repo.update(renamed);
+        assertEquals(List.of("The Matrix Reloaded"), titles(repo.searchByTitle("reload")));
+        repo.deleteById(matrix.getId());
+        assertEquals(List.of("Matrimony"), titles(repo.searchByTitle("matri")));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testRatingQueriesReturnSortedResults(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        String[] names = {"A", "B", "C", "D", "E"};
+        double[] ratings = {8.5, 6.0, 9.2, 7.5, 8.5};
+        for (int i = 0; i < names.length; i++) {
+            Movie movie = new Movie(null, names[i], "Drama", 100, "Director", "English");
+            movie.setRating(ratings[i]);
+            repo.save(movie);
+        }
+        
+        assertEquals(List.of("D", "A", "E"), titles(repo.findByRatingBetween(7.5, 9.0)));
+        assertEquals(List.of("A", "E", "C"), titles(repo.findByMinRating(8.0)));
+        assertEquals(List.of("C", "E"), titles(repo.findTopRated(2)));
+        
+        Movie rerated = repo.findById(2L).orElseThrow().copy();
+        rerated.setRating(10.0);
+        repo.update(rerated);
+        assertEquals(List.of("B", "C"), titles(repo.findTopRated(2)));
+        assertEquals(5, repo.findByMinRating(0.0).size());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testCombinedGenreAndLanguageFilters(ConcurrencyMode mode) throws CinemaException {
+        MovieRepository repo = open(mode);
+        repo.save(new Movie(null, "Amelie", "Comedy", 122, "Jeunet", "French"));
+        repo.save(new Movie(null, "Blue", "Drama", 98, "Kieslowski", "French"));
+        repo.save(new Movie(null, "Heat", "Crime", 170, "Mann", "English"));
+        Movie drama = repo.save(new Movie(null, "Magnolia", "Drama", 188, "Anderson", "English"));
+        
+        assertEquals(List.of("Blue"), titles(repo.findByGenreAndLanguage("drama", "FRENCH")));
+        assertEquals(List.of("Amelie", "Heat"), titles(repo.findByGenres(List.of("Comedy", "crime"))));
+        assertEquals(2, repo.countByGenre("Drama"));
+        assertEquals(2, repo.countByLanguage("english"));
+        
+        Movie dubbed = repo.findById(drama.getId()).orElseThrow().copy();
+        dubbed.setLanguage("French");
+        repo.update(dubbed);
+        assertEquals(List.of("Blue", "Magnolia"), titles(repo.findByGenreAndLanguage("Drama", "French")));
+        assertEquals(1, repo.countByLanguage("English"));
+    }
+}
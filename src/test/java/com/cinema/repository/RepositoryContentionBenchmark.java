@@ -0,0 +1,96 @@
+package com.cinema.repository;
+
+import com.cinema.models.Customer;
+import com.cinema.service.CustomerService;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Contention benchmark comparing a single repository lock with striped update locks.
+ * Several threads add loyalty points to random customers through {@link CustomerService},
+ * and the update throughput of each concurrency mode is printed. Run it with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.cinema.repository.RepositoryContentionBenchmark [-Dexec.args="threads customers updates"]
+ * </pre>
+ * Not part of the test suite.
+ */
+public class RepositoryContentionBenchmark {
+    
+    private static final String FILE = "target/benchmark-customers.json";
+    
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        int customers = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int updatesPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+        
+        // Per-operation INFO logging would dominate the measurement
+        Logger.getLogger("com.cinema").setLevel(Level.WARNING);
+        
+        System.out.printf("%d threads, %d customers, %d updates per thread%n", threads, customers, updatesPerThread);
+        for (int round = 0; round < 2; round++) {
+            String label = round == 0 ? "warm-up" : "measured";
+            for (ConcurrencyMode mode : new ConcurrencyMode[]{ConcurrencyMode.READ_WRITE_LOCK, ConcurrencyMode.STRIPED}) {
+                double rate = run(mode, threads, customers, updatesPerThread);
+                System.out.printf("%-8s %-16s %,12.0f updates/s%n", label, mode, rate);
+            }
+        }
+    }
+    
+    private static double run(ConcurrencyMode mode, int threads, int customers, int updatesPerThread) throws Exception {
+        deleteFiles();
+        RepositoryConfig config = RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setSnapshotInterval(100_000)
+                .setGroupCommit(true)
+                .setMaxBatchDelay(Duration.ZERO)
+                .setFsync(false)
+                .setConcurrencyMode(mode);
+        
+        try (CustomerRepository repository = new CustomerRepository(FILE, config)) {
+            CustomerService service = new CustomerService(repository);
+            for (int i = 0; i < customers; i++) {
+                repository.save(new Customer(null, "First" + i, "Last" + i, null, null));
+            }
+            
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    results.add(executor.submit(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int i = 0; i < updatesPerThread; i++) {
+                            service.addLoyaltyPoints(random.nextLong(1, customers + 1), 1);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+                long elapsed = System.nanoTime() - start;
+                return (double) threads * updatesPerThread * 1_000_000_000L / elapsed;
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            deleteFiles();
+        }
+    }
+    
+    private static void deleteFiles() {
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(FILE + suffix).delete();
+        }
+    }
+}
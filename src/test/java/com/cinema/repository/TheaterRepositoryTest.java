@@ -0,0 +1,98 @@
+package com.cinema.repository;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.models.Theater;
+import com.cinema.service.TheaterService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TheaterRepository indexes.
+ */
+class TheaterRepositoryTest {
+    
+    private static final String TEST_FILE = "src/test/resources/test-repository-theaters.json";
+    
+    private TheaterRepository repository;
+    
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.close();
+        }
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
+    }
+    
+    private TheaterRepository open(ConcurrencyMode mode) {
+        repository = new TheaterRepository(TEST_FILE, RepositoryConfig.defaults()
+                .setPersistenceMode(PersistenceMode.JOURNAL)
+                .setConcurrencyMode(mode));
+        return repository;
+    }
+    
+    private static List<String> names(List<Theater> theaters) {
+        return theaters.stream().map(Theater::getName).collect(Collectors.toList());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testMovieIndexFollowsSchedule(ConcurrencyMode mode) throws CinemaException {
+        TheaterRepository repo = open(mode);
+        TheaterService service = new TheaterService(repo);
+        Theater hall1 = service.createTheater("Hall 1", 120, "Standard");
+        Theater hall2 = service.createTheater("Hall 2", 300, "IMAX");
+        
+        service.addMovieToTheater(hall1.getId(), 7L);
+        service.addMovieToTheater(hall2.getId(), 7L);
+        service.addMovieToTheater(hall2.getId(), 8L);
+        assertEquals(List.of("Hall 1", "Hall 2"), names(repo.findByMovieId(7L)));
+        assertEquals(List.of("Hall 2"), names(repo.findByMovieId(8L)));
+        
+        service.removeMovieFromTheater(hall1.getId(), 7L);
+        assertEquals(List.of("Hall 2"), names(repo.findByMovieId(7L)));
+        service.deleteTheater(hall2.getId());
+        assertTrue(repo.findByMovieId(7L).isEmpty());
+        assertTrue(repo.findByMovieId(9L).isEmpty());
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testMovieIndexIsRebuiltAfterReopen(ConcurrencyMode mode) throws CinemaException {
+        TheaterRepository repo = open(mode);
+        TheaterService service = new TheaterService(repo);
+        Theater hall = service.createTheater("Hall 1", 120, "Standard");
+        service.addMovieToTheater(hall.getId(), 7L);
+        repo.close();
+        
+        assertEquals(List.of("Hall 1"), names(open(mode).findByMovieId(7L)));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ConcurrencyMode.class)
+    void testScreenTypeAndAccessibilityFilters(ConcurrencyMode mode) throws CinemaException {
+        TheaterRepository repo = open(mode);
+        TheaterService service = new TheaterService(repo);
+        service.createTheater("Hall 1", 120, "IMAX");
+        Theater hall2 = service.createTheater("Hall 2", 300, "IMAX");
+        service.createTheater("Hall 3", 80, "Standard");
+        service.updateTheater(hall2.getId(), null, null, null, false);
+        
+        assertEquals(List.of("Hall 1", "Hall 2"), names(repo.findByScreenType("imax")));
+        assertEquals(List.of("Hall 1"), names(repo.findAccessibleByScreenType("IMAX")));
+        assertEquals(List.of("Hall 1", "Hall 3"), names(repo.findWithWheelchairAccess()));
+        assertEquals(2, repo.countByScreenType("IMAX"));
+        
+        service.updateTheater(hall2.getId(), null, null, "Standard", true);
+        assertEquals(List.of("Hall 2", "Hall 3"), names(repo.findAccessibleByScreenType("standard")));
+        assertEquals(1, repo.countByScreenType("IMAX"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.cinema.repository.index;
+
+import com.cinema.models.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BkTreeIndex.
+ */
+class BkTreeIndexTest {
+    
+    private static final IndexDefinition<Movie, String> TITLE = IndexDefinition.fuzzy("title",
+            movie -> List.of(IndexDefinition.normalize(movie.getTitle())));
+    
+    private static Movie movie(long id, String title) {
+        return new Movie(id, title, "Drama", 100, "Director", "English");
+    }
+    
+    private static List<String> keys(List<BkTreeIndex.Match> matches) {
+        return matches.stream().map(BkTreeIndex.Match::getKey).collect(Collectors.toList());
+    }
+    
+    @Test
+    void testBoundedDistanceStopsAtTheBound() {
+        assertEquals(3, BkTreeIndex.distance("kitten", "sitting"));
+        assertEquals(3, BkTreeIndex.distance("kitten", "sitting", 3));
+        assertEquals(2, BkTreeIndex.distance("kitten", "sitting", 1));
+        assertEquals(3, BkTreeIndex.distance("a", "abcdefgh", 2));
+        assertEquals(0, BkTreeIndex.distance("same", "same", 0));
+    }
+    
+    @Test
+    void testSearchFindsKeysWithinDistance() {
+        BkTreeIndex<Movie> index = new BkTreeIndex<>(TITLE);
+        String[] titles = {"alien", "aliens", "allen", "heat", "ronin", "a very long title far from the rest"};
+        for (int i = 0; i < titles.length; i++) {
+            index.add(movie(i + 1, titles[i]));
+        }
+        
+        assertEquals(List.of("alien", "aliens", "allen"), keys(index.search("alien", 1)));
+        assertEquals(List.of("heat"), keys(index.search("heat", 0)));
+        assertTrue(index.search("zzzzzz", 2).isEmpty());
+    }
+    
+    @Test
+    void testTreeIsRebuiltOnceDeadNodesPileUp() {
+        BkTreeIndex<Movie> index = new BkTreeIndex<>(TITLE);
+        for (int i = 0; i < 100; i++) {
+            index.add(movie(i, "title " + i));
+        }
+        for (int i = 0; i < 90; i++) {
+            index.remove(movie(i, "title " + i));
+        }
+        
+        assertTrue(index.nodeCount() <= 10 + 10 * BkTreeIndex.MAX_DEAD_FRACTION, "nodes: " + index.nodeCount());
+        assertEquals(List.of("title 95"), keys(index.search("title 95", 0)));
+        assertTrue(index.search("title 5", 0).isEmpty());
+        assertEquals(10, index.copy().nodeCount());
+    }
+}
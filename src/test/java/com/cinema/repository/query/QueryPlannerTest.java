@@ -0,0 +1,129 @@
+package com.cinema.repository.query;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.models.Movie;
+import com.cinema.repository.MovieRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.cinema.repository.MovieRepository.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for QueryPlanner.
+ */
+class QueryPlannerTest {
+    
+    private static final String TEST_FILE = "src/test/resources/test-query-movies.json";
+    private static final String[] GENRES = {"Drama", "Comedy", "Action", "Horror", "Sci-Fi"};
+    private static final String[] LANGUAGES = {"English", "French", "German", "Spanish"};
+    
+    private static MovieRepository repository;
+    
+    @BeforeAll
+    static void setUp() throws CinemaException {
+        new File(TEST_FILE).delete();
+        repository = new MovieRepository(TEST_FILE);
+        for (int i = 0; i < 400; i++) {
+            Movie movie = new Movie(null, "Movie " + i, GENRES[i % GENRES.length], 80 + i % 60,
+                    "Director " + i % 40, LANGUAGES[i % LANGUAGES.length]);
+            movie.setRating((i * 7) % 101 / 10.0);
+            repository.save(movie);
+        }
+    }
+    
+    @AfterAll
+    static void tearDown() {
+        repository.close();
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
+    }
+    
+    private static List<Movie> expected(Criteria<Movie> criteria, Comparator<Movie> order, int limit) {
+        return repository.findAll().stream()
+                .filter(criteria::test)
+                .sorted(order)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+    
+    @Test
+    void testAndUsesMostSelectiveIndexAndMatchesScan() {
+        Criteria<Movie> criteria = Criteria.and(
+                Criteria.eq(GENRE, "drama"),
+                Criteria.eq(DIRECTOR, "Director 5"),
+                Criteria.atLeast(DURATION, 100));
+        Query<Movie> query = Query.where(criteria);
+        
+        assertEquals(expected(criteria, Comparator.comparing(Movie::getId), 400), repository.find(query));
+        String plan = repository.explain(query);
+        assertTrue(plan.contains("Index MultiHashIndex director"), plan);
+        assertFalse(plan.contains("Full scan"), plan);
+    }
+    
+    @Test
+    void testComparableIndexesAreIntersected() {
+        Criteria<Movie> criteria = Criteria.and(Criteria.eq(GENRE, "Comedy"), Criteria.eq(LANGUAGE, "French"));
+        Query<Movie> query = Query.where(criteria);
+        
+        assertEquals(expected(criteria, Comparator.comparing(Movie::getId), 400), repository.find(query));
+        String plan = repository.explain(query);
+        assertTrue(plan.contains("Intersect"), plan);
+    }
+    
+    @Test
+    void testOrUsesUnionOnlyWhenEveryBranchIsIndexed() {
+        Criteria<Movie> indexed = Criteria.or(Criteria.contains(TITLE, "movie 12"), Criteria.eq(DIRECTOR, "Director 3"));
+        assertTrue(repository.explain(Query.where(indexed)).contains("Union"));
+        assertEquals(expected(indexed, Comparator.comparing(Movie::getId), 400), repository.find(Query.where(indexed)));
+        
+        Criteria<Movie> unindexed = Criteria.or(Criteria.eq(DIRECTOR, "Director 3"), Criteria.atLeast(DURATION, 130));
+        assertTrue(repository.explain(Query.where(unindexed)).contains("Full scan"));
+        assertEquals(expected(unindexed, Comparator.comparing(Movie::getId), 400).size(),
+                repository.find(Query.where(unindexed)).size());
+    }
+    
+    @Test
+    void testUnselectiveCriteriaFallBackToScan() {
+        Query<Movie> query = Query.where(Criteria.atLeast(RATING, 0.5));
+        assertTrue(repository.explain(query).contains("Full scan"));
+        assertEquals(expected(query.getCriteria(), Comparator.comparing(Movie::getId), 400).size(),
+                repository.find(query).size());
+    }
+    
+    @Test
+    void testTopKReadsSortedIndexInOrder() {
+        Criteria<Movie> criteria = Criteria.eq(LANGUAGE, "English");
+        Query<Movie> query = Query.where(criteria).orderBy(RATING, true).limit(5);
+        
+        Comparator<Movie> order = Comparator.comparing(Movie::getRating).thenComparing(Movie::getId).reversed();
+        assertEquals(expected(criteria, order, 5), repository.find(query));
+        assertTrue(repository.explain(query).contains("Read in order of SortedIndex rating DESC"));
+    }
+    
+    @Test
+    void testSortOnUnindexedFieldWithLimit() {
+        Criteria<Movie> criteria = Criteria.between(RATING, 2.0, 4.0);
+        Query<Movie> query = Query.where(criteria).orderBy(DURATION, false).limit(7);
+        
+        Comparator<Movie> order = Comparator.comparing(Movie::getDurationMinutes).thenComparing(Movie::getId);
+        assertEquals(expected(criteria, order, 7), repository.find(query));
+        String plan = repository.explain(query);
+        assertTrue(plan.startsWith("Limit 7"), plan);
+        assertTrue(plan.contains("Sort by durationMinutes ASC"), plan);
+        assertTrue(plan.contains("Index SortedIndex rating"), plan);
+    }
+    
+    @Test
+    void testQueryAllWithoutCriteria() {
+        assertEquals(400, repository.find(Query.all()).size());
+        assertEquals(3, repository.find(Query.<Movie>all().limit(3)).size());
+    }
+}
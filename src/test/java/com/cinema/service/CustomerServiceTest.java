@@ -2,15 +2,21 @@ package com.cinema.service;
 
 import com.cinema.exception.CinemaException;
 import com.cinema.exception.EntityNotFoundException;
+import com.cinema.exception.OptimisticLockException;
 import com.cinema.exception.ValidationException;
 import com.cinema.models.Customer;
+import com.cinema.repository.BatchResult;
 import com.cinema.repository.CustomerRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,9 +36,11 @@ class CustomerServiceTest {
     }
     
     @AfterEach
-    void tearDown() throws CinemaException {
-        customerRepository.deleteAll();
-        new File(TEST_FILE).delete();
+    void tearDown() {
+        customerRepository.close();
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
     }
     
     @Test
@@ -111,6 +119,61 @@ class CustomerServiceTest {
         assertEquals(2, results.size());
     }
     
+    @Test
+    void testSearchCustomersToleratesMisspelledNames() throws CinemaException {
+        customerService.createCustomer("Margaret", "Thompson", "margaret@example.com", "123456789");
+        customerService.createCustomer("Bob", "Thomas", "bob@example.com", "555555555");
+        
+        List<Customer> results = customerService.searchCustomers("Tomson");
+        assertEquals(1, results.size());
+        assertEquals("Thompson", results.get(0).getLastName());
+        // Substring matches come first, then similar names
+        List<Customer> thom = customerService.searchCustomers("thoma");
+        assertEquals("Thomas", thom.get(0).getLastName());
+        assertEquals(1, customerService.searchCustomers("thoma", 1).size());
+    }
+    
+    @Test
+    void testCacheIsInvalidatedByUpdatesAndDeletes() throws CinemaException {
+        Customer customer = customerService.createCustomer("John", "Doe", "john@example.com", "123456789");
+        customerService.getCustomerById(customer.getId());
+        customerService.getCustomerById(customer.getId());
+        assertEquals(1, customerService.getCache().getHits());
+        
+        customerService.addLoyaltyPoints(customer.getId(), 10);
+        assertEquals(10, customerService.getCustomerById(customer.getId()).getLoyaltyPoints());
+        customerService.deleteCustomer(customer.getId());
+        assertThrows(EntityNotFoundException.class, () -> customerService.getCustomerById(customer.getId()));
+    }
+    
+    @Test
+    void testBulkMethodsApplyValidItemsAndInvalidateTheCache() throws CinemaException {
+        BatchResult<Customer> created = customerService.createCustomers(List.of(
+                new CustomerFields(null, null, "John", "Doe", "john@example.com", null),
+                new CustomerFields(null, null, "Jane", "Doe", "bad email", null),
+                new CustomerFields(null, null, "Bob", "Smith", "bob@example.com", null)));
+        assertEquals(2, created.getSucceededCount());
+        assertInstanceOf(ValidationException.class, created.getError(1));
+        
+        Customer john = customerService.getCustomerById(created.getResult(0).getId());
+        BatchResult<Customer> updated = customerService.updateCustomers(List.of(
+                new CustomerFields(john.getId(), john.getVersion(), null, "King", null, null),
+                new CustomerFields(999L, null, "Nobody", null, null, null),
+                new CustomerFields(john.getId(), john.getVersion(), "Johnny", null, null, null)));
+        assertEquals(1, updated.getSucceededCount());
+        assertInstanceOf(EntityNotFoundException.class, updated.getError(1));
+        assertInstanceOf(OptimisticLockException.class, updated.getError(2));
+        Customer king = customerService.getCustomerById(john.getId());
+        assertEquals("King", king.getLastName());
+        assertEquals("John", king.getFirstName());
+        assertEquals(john.getCreatedAt(), king.getCreatedAt());
+        
+        BatchResult<Long> deleted = customerService.deleteCustomers(List.of(john.getId(), created.getResult(2).getId()));
+        assertEquals(2, deleted.getSucceededCount());
+        assertThrows(EntityNotFoundException.class, () -> customerService.getCustomerById(john.getId()));
+        assertEquals(0, customerService.getCustomerCount());
+    }
+    
     @Test
     void testAddLoyaltyPoints() throws CinemaException {
         Customer customer = customerService.createCustomer("John", "Doe", "john@example.com", "123456789");
@@ -122,6 +185,37 @@ class CustomerServiceTest {
         assertEquals(150, updated.getLoyaltyPoints());
     }
     
+    @Test
+    void testConcurrentLoyaltyPointsAreNotLost() throws Exception {
+        CustomerService service = new CustomerService(customerRepository, new OptimisticRetry(1000));
+        Customer customer = service.createCustomer("John", "Doe", "john@example.com", "123456789");
+        int threads = 4;
+        int additions = 25;
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < additions; i++) {
+                        service.addLoyaltyPoints(customer.getId(), 1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        Customer stored = service.getCustomerById(customer.getId());
+        assertEquals(threads * additions, stored.getLoyaltyPoints());
+        assertEquals(threads * additions, stored.getVersion());
+        assertEquals(service.getUpdateConflicts(), customerRepository.getUpdateConflicts());
+    }
+    
     @Test
     void testGetCustomerCount() throws CinemaException {
         assertEquals(0, customerService.getCustomerCount());
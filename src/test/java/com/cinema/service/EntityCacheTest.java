@@ -0,0 +1,118 @@
+package com.cinema.service;
+
+import com.cinema.models.Movie;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EntityCache.
+ */
+class EntityCacheTest {
+    
+    private static final long WEIGHT = 100;
+    
+    private final Map<Long, Movie> store = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    private Movie load(Long id) {
+        loads.incrementAndGet();
+        return store.computeIfAbsent(id, key -> {
+            Movie movie = new Movie(key, "Movie " + key, "Drama", 100, "Director", "English");
+            movie.setId(key);
+            return movie;
+        });
+    }
+    
+    @Test
+    void testReadThroughCountsHitsAndMisses() {
+        EntityCache<Movie> cache = new EntityCache<>(10_000, movie -> WEIGHT);
+        
+        Movie first = cache.get(1L, this::load);
+        assertSame(first, cache.get(1L, this::load));
+        assertNull(cache.get(2L, id -> null));
+        
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertEquals(WEIGHT, cache.getWeight());
+        assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+    }
+    
+    @Test
+    void testInvalidateForcesReload() {
+        EntityCache<Movie> cache = new EntityCache<>(10_000, movie -> WEIGHT);
+        cache.get(1L, this::load);
+        cache.invalidate(1L);
+        cache.get(1L, this::load);
+        assertEquals(2, loads.get());
+        
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+    
+    @Test
+    void testLoadOverlappingInvalidationIsNotCached() {
+        EntityCache<Movie> cache = new EntityCache<>(10_000, movie -> WEIGHT);
+        Movie stale = cache.get(1L, id -> {
+            // A writer changes the entity while it is being loaded
+            cache.invalidate(id);
+            return load(id);
+        });
+        
+        assertNotNull(stale);
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    void testStaysWithinBudgetAndKeepsFrequentEntriesThroughScans() {
+        EntityCache<Movie> cache = new EntityCache<>(20 * WEIGHT, movie -> WEIGHT);
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 10; id++) {
+                cache.get(id, this::load);
+            }
+        }
+        // A scan of many entities read once
+        for (long id = 1000; id < 2000; id++) {
+            cache.get(id, this::load);
+        }
+        
+        assertTrue(cache.getWeight() <= 20 * WEIGHT);
+        assertTrue(cache.getEvictions() > 0);
+        int before = loads.get();
+        for (long id = 1; id <= 10; id++) {
+            cache.get(id, this::load);
+        }
+        assertEquals(before, loads.get(), "frequently read entities were evicted by the scan");
+    }
+    
+    @Test
+    void testZeroBudgetDisablesCaching() {
+        EntityCache<Movie> cache = new EntityCache<>(0, movie -> WEIGHT);
+        cache.get(1L, this::load);
+        cache.get(1L, this::load);
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    void testNullIdGoesToTheLoaderUncached() {
+        EntityCache<Movie> cache = new EntityCache<>(10_000, movie -> WEIGHT);
+        
+        assertNull(cache.get(null, id -> null));
+        AtomicInteger calls = new AtomicInteger();
+        cache.get(null, id -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        assertEquals(1, calls.get());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+}
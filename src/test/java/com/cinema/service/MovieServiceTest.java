@@ -10,6 +10,7 @@ import org.junit.jupiter.api.AfterEach;
 
 import java.io.File;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,9 +30,11 @@ class MovieServiceTest {
     }
     
     @AfterEach
-    void tearDown() throws CinemaException {
-        movieRepository.deleteAll();
-        new File(TEST_FILE).delete();
+    void tearDown() {
+        movieRepository.close();
+        for (String suffix : new String[]{"", ".journal", ".prev", ".crc32c"}) {
+            new File(TEST_FILE + suffix).delete();
+        }
     }
     
     @Test
@@ -101,6 +104,42 @@ class MovieServiceTest {
         assertEquals(2, results.size());
     }
     
+    @Test
+    void testSearchMoviesFindsUpdatedDescription() throws CinemaException {
+        Movie movie = movieService.createMovie("Inception", "Sci-Fi", 148, "Christopher Nolan", "English");
+        movieService.createMovie("Interstellar", "Sci-Fi", 169, "Christopher Nolan", "English");
+        
+        assertTrue(movieService.searchMovies("dreams").isEmpty());
+        movieService.updateMovie(movie.getId(), null, null, null, null, null, null,
+                "A thief steals secrets from the dreams of others.");
+        
+        List<Movie> results = movieService.searchMovies("dream thieves");
+        assertEquals(1, results.size());
+        assertEquals("Inception", results.get(0).getTitle());
+        assertEquals(2, movieService.searchMovies("nolan").size());
+        assertEquals(1, movieService.searchMovies("nolan", 1).size());
+        // Partly typed words fall back to title search
+        assertEquals(List.of(movie.getId()), movieService.searchMovies("incep").stream()
+                .map(Movie::getId).collect(Collectors.toList()));
+    }
+    
+    @Test
+    void testCatalogQueriesAreCachedUntilTheRepositoryChanges() throws CinemaException {
+        Movie matrix = movieService.createMovie("The Matrix", "Sci-Fi", 136, "Wachowski Brothers", "English");
+        
+        assertEquals(1, movieService.getMoviesByGenre("Sci-Fi").size());
+        assertEquals(1, movieService.getMoviesByGenre("Sci-Fi").size());
+        assertEquals(1, movieService.getQueryCache().getHits());
+        
+        movieService.createMovie("Inception", "Sci-Fi", 148, "Christopher Nolan", "English");
+        assertEquals(2, movieService.getMoviesByGenre("Sci-Fi").size());
+        movieService.updateMovie(matrix.getId(), null, "Action", null, null, null, null, null);
+        assertEquals(1, movieService.getMoviesByGenre("Sci-Fi").size());
+        movieService.deleteMovie(matrix.getId());
+        assertTrue(movieService.getMoviesByGenre("Action").isEmpty());
+        assertEquals(1, movieService.getQueryCache().getHits());
+    }
+    
     @Test
     void testGetMoviesByGenre() throws CinemaException {
         movieService.createMovie("The Matrix", "Sci-Fi", 136, "Wachowski Brothers", "English");
@@ -0,0 +1,83 @@
+package com.cinema.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for QueryCache.
+ */
+class QueryCacheTest {
+    
+    private final AtomicLong modifications = new AtomicLong();
+    private final AtomicInteger runs = new AtomicInteger();
+    
+    private List<String> run(String value) {
+        runs.incrementAndGet();
+        return List.of(value);
+    }
+    
+    @Test
+    void testResultsAreKeyedByNameAndParameters() {
+        QueryCache cache = new QueryCache(modifications::get, 10);
+        
+        assertEquals(List.of("a"), cache.get(() -> run("a"), "genre", "Action"));
+        assertEquals(List.of("a"), cache.get(() -> run("x"), "genre", "Action"));
+        assertEquals(List.of("b"), cache.get(() -> run("b"), "genre", "Drama"));
+        assertEquals(List.of("c"), cache.get(() -> run("c"), "director", "Action"));
+        assertEquals(List.of("d"), cache.get(() -> run("d"), "genre", (Object) null));
+        
+        assertEquals(4, runs.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+    
+    @Test
+    void testModificationInvalidatesResults() {
+        QueryCache cache = new QueryCache(modifications::get, 10);
+        cache.get(() -> run("a"), "all");
+        modifications.incrementAndGet();
+        
+        assertEquals(List.of("b"), cache.get(() -> run("b"), "all"));
+        assertEquals(List.of("b"), cache.get(() -> run("c"), "all"));
+        assertEquals(2, runs.get());
+    }
+    
+    @Test
+    void testResultComputedDuringModificationIsNotServedAfterIt() {
+        QueryCache cache = new QueryCache(modifications::get, 10);
+        cache.get(() -> {
+            modifications.incrementAndGet();
+            return run("a");
+        }, "all");
+        
+        assertEquals(List.of("b"), cache.get(() -> run("b"), "all"));
+    }
+    
+    @Test
+    void testLeastRecentlyUsedResultsAreDropped() {
+        QueryCache cache = new QueryCache(modifications::get, 2);
+        cache.get(() -> run("a"), "q", 1);
+        cache.get(() -> run("b"), "q", 2);
+        cache.get(() -> run("a"), "q", 1);
+        cache.get(() -> run("c"), "q", 3);
+        
+        assertEquals(2, cache.size());
+        cache.get(() -> run("a"), "q", 1);
+        assertEquals(3, runs.get());
+        cache.get(() -> run("b"), "q", 2);
+        assertEquals(4, runs.get());
+    }
+    
+    @Test
+    void testResultsAreUnmodifiable() {
+        QueryCache cache = new QueryCache(modifications::get, 10);
+        List<String> result = cache.get(() -> new ArrayList<>(List.of("a")), "all");
+        assertThrows(UnsupportedOperationException.class, () -> result.add("b"));
+    }
+}
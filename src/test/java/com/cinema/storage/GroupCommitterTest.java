@@ -0,0 +1,129 @@
+package com.cinema.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GroupCommitter.
+ */
+class GroupCommitterTest {
+    
+    @Test
+    void testRecordsAreCoalescedIntoBatches() {
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> batches.add(new ArrayList<>(batch)),
+                1000, 200, TimeUnit.MILLISECONDS);
+        
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(committer.submit(i));
+        }
+        futures.forEach(CompletableFuture::join);
+        committer.close();
+        
+        List<Integer> written = new ArrayList<>();
+        batches.forEach(written::addAll);
+        assertEquals(100, written.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, written.get(i));
+        }
+        assertTrue(batches.size() < 100);
+        assertEquals(batches.size(), committer.getBatchesWritten());
+        assertEquals(100, committer.getRecordsWritten());
+    }
+    
+    @Test
+    void testBatchSizeIsBounded() {
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> sizes.add(batch.size()),
+                10, 50, TimeUnit.MILLISECONDS);
+        
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            futures.add(committer.submit(i));
+        }
+        futures.forEach(CompletableFuture::join);
+        committer.close();
+        
+        assertTrue(sizes.stream().allMatch(size -> size <= 10));
+        assertEquals(95, sizes.stream().mapToInt(Integer::intValue).sum());
+    }
+    
+    @Test
+    void testActionRunsAfterPrecedingRecords() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> events.add("batch" + batch),
+                100, 20, TimeUnit.MILLISECONDS);
+        
+        committer.submit(1);
+        committer.submit(2);
+        committer.submit(() -> events.add("action")).join();
+        committer.close();
+        
+        assertEquals(List.of("batch[1, 2]", "action"), events);
+    }
+    
+    @Test
+    void testWriteFailureCompletesFuturesExceptionally() {
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> {
+            throw new IOException("disk full");
+        }, 10, 0, TimeUnit.MILLISECONDS);
+        
+        CompletableFuture<Void> future = committer.submit(1);
+        CompletionException e = assertThrows(CompletionException.class, future::join);
+        assertTrue(e.getCause() instanceof IOException);
+        committer.close();
+    }
+    
+    @Test
+    void testSubmitAfterCloseFails() {
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> { }, 10, 0, TimeUnit.MILLISECONDS);
+        committer.close();
+        
+        assertThrows(CompletionException.class, () -> committer.submit(1).join());
+    }
+    
+    @Test
+    void testWriterErrorFailsTheBatchAndLaterSubmissions() {
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> {
+            throw new AssertionError("writer bug");
+        }, 10, 0, TimeUnit.MILLISECONDS);
+        
+        CompletionException e = assertThrows(CompletionException.class, () -> committer.submit(1).join());
+        assertTrue(e.getCause() instanceof AssertionError);
+        
+        CompletableFuture<Void> later = committer.submit(2);
+        assertThrows(ExecutionException.class, () -> later.get(5, TimeUnit.SECONDS));
+        committer.close();
+    }
+    
+    @Test
+    void testSubmissionsRacingCloseNeverHang() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            GroupCommitter<Integer> committer = new GroupCommitter<>("test", batch -> { }, 10, 0, TimeUnit.MILLISECONDS);
+            List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    futures.add(committer.submit(i));
+                }
+            });
+            submitter.start();
+            committer.close();
+            submitter.join();
+            
+            for (CompletableFuture<Void> future : futures) {
+                assertTrue(future.isDone());
+            }
+        }
+    }
+}
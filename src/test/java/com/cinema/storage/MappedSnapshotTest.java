@@ -0,0 +1,76 @@
+package com.cinema.storage;
+
+import com.cinema.models.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MappedSnapshot.
+ */
+class MappedSnapshotTest {
+    
+    private static byte[] write(int count) throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            customers.add(new Customer(id, "First" + id, "Last" + id, "customer" + id + "@example.com", null));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MappedSnapshot.write(customers, Customer::getId, StorageFormat.MAPPED.codec(), out);
+        return out.toByteArray();
+    }
+    
+    @Test
+    void testWriteAndRead() throws IOException {
+        MappedSnapshot snapshot = MappedSnapshot.open(ByteBuffer.wrap(write(3)));
+        
+        assertEquals(3, snapshot.size());
+        assertEquals(2L, snapshot.getId(1));
+        Customer customer = snapshot.read(1, Customer.class);
+        assertEquals("First2", customer.getFirstName());
+        assertEquals("customer2@example.com", customer.getEmail());
+        assertNotNull(customer.getCreatedAt());
+    }
+    
+    @Test
+    void testEmptySnapshot() throws IOException {
+        assertEquals(0, MappedSnapshot.open(ByteBuffer.wrap(write(0))).size());
+    }
+    
+    @Test
+    void testDetectedAsMappedFormat() throws IOException {
+        byte[] data = write(1);
+        assertEquals(StorageFormat.MAPPED, StorageFormat.detect(data, 0, data.length));
+    }
+    
+    @Test
+    void testDamagedBodyIsDetectedOnRead() throws IOException {
+        byte[] data = write(2);
+        data[12] ^= 0x01;
+        MappedSnapshot snapshot = MappedSnapshot.open(ByteBuffer.wrap(data));
+        
+        assertThrows(IOException.class, () -> snapshot.read(0, Customer.class));
+        assertEquals("First2", snapshot.read(1, Customer.class).getFirstName());
+    }
+    
+    @Test
+    void testDamagedIndexIsDetectedOnOpen() throws IOException {
+        byte[] data = write(2);
+        data[data.length - 20] ^= 0x01;
+        
+        assertThrows(IOException.class, () -> MappedSnapshot.open(ByteBuffer.wrap(data)));
+    }
+    
+    @Test
+    void testTruncatedSnapshotIsRejected() throws IOException {
+        byte[] data = write(2);
+        
+        assertThrows(IOException.class, () -> MappedSnapshot.open(ByteBuffer.wrap(data, 0, data.length - 5).slice()));
+    }
+}
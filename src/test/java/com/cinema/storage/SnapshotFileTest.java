@@ -0,0 +1,127 @@
+package com.cinema.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SnapshotFile.
+ */
+class SnapshotFileTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private static void write(SnapshotFile snapshot, String content) throws IOException {
+        snapshot.write(out -> out.write(content.getBytes(StandardCharsets.UTF_8)), true);
+    }
+    
+    private static String load(SnapshotFile snapshot) throws IOException {
+        AtomicReference<String> content = new AtomicReference<>();
+        boolean found = snapshot.load((in, length) -> content.set(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        return found ? content.get() : null;
+    }
+    
+    @Test
+    void testMissingFileLoadsNothing() throws IOException {
+        assertNull(load(new SnapshotFile(tempDir.resolve("data.json"))));
+    }
+    
+    @Test
+    void testWriteReplacesContentAndKeepsPreviousGeneration() throws IOException {
+        Path path = tempDir.resolve("data.json");
+        SnapshotFile snapshot = new SnapshotFile(path);
+        write(snapshot, "first");
+        write(snapshot, "second");
+        
+        assertEquals("second", load(new SnapshotFile(path)));
+        assertEquals("first", Files.readString(tempDir.resolve("data.json.prev")));
+        assertFalse(Files.exists(tempDir.resolve("data.json.tmp")));
+    }
+    
+    @Test
+    void testCorruptedSnapshotFallsBackToPreviousGeneration() throws IOException {
+        Path path = tempDir.resolve("data.json");
+        SnapshotFile snapshot = new SnapshotFile(path);
+        write(snapshot, "first");
+        write(snapshot, "second");
+        Files.writeString(path, "secoNd");
+        
+        SnapshotFile reopened = new SnapshotFile(path);
+        assertEquals("first", load(reopened));
+        
+        // The damaged file must not become the fallback for the next generation
+        write(reopened, "third");
+        assertEquals("first", Files.readString(tempDir.resolve("data.json.prev")));
+        assertEquals("third", load(new SnapshotFile(path)));
+    }
+    
+    @Test
+    void testReaderFailureFallsBackToPreviousGeneration() throws IOException {
+        Path path = tempDir.resolve("data.json");
+        SnapshotFile snapshot = new SnapshotFile(path);
+        write(snapshot, "first");
+        write(snapshot, "second");
+        
+        AtomicReference<String> loaded = new AtomicReference<>();
+        List<Long> lengths = new ArrayList<>();
+        new SnapshotFile(path).load((in, length) -> {
+            lengths.add(length);
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (content.equals("second")) {
+                throw new IOException("unparseable");
+            }
+            loaded.set(content);
+        });
+        assertEquals(List.of(6L, 5L), lengths);
+        assertEquals("first", loaded.get());
+    }
+    
+    @Test
+    void testAllGenerationsCorruptedFails() throws IOException {
+        Path path = tempDir.resolve("data.json");
+        SnapshotFile snapshot = new SnapshotFile(path);
+        write(snapshot, "first");
+        write(snapshot, "second");
+        Files.writeString(path, "xxxxxx");
+        Files.writeString(tempDir.resolve("data.json.prev"), "yyyyy");
+        
+        assertThrows(IOException.class, () -> load(new SnapshotFile(path)));
+    }
+    
+    @Test
+    void testFileWithoutChecksumIsAccepted() throws IOException {
+        Path path = tempDir.resolve("data.json");
+        Files.writeString(path, "legacy");
+        
+        SnapshotFile snapshot = new SnapshotFile(path);
+        assertEquals("legacy", load(snapshot));
+        
+        write(snapshot, "new");
+        assertEquals("new", load(new SnapshotFile(path)));
+        assertEquals("legacy", Files.readString(tempDir.resolve("data.json.prev")));
+    }
+    
+    @Test
+    void testInterruptedWriteLeavesCurrentGenerationIntact() throws IOException {
+        Path path = tempDir.resolve("data.json");
+        SnapshotFile snapshot = new SnapshotFile(path);
+        write(snapshot, "first");
+        
+        assertThrows(IOException.class, () -> snapshot.write(out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("crash");
+        }, true));
+        
+        assertEquals("first", load(new SnapshotFile(path)));
+    }
+}
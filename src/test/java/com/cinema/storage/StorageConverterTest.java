@@ -0,0 +1,115 @@
+package com.cinema.storage;
+
+import com.cinema.exception.CinemaException;
+import com.cinema.models.Customer;
+import com.cinema.repository.CustomerRepository;
+import com.cinema.repository.PersistenceMode;
+import com.cinema.repository.RepositoryConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StorageConverter and storage format detection.
+ */
+class StorageConverterTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private static void populate(Path path, RepositoryConfig config, int count) throws CinemaException {
+        try (CustomerRepository repository = new CustomerRepository(path.toString(), config)) {
+            // Emails are unique, so continue numbering after the customers already stored
+            long start = repository.count();
+            for (long i = start; i < start + count; i++) {
+                repository.save(new Customer(null, "First" + i, "Last" + i, "customer" + i + "@example.com", null));
+            }
+        }
+    }
+    
+    @Test
+    void testConvertJsonToSmileShrinksFileAndKeepsData() throws CinemaException, IOException {
+        Path json = tempDir.resolve("customers.json");
+        Path smile = tempDir.resolve("customers.smile");
+        populate(json, RepositoryConfig.defaults(), 500);
+        
+        assertEquals(StorageFormat.JSON, StorageConverter.convert(json, smile, StorageFormat.SMILE));
+        assertTrue(Files.size(smile) * 3 < Files.size(json),
+                "Smile file should be at least 3x smaller than pretty JSON");
+        
+        try (CustomerRepository repository = new CustomerRepository(smile.toString(),
+                RepositoryConfig.defaults().setStorageFormat(StorageFormat.SMILE))) {
+            assertEquals(500, repository.count());
+            assertEquals("customer42@example.com", repository.findById(43L).orElseThrow().getEmail());
+        }
+    }
+    
+    @Test
+    void testConvertBackToJson() throws CinemaException, IOException {
+        Path json = tempDir.resolve("customers.json");
+        Path smile = tempDir.resolve("customers.smile");
+        Path roundTrip = tempDir.resolve("round-trip.json");
+        populate(json, RepositoryConfig.defaults(), 20);
+        
+        StorageConverter.convert(json, smile, StorageFormat.SMILE);
+        assertEquals(StorageFormat.SMILE, StorageConverter.convert(smile, roundTrip, StorageFormat.JSON));
+        assertEquals(Files.readString(json), Files.readString(roundTrip));
+    }
+    
+    @Test
+    void testConvertThroughMappedFormat() throws CinemaException, IOException {
+        Path json = tempDir.resolve("customers.json");
+        Path mapped = tempDir.resolve("customers.map");
+        Path roundTrip = tempDir.resolve("round-trip.json");
+        populate(json, RepositoryConfig.defaults(), 20);
+        
+        StorageConverter.convert(json, mapped, StorageFormat.MAPPED);
+        try (CustomerRepository repository = new CustomerRepository(mapped.toString(), RepositoryConfig.defaults())) {
+            assertEquals(20, repository.count());
+            assertEquals("customer7@example.com", repository.findById(8L).orElseThrow().getEmail());
+        }
+        
+        assertEquals(StorageFormat.MAPPED, StorageConverter.convert(mapped, roundTrip, StorageFormat.JSON));
+        assertEquals(Files.readString(json), Files.readString(roundTrip));
+    }
+    
+    @Test
+    void testRepositoryDetectsFormatAfterSwitching() throws CinemaException, IOException {
+        Path path = tempDir.resolve("customers.json");
+        populate(path, RepositoryConfig.defaults().setStorageFormat(StorageFormat.SMILE), 10);
+        
+        // A JSON-configured repository still reads the Smile file and rewrites it as JSON
+        populate(path, RepositoryConfig.defaults(), 1);
+        assertTrue(Files.readString(path).trim().startsWith("["));
+        
+        try (CustomerRepository repository = new CustomerRepository(path.toString(), RepositoryConfig.defaults())) {
+            assertEquals(11, repository.count());
+        }
+    }
+    
+    @Test
+    void testJournalReplaysRecordsOfMixedFormats() throws CinemaException {
+        Path path = tempDir.resolve("customers.json");
+        RepositoryConfig json = RepositoryConfig.defaults().setPersistenceMode(PersistenceMode.JOURNAL);
+        RepositoryConfig smile = RepositoryConfig.defaults().setPersistenceMode(PersistenceMode.JOURNAL)
+                .setStorageFormat(StorageFormat.SMILE);
+        populate(path, json, 3);
+        populate(path, smile, 3);
+        
+        assertFalse(Files.exists(path));
+        try (CustomerRepository repository = new CustomerRepository(path.toString(), json)) {
+            assertEquals(6, repository.count());
+        }
+    }
+    
+    @Test
+    void testConvertRejectsMissingSource() {
+        assertThrows(IOException.class, () -> StorageConverter.convert(tempDir.resolve("missing.json"),
+                tempDir.resolve("out.smile"), StorageFormat.SMILE));
+    }
+}
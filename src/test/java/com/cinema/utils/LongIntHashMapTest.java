@@ -0,0 +1,102 @@
+package com.cinema.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LongIntHashMap.
+ */
+class LongIntHashMapTest {
+    
+    private LongIntHashMap map;
+    
+    @BeforeEach
+    void setUp() {
+        map = new LongIntHashMap();
+    }
+    
+    @Test
+    void testPutAndGet() {
+        map.put(1L, 10);
+        map.put(2L, 20);
+        
+        assertEquals(10, map.get(1L, -1));
+        assertEquals(20, map.get(2L, -1));
+        assertEquals(-1, map.get(3L, -1));
+        assertEquals(2, map.size());
+    }
+    
+    @Test
+    void testPutReplacesValue() {
+        map.put(1L, 10);
+        map.put(1L, 11);
+        
+        assertEquals(11, map.get(1L, -1));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    void testZeroAndNegativeKeys() {
+        map.put(0L, 5);
+        map.put(-7L, 6);
+        
+        assertTrue(map.containsKey(0L));
+        assertEquals(5, map.get(0L, -1));
+        assertEquals(6, map.get(-7L, -1));
+        assertEquals(5, map.remove(0L, -1));
+        assertFalse(map.containsKey(0L));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    void testRemove() {
+        map.put(1L, 10);
+        
+        assertEquals(10, map.remove(1L, -1));
+        assertEquals(-1, map.remove(1L, -1));
+        assertFalse(map.containsKey(1L));
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    void testClear() {
+        for (long i = 1; i <= 100; i++) {
+            map.put(i, (int) i);
+        }
+        map.clear();
+        
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(50L));
+    }
+    
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            int op = random.nextInt(3);
+            if (op == 0) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else if (op == 1) {
+                assertEquals(expected.getOrDefault(key, -1).intValue(), map.remove(key, -1));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1));
+            }
+        }
+        
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey(), -1));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.cinema.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RoaringBitmap.
+ */
+class RoaringBitmapTest {
+    
+    @Test
+    void testAddRemoveContains() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        assertTrue(bitmap.add(5L));
+        assertFalse(bitmap.add(5L));
+        assertTrue(bitmap.add(70_000L));
+        assertTrue(bitmap.add(1L << 40));
+        
+        assertTrue(bitmap.contains(70_000L));
+        assertFalse(bitmap.contains(6L));
+        assertEquals(3, bitmap.getCardinality());
+        assertArrayEquals(new long[]{5L, 70_000L, 1L << 40}, bitmap.toArray());
+        
+        assertTrue(bitmap.remove(70_000L));
+        assertFalse(bitmap.remove(70_000L));
+        assertArrayEquals(new long[]{5L, 1L << 40}, bitmap.toArray());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1L));
+    }
+    
+    @Test
+    void testDenseChunkSwitchesContainerAndBack() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (long i = 0; i < 10_000; i++) {
+            bitmap.add(i * 2);
+        }
+        assertEquals(10_000, bitmap.getCardinality());
+        assertTrue(bitmap.contains(19_998L));
+        assertFalse(bitmap.contains(19_999L));
+        
+        for (long i = 0; i < 9_000; i++) {
+            bitmap.remove(i * 2);
+        }
+        assertEquals(1_000, bitmap.getCardinality());
+        assertEquals(18_000L, bitmap.toArray()[0]);
+    }
+    
+    @Test
+    void testAndOrMatchSetOperations() {
+        Random random = new Random(42);
+        RoaringBitmap a = new RoaringBitmap();
+        RoaringBitmap b = new RoaringBitmap();
+        TreeSet<Long> setA = new TreeSet<>();
+        TreeSet<Long> setB = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            // Dense values in the first chunks, sparse ones further out
+            long valueA = i < 30_000 ? random.nextInt(100_000) : random.nextInt(10_000_000);
+            long valueB = random.nextInt(200_000);
+            a.add(valueA);
+            setA.add(valueA);
+            b.add(valueB);
+            setB.add(valueB);
+        }
+        
+        TreeSet<Long> intersection = new TreeSet<>(setA);
+        intersection.retainAll(setB);
+        TreeSet<Long> union = new TreeSet<>(setA);
+        union.addAll(setB);
+        
+        assertArrayEquals(intersection.stream().mapToLong(Long::longValue).toArray(), a.and(b).toArray());
+        assertArrayEquals(union.stream().mapToLong(Long::longValue).toArray(), a.or(b).toArray());
+        assertEquals(intersection.size(), b.and(a).getCardinality());
+        assertEquals(setA.size(), a.getCardinality());
+    }
+    
+    @Test
+    void testCopyIsIndependent() {
+        RoaringBitmap original = RoaringBitmap.of(1L, 2L, 3L);
+        RoaringBitmap copy = new RoaringBitmap(original);
+        copy.add(4L);
+        copy.remove(1L);
+        
+        assertArrayEquals(new long[]{1L, 2L, 3L}, original.toArray());
+        assertArrayEquals(new long[]{2L, 3L, 4L}, copy.toArray());
+    }
+}